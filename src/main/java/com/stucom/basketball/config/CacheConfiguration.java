@@ -1,38 +1,105 @@
 package com.stucom.basketball.config;
 
-
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.statistics.StatisticsGateway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.ehcache.EhCacheCacheManager;
 import org.springframework.context.annotation.*;
-import org.springframework.cache.support.NoOpCacheManager;
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
+/**
+ * Ehcache, used as the Spring cache manager and as the Hibernate second-level cache.
+ *
+ * <p>
+ * Both share the singleton Ehcache CacheManager: the Hibernate regions are created with the entity manager
+ * factory, from the default cache of ehcache.xml, then every cache is sized and expired as configured in
+ * "jhipster.cache", and its hits, misses and evictions are published in the MetricRegistry as "cache.[name].*".
+ * </p>
+ */
 @Configuration
 @EnableCaching
 @AutoConfigureAfter(value = { MetricsConfiguration.class })
 @AutoConfigureBefore(value = { WebConfigurer.class, DatabaseConfiguration.class })
 public class CacheConfiguration {
 
+    private static final String METRIC_PREFIX = "cache";
+
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
     @Inject
-    private CacheManager cacheManager;
+    private JHipsterProperties jHipsterProperties;
+
+    private net.sf.ehcache.CacheManager cacheManager;
 
     @PreDestroy
     public void destroy() {
+        log.info("Remove Cache Manager metrics");
+        metricRegistry.removeMatching((name, metric) -> name.startsWith(METRIC_PREFIX + "."));
         log.info("Closing Cache Manager");
+        cacheManager.shutdown();
     }
 
     @Bean
     public CacheManager cacheManager() {
-        log.debug("No cache");
-        cacheManager = new NoOpCacheManager();
-        return cacheManager;
+        log.debug("Starting Ehcache");
+        // Build the entity manager factory first, so the Hibernate regions exist
+        entityManager.getMetamodel();
+        cacheManager = net.sf.ehcache.CacheManager.create();
+        JHipsterProperties.Cache properties = jHipsterProperties.getCache();
+        for (JHipsterProperties.Cache.Region region : properties.getRegions()) {
+            // A Spring cache only needs to be listed in the configuration
+            cacheManager.addCacheIfAbsent(region.getName());
+        }
+        log.debug("Registering Ehcache Metrics gauges");
+        for (String name : cacheManager.getCacheNames()) {
+            reconfigureCache(cacheManager.getEhcache(name), properties);
+        }
+        EhCacheCacheManager ehCacheManager = new EhCacheCacheManager();
+        ehCacheManager.setCacheManager(cacheManager);
+        return ehCacheManager;
+    }
+
+    private void reconfigureCache(Ehcache cache, JHipsterProperties.Cache properties) {
+        long maxEntries = properties.getMaxEntries();
+        int timeToLiveSeconds = properties.getTimeToLiveSeconds();
+        for (JHipsterProperties.Cache.Region region : properties.getRegions()) {
+            if (cache.getName().equals(region.getName())) {
+                if (region.getMaxEntries() != null) {
+                    maxEntries = region.getMaxEntries();
+                }
+                if (region.getTimeToLiveSeconds() != null) {
+                    timeToLiveSeconds = region.getTimeToLiveSeconds();
+                }
+            }
+        }
+        net.sf.ehcache.config.CacheConfiguration configuration = cache.getCacheConfiguration();
+        configuration.setMaxEntriesLocalHeap(maxEntries);
+        configuration.setTimeToLiveSeconds(timeToLiveSeconds);
+        log.debug("Cache {}: {} entries, {} seconds", cache.getName(), maxEntries, timeToLiveSeconds);
+
+        StatisticsGateway statistics = cache.getStatistics();
+        String name = MetricRegistry.name(METRIC_PREFIX, cache.getName());
+        metricRegistry.register(MetricRegistry.name(name, "hits"), (Gauge<Long>) statistics::cacheHitCount);
+        metricRegistry.register(MetricRegistry.name(name, "misses"), (Gauge<Long>) statistics::cacheMissCount);
+        metricRegistry.register(MetricRegistry.name(name, "evictions"), (Gauge<Long>) statistics::cacheEvictedCount);
+        metricRegistry.register(MetricRegistry.name(name, "expirations"), (Gauge<Long>) statistics::cacheExpiredCount);
+        metricRegistry.register(MetricRegistry.name(name, "size"), (Gauge<Long>) statistics::getSize);
     }
 }
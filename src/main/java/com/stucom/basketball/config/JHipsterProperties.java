@@ -4,6 +4,9 @@ import javax.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Properties specific to JHipster.
  *
@@ -32,6 +35,10 @@ public class JHipsterProperties {
 
     private final Ribbon ribbon = new Ribbon();
 
+    private final Rating rating = new Rating();
+
+    private final Live live = new Live();
+
     public Async getAsync() {
         return async;
     }
@@ -68,6 +75,14 @@ public class JHipsterProperties {
         return ribbon;
     }
 
+    public Rating getRating() {
+        return rating;
+    }
+
+    public Live getLive() {
+        return live;
+    }
+
     public static class Async {
 
         private int corePoolSize = 2;
@@ -123,7 +138,73 @@ public class JHipsterProperties {
         }
     }
 
+    /**
+     * Ehcache caches, used by CacheConfiguration for the Hibernate second-level cache and the Spring caches.
+     */
     public static class Cache {
+
+        private int timeToLiveSeconds = 3600;
+
+        private long maxEntries = 1000;
+
+        private final List<Region> regions = new ArrayList<>();
+
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public List<Region> getRegions() {
+            return regions;
+        }
+
+        /**
+         * The settings of one cache, overriding the defaults: its name is the entity class name, the entity class
+         * name followed by the collection name, or the name of a Spring cache.
+         */
+        public static class Region {
+
+            private String name;
+
+            private Long maxEntries;
+
+            private Integer timeToLiveSeconds;
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public Integer getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Integer timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+        }
     }
 
     public static class Mail {
@@ -444,4 +525,162 @@ public class JHipsterProperties {
             this.displayOnActiveProfiles = displayOnActiveProfiles;
         }
     }
+
+    public static class Rating {
+
+        private final Burst burst = new Burst();
+
+        public Burst getBurst() {
+            return burst;
+        }
+
+        /**
+         * Write-behind buffering of game ratings, used by the GameRatingBurstBuffer.
+         */
+        public static class Burst {
+
+            /**
+             * When a rating is acknowledged: once it is in the buffer, or once its batch is committed.
+             */
+            public enum Durability {
+                ACCEPTED, FLUSHED
+            }
+
+            private boolean enabled = false;
+
+            private int stripes = 8;
+
+            private int queueCapacity = 10000;
+
+            private int batchSize = 500;
+
+            private long flushInterval = 500;
+
+            private long maxLag = 5000;
+
+            private Durability durability = Durability.ACCEPTED;
+
+            private int maxAttempts = 3;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getStripes() {
+                return stripes;
+            }
+
+            public void setStripes(int stripes) {
+                this.stripes = stripes;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getFlushInterval() {
+                return flushInterval;
+            }
+
+            public void setFlushInterval(long flushInterval) {
+                this.flushInterval = flushInterval;
+            }
+
+            public long getMaxLag() {
+                return maxLag;
+            }
+
+            public void setMaxLag(long maxLag) {
+                this.maxLag = maxLag;
+            }
+
+            public Durability getDurability() {
+                return durability;
+            }
+
+            public void setDurability(Durability durability) {
+                this.durability = durability;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+        }
+    }
+
+    /**
+     * Server-Sent Events streams of the live scores of the games, used by the GameLiveService.
+     */
+    public static class Live {
+
+        private int maxSubscribers = 10000;
+
+        private long timeout = 1800000;
+
+        private long heartbeatInterval = 15000;
+
+        private int senderThreads = 4;
+
+        private long sendTimeout = 10000;
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+
+        public long getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        public void setHeartbeatInterval(long heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+        }
+
+        public int getSenderThreads() {
+            return senderThreads;
+        }
+
+        public void setSenderThreads(int senderThreads) {
+            this.senderThreads = senderThreads;
+        }
+
+        public long getSendTimeout() {
+            return sendTimeout;
+        }
+
+        public void setSendTimeout(long sendTimeout) {
+            this.sendTimeout = sendTimeout;
+        }
+    }
 }
@@ -11,10 +11,16 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "favourite_player")
+@NamedEntityGraph(name = FavouritePlayer.WITH_USER_AND_PLAYER,
+    attributeNodes = {@NamedAttributeNode("user"), @NamedAttributeNode(value = "player", subgraph = "player")},
+    subgraphs = @NamedSubgraph(name = "player", attributeNodes = @NamedAttributeNode("team")))
 public class FavouritePlayer implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Entity graph of a favourite read for a list: its user, and its player with its team */
+    public static final String WITH_USER_AND_PLAYER = "FavouritePlayer.withUserAndPlayer";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
@@ -22,10 +28,10 @@ public class FavouritePlayer implements Serializable {
     @Column(name = "favourite_date_time")
     private ZonedDateTime favouriteDateTime;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Player player;
 
     public Long getId() {
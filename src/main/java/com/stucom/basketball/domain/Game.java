@@ -22,6 +22,10 @@ public class Game implements Serializable {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @Column(name = "name")
     private String name;
 
@@ -37,10 +41,10 @@ public class Game implements Serializable {
     @Column(name = "finish_time")
     private LocalDate finishTime;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Team localTeam;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Team visitorTeam;
 
     @OneToMany(mappedBy = "game")
@@ -55,6 +59,14 @@ public class Game implements Serializable {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -11,10 +11,17 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "game_rating")
+@NamedEntityGraph(name = GameRating.WITH_USER_AND_GAME,
+    attributeNodes = {@NamedAttributeNode("user"), @NamedAttributeNode(value = "game", subgraph = "game")},
+    subgraphs = @NamedSubgraph(name = "game",
+        attributeNodes = {@NamedAttributeNode("localTeam"), @NamedAttributeNode("visitorTeam")}))
 public class GameRating implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Entity graph of a rating read for a list: its user, and its game with both teams */
+    public static final String WITH_USER_AND_GAME = "GameRating.withUserAndGame";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
@@ -25,10 +32,10 @@ public class GameRating implements Serializable {
     @Column(name = "score_date_time")
     private ZonedDateTime scoreDateTime;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Game game;
 
     public Long getId() {
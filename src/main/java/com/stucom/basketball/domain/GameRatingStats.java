@@ -0,0 +1,176 @@
+package com.stucom.basketball.domain;
+
+import com.stucom.basketball.domain.util.IntArrayConverter;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Running aggregate of the ratings of a Game.
+ *
+ * <p>
+ * Maintained in the same transaction as every GameRating write, so the average of a game
+ * can be read from a single row instead of scanning all of its ratings.
+ * </p>
+ */
+@Entity
+@Table(name = "game_rating_stats")
+public class GameRatingStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Lowest score with a bucket of its own in the histogram */
+    public static final int HISTOGRAM_MIN_SCORE = 1;
+
+    /** Highest score with a bucket of its own in the histogram */
+    public static final int HISTOGRAM_MAX_SCORE = 10;
+
+    @Id
+    @Column(name = "game_id")
+    private Long gameId;
+
+    @Column(name = "sum_score", nullable = false)
+    private Long sumScore = 0L;
+
+    @Column(name = "num_ratings", nullable = false)
+    private Long numRatings = 0L;
+
+    @Column(name = "min_score")
+    private Integer minScore;
+
+    @Column(name = "max_score")
+    private Integer maxScore;
+
+    @Convert(converter = IntArrayConverter.class)
+    @Column(name = "histogram", columnDefinition = "varbinary")
+    private int[] histogram = new int[HISTOGRAM_MAX_SCORE - HISTOGRAM_MIN_SCORE + 1];
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public GameRatingStats() {
+    }
+
+    public GameRatingStats(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public Long getSumScore() {
+        return sumScore;
+    }
+
+    public void setSumScore(Long sumScore) {
+        this.sumScore = sumScore;
+    }
+
+    public Long getNumRatings() {
+        return numRatings;
+    }
+
+    public void setNumRatings(Long numRatings) {
+        this.numRatings = numRatings;
+    }
+
+    public Integer getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(Integer minScore) {
+        this.minScore = minScore;
+    }
+
+    public Integer getMaxScore() {
+        return maxScore;
+    }
+
+    public void setMaxScore(Integer maxScore) {
+        this.maxScore = maxScore;
+    }
+
+    /**
+     * @return the number of ratings of each score, from {@link #HISTOGRAM_MIN_SCORE} to {@link #HISTOGRAM_MAX_SCORE}
+     * (scores out of that range are counted with the nearest one), or null if it has not been computed yet
+     */
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Replace the histogram. Changes made in place may go unnoticed when the entity is flushed, so a modified
+     * histogram must be a new array.
+     *
+     * @param histogram the number of ratings of each score
+     */
+    public void setHistogram(int[] histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * @param score a score
+     * @return the index of the histogram bucket counting that score
+     */
+    public static int bucketOf(int score) {
+        return Math.max(HISTOGRAM_MIN_SCORE, Math.min(HISTOGRAM_MAX_SCORE, score)) - HISTOGRAM_MIN_SCORE;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the average score, or null if the game has no ratings (same as AVG over no rows)
+     */
+    public Double getAverage() {
+        if (numRatings == 0) {
+            return null;
+        }
+        return (double) sumScore / numRatings;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GameRatingStats gameRatingStats = (GameRatingStats) o;
+        if (gameRatingStats.gameId == null || gameId == null) {
+            return false;
+        }
+        return Objects.equals(gameId, gameRatingStats.gameId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(gameId);
+    }
+
+    @Override
+    public String toString() {
+        return "GameRatingStats{" +
+            "gameId=" + gameId +
+            ", sumScore='" + sumScore + "'" +
+            ", numRatings='" + numRatings + "'" +
+            ", minScore='" + minScore + "'" +
+            ", maxScore='" + maxScore + "'" +
+            ", histogram='" + Arrays.toString(histogram) + "'" +
+            '}';
+    }
+}
@@ -2,6 +2,9 @@ package com.stucom.basketball.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.io.Serializable;
 import java.time.LocalDate;
@@ -16,6 +19,7 @@ import com.stucom.basketball.domain.enumeration.Position;
  */
 @Entity
 @Table(name = "player")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 public class Player implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -24,6 +28,10 @@ public class Player implements Serializable {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @Column(name = "name")
     private String name;
 
@@ -46,7 +54,7 @@ public class Player implements Serializable {
     @Column(name = "position")
     private Position position;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Team team;
 
     @OneToMany(mappedBy = "player")
@@ -61,6 +69,14 @@ public class Player implements Serializable {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,80 @@
+package com.stucom.basketball.domain;
+
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Number of users having a Player as favourite.
+ *
+ * <p>
+ * Maintained in the same transaction as every FavouritePlayer write, with an atomic increment or
+ * decrement, so the most favourited players can be read from an index instead of grouping favourite_player.
+ * </p>
+ */
+@Entity
+@Table(name = "player_favourite_count")
+public class PlayerFavouriteCount implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "player_id")
+    private Long playerId;
+
+    @Column(name = "favourite_count", nullable = false)
+    private Long favouriteCount = 0L;
+
+    public PlayerFavouriteCount() {
+    }
+
+    public PlayerFavouriteCount(Long playerId, Long favouriteCount) {
+        this.playerId = playerId;
+        this.favouriteCount = favouriteCount;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(Long playerId) {
+        this.playerId = playerId;
+    }
+
+    public Long getFavouriteCount() {
+        return favouriteCount;
+    }
+
+    public void setFavouriteCount(Long favouriteCount) {
+        this.favouriteCount = favouriteCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PlayerFavouriteCount playerFavouriteCount = (PlayerFavouriteCount) o;
+        if (playerFavouriteCount.playerId == null || playerId == null) {
+            return false;
+        }
+        return Objects.equals(playerId, playerFavouriteCount.playerId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(playerId);
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerFavouriteCount{" +
+            "playerId=" + playerId +
+            ", favouriteCount='" + favouriteCount + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,141 @@
+package com.stucom.basketball.domain;
+
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Record of a Team over its finished games.
+ *
+ * <p>
+ * Maintained in the same transaction as every Game write, by removing the previous result of the game and adding
+ * its new one with atomic updates, so the standings are read from this table instead of grouping the games.
+ * A finished game is a game with a finish time and both scores; a tie counts as played, but neither as a win nor as
+ * a loss. The streak is the number of consecutive wins (positive) or losses (negative) of the latest games.
+ * </p>
+ */
+@Entity
+@Table(name = "team_standing")
+public class TeamStanding implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    @Column(name = "played", nullable = false)
+    private Integer played = 0;
+
+    @Column(name = "wins", nullable = false)
+    private Integer wins = 0;
+
+    @Column(name = "losses", nullable = false)
+    private Integer losses = 0;
+
+    @Column(name = "points_for", nullable = false)
+    private Integer pointsFor = 0;
+
+    @Column(name = "points_against", nullable = false)
+    private Integer pointsAgainst = 0;
+
+    @Column(name = "streak", nullable = false)
+    private Integer streak = 0;
+
+    public TeamStanding() {
+    }
+
+    public TeamStanding(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Integer getPlayed() {
+        return played;
+    }
+
+    public void setPlayed(Integer played) {
+        this.played = played;
+    }
+
+    public Integer getWins() {
+        return wins;
+    }
+
+    public void setWins(Integer wins) {
+        this.wins = wins;
+    }
+
+    public Integer getLosses() {
+        return losses;
+    }
+
+    public void setLosses(Integer losses) {
+        this.losses = losses;
+    }
+
+    public Integer getPointsFor() {
+        return pointsFor;
+    }
+
+    public void setPointsFor(Integer pointsFor) {
+        this.pointsFor = pointsFor;
+    }
+
+    public Integer getPointsAgainst() {
+        return pointsAgainst;
+    }
+
+    public void setPointsAgainst(Integer pointsAgainst) {
+        this.pointsAgainst = pointsAgainst;
+    }
+
+    public Integer getStreak() {
+        return streak;
+    }
+
+    public void setStreak(Integer streak) {
+        this.streak = streak;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TeamStanding teamStanding = (TeamStanding) o;
+        if (teamStanding.teamId == null || teamId == null) {
+            return false;
+        }
+        return Objects.equals(teamId, teamStanding.teamId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(teamId);
+    }
+
+    @Override
+    public String toString() {
+        return "TeamStanding{" +
+            "teamId=" + teamId +
+            ", played='" + played + "'" +
+            ", wins='" + wins + "'" +
+            ", losses='" + losses + "'" +
+            ", pointsFor='" + pointsFor + "'" +
+            ", pointsAgainst='" + pointsAgainst + "'" +
+            ", streak='" + streak + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,8 @@
+package com.stucom.basketball.domain.enumeration;
+
+/**
+ * The GameEventType enumeration: what a player did in a play of a game.
+ */
+public enum GameEventType {
+    BASKET,ASSIST,REBOUND
+}
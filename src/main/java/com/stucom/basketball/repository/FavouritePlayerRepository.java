@@ -1,10 +1,17 @@
 package com.stucom.basketball.repository;
 
 import com.stucom.basketball.domain.FavouritePlayer;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.User;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Spring Data JPA repository for the FavouritePlayer entity.
@@ -12,11 +19,49 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface FavouritePlayerRepository extends JpaRepository<FavouritePlayer,Long> {
 
+    /**
+     * A page of the favouritePlayers with its user and its player with its team, read in the same statement.
+     */
+    @Override
+    @EntityGraph(FavouritePlayer.WITH_USER_AND_PLAYER)
+    Page<FavouritePlayer> findAll(Pageable pageable);
+
+    /**
+     * The favouritePlayer with its user and its player with its team, read in the same statement.
+     */
+    @Override
+    @EntityGraph(FavouritePlayer.WITH_USER_AND_PLAYER)
+    FavouritePlayer findOne(Long id);
+
+    /**
+     * A page of the favouritePlayers without counting them: reads one row more than the page size to tell if there is a next page.
+     */
+    @EntityGraph(FavouritePlayer.WITH_USER_AND_PLAYER)
+    @Query("select favouritePlayer from FavouritePlayer favouritePlayer")
+    Slice<FavouritePlayer> findSlice(Pageable pageable);
+
     @Query("select favouritePlayer from FavouritePlayer favouritePlayer where favouritePlayer.user.login = ?#{principal.username}")
     List<FavouritePlayer> findByUserIsCurrentUser();
 
-    @Query("select favouritePlayer.player, count(favouritePlayer) from FavouritePlayer favouritePlayer " +
-           "group by favouritePlayer.player order by count(favouritePlayer) desc ")
-    List<Object[]> findTopPlayers();
+    @EntityGraph(FavouritePlayer.WITH_USER_AND_PLAYER)
+    Optional<FavouritePlayer> findOneByUserAndPlayer(User user, Player player);
+
+    @Query("select favouritePlayer.player.id from FavouritePlayer favouritePlayer " +
+           "where favouritePlayer.user.login = :login and favouritePlayer.player is not null")
+    List<Long> findPlayerIdsByUserLogin(@Param("login") String login);
+
+    @Query("select favouritePlayer.player.id from FavouritePlayer favouritePlayer " +
+           "where favouritePlayer.user.id = :userId and favouritePlayer.player is not null")
+    List<Long> findPlayerIdsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Rows of [playerId, count] of every player with favourites.
+     */
+    @Query("select favouritePlayer.player.id, count(favouritePlayer) from FavouritePlayer favouritePlayer " +
+           "where favouritePlayer.player is not null group by favouritePlayer.player.id")
+    List<Object[]> countFavouritesByPlayer();
+
+    @Query("select count(favouritePlayer) from FavouritePlayer favouritePlayer where favouritePlayer.player.id = :playerId")
+    long countByPlayerId(@Param("playerId") Long playerId);
 
 }
@@ -0,0 +1,99 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.domain.enumeration.GameEventType;
+import com.stucom.basketball.service.dto.GameEventDTO;
+import com.stucom.basketball.service.dto.PlayerStatsDTO;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * JDBC access to the game_event table.
+ *
+ * <p>
+ * The events are only ever inserted, in JDBC batches, and read in seq order from the (game_id, seq) primary key:
+ * neither needs entities.
+ * </p>
+ */
+@Repository
+public class GameEventJdbcRepository {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param gameId the id of a game
+     * @return the seq of the last event of the game, 0 if it has none
+     */
+    public long findLastSeq(long gameId) {
+        return jdbcTemplate.queryForObject("select coalesce(max(seq), 0) from game_event where game_id = ?",
+            Long.class, gameId);
+    }
+
+    /**
+     * @param gameId the id of a game
+     * @param since the seq of the last event already read, 0 to read from the first one
+     * @param limit the maximum number of events to return
+     * @return the events of the game after the given seq, in seq order
+     */
+    public List<GameEventDTO> findSince(long gameId, long since, int limit) {
+        return jdbcTemplate.query(
+            "select seq, event_type, player_id, team_id, points, event_time from game_event " +
+            "where game_id = ? and seq > ? order by seq limit ?",
+            (rs, rowNum) -> new GameEventDTO(rs.getLong(1), GameEventType.valueOf(rs.getString(2)), rs.getLong(3),
+                rs.getLong(4), rs.getInt(5), ZonedDateTime.ofInstant(rs.getTimestamp(6).toInstant(), ZoneId.systemDefault())),
+            gameId, since, limit);
+    }
+
+    /**
+     * @param gameId the id of a game
+     * @return the numbers of baskets, assists and rebounds of each player in the events of the game
+     */
+    public List<PlayerStatsDTO> findStatsOfGame(long gameId) {
+        return jdbcTemplate.query(
+            "select player_id, sum(case when event_type = 'BASKET' then 1 else 0 end), " +
+            "sum(case when event_type = 'ASSIST' then 1 else 0 end), " +
+            "sum(case when event_type = 'REBOUND' then 1 else 0 end) " +
+            "from game_event where game_id = ? group by player_id",
+            (rs, rowNum) -> new PlayerStatsDTO(rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getInt(4)),
+            gameId);
+    }
+
+    /**
+     * Insert events of a game.
+     *
+     * @param gameId the id of the game
+     * @param events the events, with their seq, type, player, team, points and time
+     */
+    public void insert(long gameId, List<GameEventDTO> events) {
+        jdbcTemplate.batchUpdate(
+            "insert into game_event (game_id, seq, event_type, player_id, team_id, points, event_time) " +
+            "values (?, ?, ?, ?, ?, ?, ?)",
+            events, BATCH_SIZE, (ps, event) -> {
+                ps.setLong(1, gameId);
+                ps.setLong(2, event.getSeq());
+                ps.setString(3, event.getType().name());
+                ps.setLong(4, event.getPlayerId());
+                ps.setLong(5, event.getTeamId());
+                ps.setInt(6, event.getPoints());
+                ps.setTimestamp(7, Timestamp.from(event.getEventTime().toInstant()));
+            });
+    }
+
+    /**
+     * Delete the events of a game, before the game itself is deleted.
+     *
+     * @param gameId the id of the game
+     */
+    public void deleteGame(long gameId) {
+        jdbcTemplate.update("delete from game_event where game_id = ?", gameId);
+    }
+}
@@ -0,0 +1,78 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.domain.GameRating;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * JDBC access to the game_rating table, for the writes that Hibernate cannot express in one statement.
+ *
+ * <p>
+ * A rating is upserted on the unique (user_id, game_id) index: MERGE on H2, INSERT ... ON DUPLICATE KEY UPDATE
+ * on MySQL. Concurrent writers of the same pair then update one row instead of inserting two.
+ * </p>
+ */
+@Repository
+public class GameRatingJdbcRepository {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String H2_UPSERT_SCORE =
+        "merge into game_rating (user_id, game_id, score, score_date_time) key (user_id, game_id) values (?, ?, ?, ?)";
+
+    private static final String MYSQL_UPSERT_SCORE =
+        "insert into game_rating (user_id, game_id, score, score_date_time) values (?, ?, ?, ?) " +
+        "on duplicate key update score = values(score), score_date_time = values(score_date_time)";
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    private String upsertScore;
+
+    @PostConstruct
+    public void init() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+            connection.getMetaData().getDatabaseProductName());
+        if ("H2".equals(database)) {
+            upsertScore = H2_UPSERT_SCORE;
+        } else if ("MySQL".equals(database)) {
+            upsertScore = MYSQL_UPSERT_SCORE;
+        } else {
+            throw new IllegalStateException("Rating upserts are only supported on H2 and MySQL, not on " + database);
+        }
+    }
+
+    /**
+     * Insert the rating of a user for a game, or replace its score if there is one.
+     *
+     * @param rating the rating, with the ids of its user and game, a score and a date
+     */
+    public void saveScore(GameRating rating) {
+        jdbcTemplate.update(upsertScore, ps -> setScore(ps, rating));
+    }
+
+    /**
+     * Same as {@link #saveScore(GameRating)}, for many ratings in JDBC batches.
+     *
+     * @param ratings the ratings to write
+     */
+    public void saveScores(List<GameRating> ratings) {
+        jdbcTemplate.batchUpdate(upsertScore, ratings, BATCH_SIZE, this::setScore);
+    }
+
+    private void setScore(PreparedStatement ps, GameRating rating) throws SQLException {
+        ps.setLong(1, rating.getUser().getId());
+        ps.setLong(2, rating.getGame().getId());
+        ps.setObject(3, rating.getScore());
+        ps.setTimestamp(4, Timestamp.from(rating.getScoreDateTime().toInstant()));
+    }
+}
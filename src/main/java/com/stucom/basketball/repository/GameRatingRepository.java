@@ -4,10 +4,14 @@ import com.stucom.basketball.domain.Game;
 import com.stucom.basketball.domain.GameRating;
 
 import com.stucom.basketball.domain.User;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +21,27 @@ import java.util.Optional;
 @SuppressWarnings("unused")
 public interface GameRatingRepository extends JpaRepository<GameRating,Long> {
 
+    /**
+     * A page of the gameRatings with its user and its game with its teams, read in the same statement.
+     */
+    @Override
+    @EntityGraph(GameRating.WITH_USER_AND_GAME)
+    Page<GameRating> findAll(Pageable pageable);
+
+    /**
+     * The gameRating with its user and its game with its teams, read in the same statement.
+     */
+    @Override
+    @EntityGraph(GameRating.WITH_USER_AND_GAME)
+    GameRating findOne(Long id);
+
+    /**
+     * A page of the gameRatings without counting them: reads one row more than the page size to tell if there is a next page.
+     */
+    @EntityGraph(GameRating.WITH_USER_AND_GAME)
+    @Query("select gameRating from GameRating gameRating")
+    Slice<GameRating> findSlice(Pageable pageable);
+
     @Query("select gameRating from GameRating gameRating where gameRating.user.login = ?#{principal.username}")
     List<GameRating> findByUserIsCurrentUser();
 
@@ -35,12 +60,55 @@ public interface GameRatingRepository extends JpaRepository<GameRating,Long> {
         "group by gameRating.game order by count(gameRaing) desc")
     List<Object[]> findTopGameRatings(Pageable pageable);
      */
-    //Se crea la query que ordena los juegos por Score paginados
-    List<GameRating> findAllByOrderByScoreDesc(Pageable pageable);
-
     //Creamos la consulta para saber si un user ha votado a un game.
     Optional<GameRating> findByUserAndGame(User user, Game game);
 
+    /**
+     * Rows of [gameId, score] of a rating, locked for the rest of the transaction: at most one. Being a locking
+     * read, it sees the latest committed row, not the snapshot of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select gameRating.game.id, gameRating.score from GameRating gameRating where gameRating.id = :id")
+    List<Object[]> findGameIdAndScoreForUpdate(@Param("id") Long id);
+
+    /**
+     * Rows of [id, score] of the rating of a user for a game: at most one, (user_id, game_id) is unique.
+     */
+    @Query("select gameRating.id, gameRating.score from GameRating gameRating " +
+           "where gameRating.user.id = :userId and gameRating.game.id = :gameId")
+    List<Object[]> findIdAndScore(@Param("userId") Long userId, @Param("gameId") Long gameId);
+
+    /**
+     * Rows of [gameId, id, score] of the ratings of a user for some games.
+     */
+    @Query("select gameRating.game.id, gameRating.id, gameRating.score from GameRating gameRating " +
+           "where gameRating.user.id = :userId and gameRating.game.id in :gameIds")
+    List<Object[]> findIdAndScoreOfGames(@Param("userId") Long userId, @Param("gameIds") Collection<Long> gameIds);
+
+    /**
+     * Rows of [userId, gameId, score, scoreDateTime] of the ratings of some users for some games: a superset of the ratings of
+     * the (user, game) pairs of a batch, read on the unique (user_id, game_id) index.
+     */
+    @Query("select gameRating.user.id, gameRating.game.id, gameRating.score, gameRating.scoreDateTime from GameRating gameRating " +
+           "where gameRating.user.id in :userIds and gameRating.game.id in :gameIds")
+    List<Object[]> findScoresOfUsersAndGames(@Param("userIds") Collection<Long> userIds, @Param("gameIds") Collection<Long> gameIds);
+
+    /**
+     * Rows of [gameId, score, count] of every score given to every rated game.
+     */
+    @Query("select gameRating.game.id, gameRating.score, count(gameRating) " +
+           "from GameRating gameRating where gameRating.game is not null and gameRating.score is not null " +
+           "group by gameRating.game.id, gameRating.score")
+    List<Object[]> countScoresByGame();
+
+    /**
+     * Same as {@link #countScoresByGame()}, restricted to one game: served by the (game_id, score) index.
+     */
+    @Query("select gameRating.game.id, gameRating.score, count(gameRating) " +
+           "from GameRating gameRating where gameRating.game.id = :gameId and gameRating.score is not null " +
+           "group by gameRating.game.id, gameRating.score")
+    List<Object[]> countScoresOfGame(@Param("gameId") Long gameId);
+
 }
 
 
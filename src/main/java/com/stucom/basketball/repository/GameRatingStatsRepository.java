@@ -0,0 +1,20 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.domain.GameRatingStats;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring Data JPA repository for the GameRatingStats entity.
+ */
+@SuppressWarnings("unused")
+public interface GameRatingStatsRepository extends JpaRepository<GameRatingStats,Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select gameRatingStats from GameRatingStats gameRatingStats where gameRatingStats.gameId = :gameId")
+    GameRatingStats findOneForUpdate(@Param("gameId") Long gameId);
+
+}
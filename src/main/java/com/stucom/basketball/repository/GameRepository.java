@@ -2,8 +2,17 @@ package com.stucom.basketball.repository;
 
 import com.stucom.basketball.domain.Game;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +21,131 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface GameRepository extends JpaRepository<Game,Long> {
 
+    /**
+     * A page of the games with its teams, read in the same statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"localTeam", "visitorTeam"})
+    Page<Game> findAll(Pageable pageable);
+
+    /**
+     * The game with its teams, read in the same statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"localTeam", "visitorTeam"})
+    Game findOne(Long id);
+
+    /**
+     * The games of the given ids with their teams, read in the same statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"localTeam", "visitorTeam"})
+    List<Game> findAll(Iterable<Long> ids);
+
+    /**
+     * A page of the games without counting them: reads one row more than the page size to tell if there is a next page.
+     */
+    @EntityGraph(attributePaths = {"localTeam", "visitorTeam"})
+    @Query("select game from Game game")
+    Slice<Game> findSlice(Pageable pageable);
+
+    /**
+     * The ids, among the given ones, of the games that exist.
+     */
+    @Query("select game.id from Game game where game.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * The version of the game, null if there is no such game.
+     */
+    @Query("select game.version from Game game where game.id = :id")
+    Long findVersion(@Param("id") Long id);
+
+    /**
+     * Add to the scores of a game in one statement, without reading it first. The version is incremented, so a
+     * concurrent PUT of the game read before fails instead of overwriting the new scores.
+     *
+     * @return the number of rows updated, 0 if there is no such game
+     */
+    @Modifying
+    @Query("update Game game set game.localScore = coalesce(game.localScore, 0) + :localPoints, " +
+           "game.visitorScore = coalesce(game.visitorScore, 0) + :visitorPoints, " +
+           "game.version = game.version + 1 " +
+           "where game.id = :id")
+    int addToScores(@Param("id") Long id, @Param("localPoints") int localPoints, @Param("visitorPoints") int visitorPoints);
+
+    /**
+     * Lock a game for the rest of the transaction, like {@link #addToScores} does, without changing it.
+     *
+     * @return the id of the game, none if there is no such game
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select game.id from Game game where game.id = :id")
+    List<Long> findIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Rows of [localScore, visitorScore, version] of the game, none if there is no such game.
+     */
+    @Query("select game.localScore, game.visitorScore, game.version from Game game where game.id = :id")
+    List<Object[]> findScores(@Param("id") Long id);
+
+    /**
+     * The day the game starts, null if it has none or there is no such game. Changes to the game not flushed yet are
+     * not flushed first: this reads the day before them.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("select game.startTime from Game game where game.id = :id")
+    LocalDate findStartTime(@Param("id") Long id);
+
+    /**
+     * Rows of [id, name, startTime, finishTime, localTeam id, visitorTeam id, localScore, visitorScore] of the games
+     * starting between two days (included), read from the (start_time, id) index, in (startTime, id) order.
+     */
+    @Query("select game.id, game.name, game.startTime, game.finishTime, localTeam.id, visitorTeam.id, " +
+           "game.localScore, game.visitorScore " +
+           "from Game game left join game.localTeam localTeam left join game.visitorTeam visitorTeam " +
+           "where game.startTime between :from and :to order by game.startTime, game.id")
+    List<Object[]> findSchedule(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Rows of [localTeam id, visitorTeam id, localScore, visitorScore, finishTime, version] of the game, none if
+     * there is no such game. Changes to the game not flushed yet are not flushed first: this reads the result before
+     * them.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("select game.localTeam.id, game.visitorTeam.id, game.localScore, game.visitorScore, game.finishTime, " +
+           "game.version from Game game where game.id = :id")
+    List<Object[]> findResult(@Param("id") Long id);
+
+    /**
+     * Rows of [localTeam id, visitorTeam id, localScore, visitorScore, finishTime] of the finished games of a team,
+     * latest first.
+     */
+    @Query("select game.localTeam.id, game.visitorTeam.id, game.localScore, game.visitorScore, game.finishTime " +
+           "from Game game where (game.localTeam.id = :teamId or game.visitorTeam.id = :teamId) " +
+           "and game.finishTime is not null and game.localScore is not null and game.visitorScore is not null " +
+           "order by game.finishTime desc, game.id desc")
+    List<Object[]> findLatestResultsOfTeam(@Param("teamId") Long teamId, Pageable pageable);
+
+    /**
+     * Rows of [localTeam id, visitorTeam id, localScore, visitorScore, finishTime] of the finished games between two
+     * teams, read from the (local_team_id, visitor_team_id, finish_time) index, once per ordering of the teams.
+     */
+    @Query("select game.localTeam.id, game.visitorTeam.id, game.localScore, game.visitorScore, game.finishTime " +
+           "from Game game where ((game.localTeam.id = :teamId and game.visitorTeam.id = :opponentId) " +
+           "or (game.localTeam.id = :opponentId and game.visitorTeam.id = :teamId)) " +
+           "and game.finishTime is not null and game.localScore is not null and game.visitorScore is not null")
+    List<Object[]> findResultsBetween(@Param("teamId") Long teamId, @Param("opponentId") Long opponentId);
+
+    /**
+     * Rows of [localTeam id, visitorTeam id, localScore, visitorScore, finishTime, id, version] of all the finished
+     * games, oldest first.
+     */
+    @Query("select game.localTeam.id, game.visitorTeam.id, game.localScore, game.visitorScore, game.finishTime, game.id, " +
+           "game.version " +
+           "from Game game where game.localTeam is not null and game.visitorTeam is not null " +
+           "and game.finishTime is not null and game.localScore is not null and game.visitorScore is not null " +
+           "order by game.finishTime, game.id")
+    List<Object[]> findAllResults();
+
 }
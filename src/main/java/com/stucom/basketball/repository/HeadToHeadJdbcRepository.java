@@ -0,0 +1,116 @@
+package com.stucom.basketball.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * JDBC access to the head_to_head table.
+ *
+ * <p>
+ * A record is keyed by its pair of teams, lowest team id first, and read or written as
+ * [games, low team wins, high team wins, margin sum], the margin being the points of the low team minus the points
+ * of the high team. A record is read with one primary key lookup, whichever team is asked about first.
+ * </p>
+ */
+@Repository
+public class HeadToHeadJdbcRepository {
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param lowTeamId the lowest id of the pair
+     * @param highTeamId the highest id of the pair
+     * @return the record of the pair, null if the teams never met
+     */
+    public int[] findRecord(long lowTeamId, long highTeamId) {
+        List<int[]> records = jdbcTemplate.query(
+            "select games, low_team_wins, high_team_wins, margin_sum from head_to_head " +
+            "where low_team_id = ? and high_team_id = ?",
+            (rs, rowNum) -> new int[] {rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4)},
+            lowTeamId, highTeamId);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    /**
+     * Lock the record of a pair until the end of the transaction, so it is counted again without a write of a
+     * game between the teams running at the same time.
+     *
+     * @param lowTeamId the lowest id of the pair
+     * @param highTeamId the highest id of the pair
+     */
+    public void lockRecord(long lowTeamId, long highTeamId) {
+        jdbcTemplate.queryForList("select games from head_to_head where low_team_id = ? and high_team_id = ? for update",
+            Integer.class, lowTeamId, highTeamId);
+    }
+
+    /**
+     * @return the rows of [low team id, high team id, games, low team wins, high team wins, margin sum] of all the
+     * records
+     */
+    public List<long[]> findAll() {
+        return jdbcTemplate.query(
+            "select low_team_id, high_team_id, games, low_team_wins, high_team_wins, margin_sum from head_to_head",
+            (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getInt(6)});
+    }
+
+    /**
+     * Add to the record of a pair in one statement, creating it if the teams never met.
+     *
+     * @param lowTeamId the lowest id of the pair
+     * @param highTeamId the highest id of the pair
+     * @param delta the values to add, as [games, low team wins, high team wins, margin sum]
+     */
+    public void addToRecord(long lowTeamId, long highTeamId, int[] delta) {
+        int updated = jdbcTemplate.update(
+            "update head_to_head set games = games + ?, low_team_wins = low_team_wins + ?, " +
+            "high_team_wins = high_team_wins + ?, margin_sum = margin_sum + ? " +
+            "where low_team_id = ? and high_team_id = ?",
+            delta[0], delta[1], delta[2], delta[3], lowTeamId, highTeamId);
+        if (updated == 0) {
+            try {
+                insert(lowTeamId, highTeamId, delta);
+            } catch (DuplicateKeyException e) {
+                // The first game between the teams, written at the same time by another transaction
+                addToRecord(lowTeamId, highTeamId, delta);
+            }
+        }
+    }
+
+    /**
+     * Overwrite the record of a pair, creating it if it does not exist.
+     *
+     * @param lowTeamId the lowest id of the pair
+     * @param highTeamId the highest id of the pair
+     * @param record the values, as [games, low team wins, high team wins, margin sum]
+     */
+    public void setRecord(long lowTeamId, long highTeamId, int[] record) {
+        int updated = jdbcTemplate.update(
+            "update head_to_head set games = ?, low_team_wins = ?, high_team_wins = ?, margin_sum = ? " +
+            "where low_team_id = ? and high_team_id = ?",
+            record[0], record[1], record[2], record[3], lowTeamId, highTeamId);
+        if (updated == 0) {
+            insert(lowTeamId, highTeamId, record);
+        }
+    }
+
+    /**
+     * Delete the records of a team, before the team itself is deleted.
+     *
+     * @param teamId the id of the team
+     */
+    public void deleteTeam(long teamId) {
+        jdbcTemplate.update("delete from head_to_head where low_team_id = ? or high_team_id = ?", teamId, teamId);
+    }
+
+    private void insert(long lowTeamId, long highTeamId, int[] record) {
+        jdbcTemplate.update(
+            "insert into head_to_head (low_team_id, high_team_id, games, low_team_wins, high_team_wins, margin_sum) " +
+            "values (?, ?, ?, ?, ?, ?)",
+            lowTeamId, highTeamId, record[0], record[1], record[2], record[3]);
+    }
+}
@@ -0,0 +1,148 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.KeysetPage;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.FetchParent;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset (seek) pagination of any entity with a Long "id", sorted on one property then on the id.
+ *
+ * <p>
+ * A page is read with "where (property, id) is after the cursor order by property, id limit size + 1": with an
+ * index on (property, id) every page costs the same as the first one. There is no count query; the extra row
+ * tells whether there is a next page. Null values come first in ascending order and last in descending order,
+ * as in H2 and MySQL. The to-one associations given as fetches are read in the same statement, with left joins.
+ * </p>
+ */
+@Repository
+public class KeysetRepository {
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * @param domainClass the entity class
+     * @param cursor the position of the page
+     * @param size the maximum number of rows of the page
+     * @param fetches the associations to read with the rows, as paths such as "game" or "game.localTeam"
+     * @param <T> the entity type
+     * @return the page, with the cursor of the next page if there is one
+     * @throws IllegalArgumentException if the cursor value cannot be read as a value of the sort property
+     */
+    public <T> KeysetPage<T> findPage(Class<T> domainClass, KeysetCursor cursor, int size, String... fetches) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        fetch(root, fetches);
+        boolean ascending = cursor.getDirection() == Sort.Direction.ASC;
+        Path<Long> id = root.get(KeysetCursor.ID);
+        List<Order> orders = new ArrayList<>();
+        if (KeysetCursor.ID.equals(cursor.getProperty())) {
+            if (!cursor.isFirst()) {
+                query.where(ascending ? cb.greaterThan(id, cursor.getId()) : cb.lessThan(id, cursor.getId()));
+            }
+        } else {
+            Path<Comparable<Object>> key = root.get(cursor.getProperty());
+            if (!cursor.isFirst()) {
+                query.where(after(cb, key, id, cursor, ascending));
+            }
+            orders.add(ascending ? cb.asc(key) : cb.desc(key));
+        }
+        orders.add(ascending ? cb.asc(id) : cb.desc(id));
+        query.select(root).orderBy(orders);
+
+        List<T> content = em.createQuery(query).setMaxResults(size + 1).getResultList();
+        KeysetCursor next = null;
+        if (content.size() > size) {
+            content = new ArrayList<>(content.subList(0, size));
+            BeanWrapperImpl last = new BeanWrapperImpl(content.get(size - 1));
+            next = cursor.after(last.getPropertyValue(cursor.getProperty()), (Long) last.getPropertyValue(KeysetCursor.ID));
+        }
+        return new KeysetPage<>(content, cursor, size, next);
+    }
+
+    private static void fetch(Root<?> root, String... paths) {
+        // One join per association, even when it is the parent of several paths
+        Map<String, FetchParent<?, ?>> fetched = new HashMap<>();
+        for (String path : paths) {
+            FetchParent<?, ?> parent = root;
+            String prefix = "";
+            for (String attribute : path.split("\\.")) {
+                prefix = prefix + "." + attribute;
+                FetchParent<?, ?> fetch = fetched.get(prefix);
+                if (fetch == null) {
+                    fetch = parent.fetch(attribute, JoinType.LEFT);
+                    fetched.put(prefix, fetch);
+                }
+                parent = fetch;
+            }
+        }
+    }
+
+    private Predicate after(CriteriaBuilder cb, Path<Comparable<Object>> key, Path<Long> id, KeysetCursor cursor,
+                            boolean ascending) {
+        Long lastId = cursor.getId();
+        Predicate sameKeyAfterId = ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+        if (cursor.getValue() == null) {
+            // Nulls come first: ascending, all the non-null values follow; descending, nothing follows them
+            Predicate nullAfterId = cb.and(cb.isNull(key), sameKeyAfterId);
+            return ascending ? cb.or(nullAfterId, cb.isNotNull(key)) : nullAfterId;
+        }
+        Comparable<Object> value = convert(cursor.getValue(), key.getJavaType());
+        Predicate sameKey = cb.and(cb.equal(key, value), sameKeyAfterId);
+        if (ascending) {
+            return cb.or(cb.greaterThan(key, value), sameKey);
+        }
+        return cb.or(cb.lessThan(key, value), sameKey, cb.isNull(key));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable<Object> convert(String value, Class<?> type) {
+        try {
+            if (type == String.class) {
+                return (Comparable) value;
+            } else if (type == Long.class) {
+                return (Comparable) Long.valueOf(value);
+            } else if (type == Integer.class) {
+                return (Comparable) Integer.valueOf(value);
+            } else if (type == Double.class) {
+                return (Comparable) Double.valueOf(value);
+            } else if (type == BigDecimal.class) {
+                return (Comparable) new BigDecimal(value);
+            } else if (type == LocalDate.class) {
+                return (Comparable) LocalDate.parse(value);
+            } else if (type == ZonedDateTime.class) {
+                return (Comparable) ZonedDateTime.parse(value);
+            } else if (type == Instant.class) {
+                return (Comparable) Instant.parse(value);
+            } else if (type.isEnum()) {
+                return (Comparable) Enum.valueOf((Class<Enum>) type, value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor value " + value, e);
+        }
+        throw new IllegalArgumentException("Cannot page on a property of type " + type.getName());
+    }
+}
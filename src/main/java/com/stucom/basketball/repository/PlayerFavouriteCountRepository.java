@@ -0,0 +1,42 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.domain.PlayerFavouriteCount;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the PlayerFavouriteCount entity.
+ */
+@SuppressWarnings("unused")
+public interface PlayerFavouriteCountRepository extends JpaRepository<PlayerFavouriteCount,Long> {
+
+    /**
+     * Add to the count of a player in one statement, without reading it first.
+     *
+     * @return the number of rows updated, 0 if the player has no count yet
+     */
+    @Modifying
+    @Query("update PlayerFavouriteCount playerFavouriteCount set playerFavouriteCount.favouriteCount = playerFavouriteCount.favouriteCount + :delta " +
+           "where playerFavouriteCount.playerId = :playerId")
+    int addToCount(@Param("playerId") Long playerId, @Param("delta") long delta);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select playerFavouriteCount from PlayerFavouriteCount playerFavouriteCount where playerFavouriteCount.playerId = :playerId")
+    PlayerFavouriteCount findOneForUpdate(@Param("playerId") Long playerId);
+
+    /**
+     * Rows of [player, count] of the players with favourites, most favourited first, read from the count index
+     * with the team of each player.
+     */
+    @Query("select player, playerFavouriteCount.favouriteCount from PlayerFavouriteCount playerFavouriteCount, Player player " +
+           "left join fetch player.team " +
+           "where player.id = playerFavouriteCount.playerId and playerFavouriteCount.favouriteCount > 0 " +
+           "order by playerFavouriteCount.favouriteCount desc, playerFavouriteCount.playerId desc")
+    List<Object[]> findTopPlayers(Pageable pageable);
+
+}
@@ -0,0 +1,33 @@
+package com.stucom.basketball.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+
+/**
+ * JDBC access to the player table, for the writes that must not go through a JPQL bulk update: Hibernate empties
+ * the whole second level cache region of the entity after each of those.
+ */
+@Repository
+public class PlayerJdbcRepository {
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Add to the stats of a player in one statement, without reading it first. The version is incremented, so
+     * a concurrent PUT of the player read before fails instead of overwriting the new totals.
+     * <p>
+     * The cached player is left as it was: the caller evicts it.
+     * </p>
+     *
+     * @return the number of rows updated, 0 if there is no such player
+     */
+    public int addToStats(long id, int numBaskets, int numAssists, int numRebounds) {
+        return jdbcTemplate.update(
+            "update player set num_baskets = coalesce(num_baskets, 0) + ?, num_assists = coalesce(num_assists, 0) + ?, " +
+            "num_rebounds = coalesce(num_rebounds, 0) + ?, version = version + 1 where id = ?",
+            numBaskets, numAssists, numRebounds, id);
+    }
+}
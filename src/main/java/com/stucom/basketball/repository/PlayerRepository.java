@@ -2,8 +2,15 @@ package com.stucom.basketball.repository;
 
 import com.stucom.basketball.domain.Player;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +19,62 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface PlayerRepository extends JpaRepository<Player,Long> {
 
+    /**
+     * A page of the players with its team, read in the same statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = "team")
+    Page<Player> findAll(Pageable pageable);
+
+    /**
+     * The player with its team, read in the same statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = "team")
+    Player findOne(Long id);
+
+    /**
+     * The players of the given ids with their team, read in the same statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = "team")
+    List<Player> findAll(Iterable<Long> ids);
+
+    /**
+     * A page of the players without counting them: reads one row more than the page size to tell if there is a next page.
+     */
+    @EntityGraph(attributePaths = "team")
+    @Query("select player from Player player")
+    Slice<Player> findSlice(Pageable pageable);
+
+    /**
+     * The id of the team of the player, null if it has none or there is no such player. Changes to the player not
+     * flushed yet are not flushed first: this reads the team before them.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("select player.team.id from Player player where player.id = :id")
+    Long findTeamId(@Param("id") Long id);
+
+    /**
+     * Rows of [player, favourite count] of the players of a team, with their team, in id order. A player without
+     * a favourite count row counts null favourites.
+     */
+    @Query("select player, playerFavouriteCount.favouriteCount from Player player join fetch player.team team " +
+           "left join PlayerFavouriteCount playerFavouriteCount on playerFavouriteCount.playerId = player.id " +
+           "where team.id = :teamId order by player.id")
+    List<Object[]> findRoster(@Param("teamId") Long teamId);
+
+    /**
+     * Rows of [id, numBaskets, numAssists, numRebounds] of the players of the given ids.
+     */
+    @Query("select player.id, player.numBaskets, player.numAssists, player.numRebounds from Player player " +
+           "where player.id in :ids")
+    List<Object[]> findStats(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Rows of [id, team id] of the players, among the given ids, that exist. A player without team has a null team id.
+     */
+    @Query("select player.id, team.id from Player player left join player.team team where player.id in :ids")
+    List<Object[]> findTeamIds(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,102 @@
+package com.stucom.basketball.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC access to the player_similarity table, and to the favourites it is computed from.
+ *
+ * <p>
+ * The similarities are written as a whole by the recommendation job and the favourites are read as a stream
+ * of primitive ids, neither of which needs entities.
+ * </p>
+ */
+@Repository
+public class PlayerSimilarityJdbcRepository {
+
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * Receives the favourites of the users, one (user, player) pair at a time.
+     */
+    @FunctionalInterface
+    public interface FavouriteHandler {
+
+        void handle(long userId, long playerId);
+    }
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Read all the favourites of the users, user by user.
+     *
+     * @param handler receives the favourites, those of a user one after the other
+     */
+    public void scanFavouritesByUser(FavouriteHandler handler) {
+        jdbcTemplate.query(
+            "select user_id, player_id from favourite_player " +
+            "where user_id is not null and player_id is not null order by user_id",
+            (RowCallbackHandler) rs -> handler.handle(rs.getLong(1), rs.getLong(2)));
+    }
+
+    /**
+     * @param playerId the id of a player
+     * @param limit the maximum number of players to return
+     * @return the similar players as [similar player id, number of common favourites], most similar first
+     */
+    public List<long[]> findSimilar(long playerId, int limit) {
+        return jdbcTemplate.query(
+            "select similar_player_id, common_favourites from player_similarity " +
+            "where player_id = ? order by common_favourites desc, similar_player_id limit ?",
+            (rs, rowNum) -> new long[]{rs.getLong(1), rs.getInt(2)},
+            playerId, limit);
+    }
+
+    /**
+     * Insert similarities.
+     *
+     * @param rows the similarities as [player id, similar player id, number of common favourites]
+     */
+    public void insert(List<long[]> rows) {
+        jdbcTemplate.batchUpdate(
+            "insert into player_similarity (player_id, similar_player_id, common_favourites) values (?, ?, ?)",
+            rows, BATCH_SIZE, (ps, row) -> {
+                ps.setLong(1, row[0]);
+                ps.setLong(2, row[1]);
+                ps.setInt(3, (int) row[2]);
+            });
+    }
+
+    /**
+     * Delete the similar players of some players.
+     *
+     * @param playerIds the ids of the players
+     */
+    public void delete(Collection<Long> playerIds) {
+        jdbcTemplate.batchUpdate("delete from player_similarity where player_id = ?",
+            new ArrayList<>(playerIds), BATCH_SIZE, (ps, playerId) -> ps.setLong(1, playerId));
+    }
+
+    /**
+     * Delete all the similarities involving a player, before the player itself is deleted.
+     *
+     * @param playerId the id of the player
+     */
+    public void deletePlayer(long playerId) {
+        jdbcTemplate.update("delete from player_similarity where player_id = ? or similar_player_id = ?", playerId, playerId);
+    }
+
+    /**
+     * Delete all the similarities.
+     */
+    public void deleteAll() {
+        jdbcTemplate.update("delete from player_similarity");
+    }
+}
@@ -0,0 +1,198 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.service.util.Fields;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.AnnotatedElement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse fieldsets of any entity with a Long "id": only the requested columns are read, into maps written as the
+ * JSON of the entity restricted to the requested fields.
+ *
+ * <p>
+ * A field is a property of the entity, or a property of an entity it references, read with a left join: a
+ * reference that is null is written as null. Only the properties written in the JSON of the entity can be
+ * requested: not its collections, nor the properties ignored by Jackson.
+ * </p>
+ */
+@Repository
+public class ProjectionRepository {
+
+    private static final String ID = "id";
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * @param domainClass the entity class
+     * @param fields the fields to read
+     * @param pageable the pagination information
+     * @return a page of the fields of the entities
+     * @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the JSON of the
+     * entity
+     */
+    public Page<Map<String, Object>> findAll(Class<?> domainClass, Fields fields, Pageable pageable) {
+        List<Map<String, Object>> content = new Projection(domainClass, fields, pageable).list(pageable.getOffset(), pageable.getPageSize());
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> count = cb.createQuery(Long.class);
+        count.select(cb.count(count.from(domainClass)));
+        return new PageImpl<>(content, pageable, em.createQuery(count).getSingleResult());
+    }
+
+    /**
+     * Same as {@link #findAll(Class, Fields, Pageable)} without counting the entities: reads one row more than the
+     * page size to tell if there is a next page.
+     */
+    public Slice<Map<String, Object>> findSlice(Class<?> domainClass, Fields fields, Pageable pageable) {
+        List<Map<String, Object>> content = new Projection(domainClass, fields, pageable).list(pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, pageable.getPageSize()));
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * @param domainClass the entity class
+     * @param fields the fields to read
+     * @param id the id of the entity
+     * @return the fields of the entity, null if there is no such entity
+     * @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the JSON of the
+     * entity
+     */
+    public Map<String, Object> findOne(Class<?> domainClass, Fields fields, Long id) {
+        Projection projection = new Projection(domainClass, fields, null);
+        projection.query.where(em.getCriteriaBuilder().equal(projection.root.get(ID), id));
+        List<Map<String, Object>> content = projection.list(0, 1);
+        return content.isEmpty() ? null : content.get(0);
+    }
+
+    /**
+     * The query of the fields of an entity, with one selection per field, plus the id of each joined reference.
+     */
+    private class Projection {
+
+        private final CriteriaQuery<Tuple> query;
+
+        private final Root<?> root;
+
+        private final Fields fields;
+
+        // Index in the tuple of each field, and of the id of each joined reference
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        Projection(Class<?> domainClass, Fields fields, Pageable pageable) {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            EntityType<?> entity = em.getMetamodel().entity(domainClass);
+            this.fields = fields;
+            query = cb.createTupleQuery();
+            root = query.from(domainClass);
+            List<Selection<?>> selections = new ArrayList<>();
+            Map<String, Join<?, ?>> joins = new HashMap<>();
+            for (String path : fields) {
+                String association = Fields.associationOf(path);
+                String property = Fields.propertyOf(path);
+                if (association == null) {
+                    checkProperty(entity, property);
+                    indexes.put(path, selections.size());
+                    selections.add(root.get(property));
+                    continue;
+                }
+                Join<?, ?> join = joins.get(association);
+                if (join == null) {
+                    checkReference(entity, association);
+                    join = root.join(association, JoinType.LEFT);
+                    joins.put(association, join);
+                    indexes.put(association, selections.size());
+                    selections.add(join.get(ID));
+                }
+                checkProperty(em.getMetamodel().entity(join.getJavaType()), property);
+                indexes.put(path, selections.size());
+                selections.add(join.get(property));
+            }
+            query.multiselect(selections);
+            if (pageable != null && pageable.getSort() != null) {
+                query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+            }
+        }
+
+        List<Map<String, Object>> list(int offset, int maxResults) {
+            TypedQuery<Tuple> typedQuery = em.createQuery(query).setFirstResult(offset).setMaxResults(maxResults);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Tuple tuple : typedQuery.getResultList()) {
+                rows.add(toMap(tuple));
+            }
+            return rows;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> toMap(Tuple tuple) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String path : fields) {
+                String association = Fields.associationOf(path);
+                Object value = tuple.get(indexes.get(path));
+                if (association == null) {
+                    row.put(path, value);
+                } else if (tuple.get(indexes.get(association)) == null) {
+                    row.put(association, null);
+                } else {
+                    ((Map<String, Object>) row.computeIfAbsent(association, key -> new LinkedHashMap<>()))
+                        .put(Fields.propertyOf(path), value);
+                }
+            }
+            return row;
+        }
+    }
+
+    private static void checkProperty(ManagedType<?> type, String property) {
+        SingularAttribute<?, ?> attribute = singularAttribute(type, property);
+        if (attribute == null || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+            throw new IllegalArgumentException("Unknown field " + property);
+        }
+    }
+
+    private static void checkReference(ManagedType<?> type, String association) {
+        SingularAttribute<?, ?> attribute = singularAttribute(type, association);
+        if (attribute == null || !attribute.isAssociation()) {
+            throw new IllegalArgumentException("Unknown field " + association);
+        }
+    }
+
+    private static SingularAttribute<?, ?> singularAttribute(ManagedType<?> type, String name) {
+        for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+            if (attribute.getName().equals(name)) {
+                boolean ignored = attribute.getJavaMember() instanceof AnnotatedElement &&
+                    ((AnnotatedElement) attribute.getJavaMember()).isAnnotationPresent(JsonIgnore.class);
+                return ignored ? null : attribute;
+            }
+        }
+        return null;
+    }
+}
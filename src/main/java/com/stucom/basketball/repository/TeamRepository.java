@@ -2,7 +2,10 @@ package com.stucom.basketball.repository;
 
 import com.stucom.basketball.domain.Team;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -12,4 +15,10 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface TeamRepository extends JpaRepository<Team,Long> {
 
+    /**
+     * A page of the teams without counting them: reads one row more than the page size to tell if there is a next page.
+     */
+    @Query("select team from Team team")
+    Slice<Team> findSlice(Pageable pageable);
+
 }
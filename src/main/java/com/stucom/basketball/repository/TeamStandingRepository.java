@@ -0,0 +1,59 @@
+package com.stucom.basketball.repository;
+
+import com.stucom.basketball.domain.TeamStanding;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the TeamStanding entity.
+ */
+@SuppressWarnings("unused")
+public interface TeamStandingRepository extends JpaRepository<TeamStanding,Long> {
+
+    /**
+     * Add to the record of a team in one statement, without reading it first.
+     *
+     * @return the number of rows updated, 0 if the team has no record yet
+     */
+    @Modifying
+    @Query("update TeamStanding teamStanding set teamStanding.played = teamStanding.played + :played, " +
+           "teamStanding.wins = teamStanding.wins + :wins, teamStanding.losses = teamStanding.losses + :losses, " +
+           "teamStanding.pointsFor = teamStanding.pointsFor + :pointsFor, " +
+           "teamStanding.pointsAgainst = teamStanding.pointsAgainst + :pointsAgainst " +
+           "where teamStanding.teamId = :teamId")
+    int addToStanding(@Param("teamId") Long teamId, @Param("played") int played, @Param("wins") int wins,
+                      @Param("losses") int losses, @Param("pointsFor") int pointsFor, @Param("pointsAgainst") int pointsAgainst);
+
+    @Modifying
+    @Query("update TeamStanding teamStanding set teamStanding.streak = :streak where teamStanding.teamId = :teamId")
+    int updateStreak(@Param("teamId") Long teamId, @Param("streak") int streak);
+
+    /**
+     * Extend the streak of a team with the outcome of its latest game, in one statement on the current record
+     * rather than on the snapshot of the transaction.
+     *
+     * @param outcome 1 for a win, -1 for a loss, 0 for a tie
+     * @return the number of rows updated, 0 if the team has no record yet
+     */
+    @Modifying
+    @Query("update TeamStanding teamStanding set teamStanding.streak = :outcome + case " +
+           "when (:outcome > 0 and teamStanding.streak > 0) or (:outcome < 0 and teamStanding.streak < 0) " +
+           "then teamStanding.streak else 0 end where teamStanding.teamId = :teamId")
+    int extendStreak(@Param("teamId") Long teamId, @Param("outcome") int outcome);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select teamStanding from TeamStanding teamStanding where teamStanding.teamId = :teamId")
+    TeamStanding findOneForUpdate(@Param("teamId") Long teamId);
+
+    /**
+     * The records of all the teams, most wins first, then best point difference.
+     */
+    @Query("select teamStanding from TeamStanding teamStanding " +
+           "order by teamStanding.wins desc, teamStanding.pointsFor - teamStanding.pointsAgainst desc, teamStanding.teamId")
+    List<TeamStanding> findAllOrdered();
+
+}
@@ -0,0 +1,80 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.FavouritePlayer;
+import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.domain.GameRating;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.Team;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached number of rows of the entities, for the lists read without counting (Slice mode).
+ *
+ * <p>
+ * The entities listed in Slice mode are counted by the first run of the refresh, as the application starts,
+ * then every five minutes, so their total is at most a few minutes old and, once that first run is over, a list
+ * request does not wait on a COUNT(*). Any other entity, or a request arriving before the first run, is counted
+ * the first time its total is asked for.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class ApproximateCountService {
+
+    /** The entities listed in Slice mode, counted without waiting for their first list request */
+    private static final List<Class<?>> LISTED_ENTITIES = Arrays.asList(
+        FavouritePlayer.class, Game.class, GameRating.class, Player.class, Team.class);
+
+    private final Logger log = LoggerFactory.getLogger(ApproximateCountService.class);
+
+    private final Map<Class<?>, Long> counts = new ConcurrentHashMap<>();
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * @param domainClass the entity class
+     * @return the number of entities, as counted at most five minutes ago
+     */
+    public long count(Class<?> domainClass) {
+        Long count = counts.get(domainClass);
+        if (count == null) {
+            count = countNow(domainClass);
+            counts.put(domainClass, count);
+        }
+        return count;
+    }
+
+    /**
+     * Count again the entities listed in Slice mode and the entities whose total was asked for.
+     * <p>
+     * This is scheduled to get fired at startup, then every five minutes.
+     * </p>
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void refresh() {
+        Set<Class<?>> domainClasses = new LinkedHashSet<>(LISTED_ENTITIES);
+        domainClasses.addAll(counts.keySet());
+        for (Class<?> domainClass : domainClasses) {
+            counts.put(domainClass, countNow(domainClass));
+        }
+        log.debug("Counted {} entities", counts.size());
+    }
+
+    private long countNow(Class<?> domainClass) {
+        return em.createQuery("select count(e) from " + domainClass.getSimpleName() + " e", Long.class).getSingleResult();
+    }
+}
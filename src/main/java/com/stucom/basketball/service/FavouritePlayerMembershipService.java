@@ -0,0 +1,146 @@
+package com.stucom.basketball.service;
+
+import com.carrotsearch.hppc.LongHashSet;
+import com.stucom.basketball.repository.FavouritePlayerRepository;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory sets of the favourite players of each user, to tell whether a player is a favourite without a query.
+ *
+ * <p>
+ * The set of a user is an open-addressing hash set of primitive player ids, loaded with one query the first time
+ * the user is checked and then kept up to date as the user's favourites are committed. The sets are kept in the
+ * bounded "favouritePlayerMemberships" cache, which drops the least recently used ones.
+ * </p>
+ * <p>
+ * The query runs without holding any lock. Each committed change bumps the stamp of the user's stripe first, so
+ * a set loaded while a change of the same stripe committed is dropped instead of being kept without the change.
+ * </p>
+ */
+@Service
+public class FavouritePlayerMembershipService {
+
+    /** Name of the cache of the sets, configured in "jhipster.cache.regions" */
+    public static final String MEMBERSHIPS_CACHE = "favouritePlayerMemberships";
+
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    @Inject
+    private FavouritePlayerRepository favouritePlayerRepository;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    /**
+     * @param login the login of the user
+     * @param playerId the id of the player
+     * @return true if the player is a favourite of the user
+     */
+    public boolean isFavourite(String login, Long playerId) {
+        LongHashSet players = load(login);
+        synchronized (players) {
+            return playerId != null && players.contains(playerId);
+        }
+    }
+
+    /**
+     * @param login the login of the user
+     * @param playerIds the ids of the players
+     * @return whether each player is a favourite of the user, by player id, in the order of the ids
+     */
+    public Map<Long, Boolean> areFavourites(String login, Collection<Long> playerIds) {
+        LongHashSet players = load(login);
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        synchronized (players) {
+            for (Long playerId : playerIds) {
+                result.put(playerId, playerId != null && players.contains(playerId));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add a player to the favourites of a user once the current transaction commits.
+     *
+     * @param login the login of the user
+     * @param playerId the id of the player
+     */
+    public void addAfterCommit(String login, Long playerId) {
+        TransactionUtil.afterCommit(() -> update(login, playerId, true));
+    }
+
+    /**
+     * Remove a player from the favourites of a user once the current transaction commits.
+     *
+     * @param login the login of the user
+     * @param playerId the id of the player
+     */
+    public void removeAfterCommit(String login, Long playerId) {
+        TransactionUtil.afterCommit(() -> update(login, playerId, false));
+    }
+
+    /**
+     * Drop the favourites kept for a user, to be loaded again when next checked.
+     *
+     * @param login the login of the user
+     */
+    public void evict(String login) {
+        cacheManager.getCache(MEMBERSHIPS_CACHE).evict(login);
+    }
+
+    private LongHashSet load(String login) {
+        Cache cache = cacheManager.getCache(MEMBERSHIPS_CACHE);
+        LongHashSet players = cache.get(login, LongHashSet.class);
+        if (players != null) {
+            return players;
+        }
+        int stripe = stripeOf(login);
+        long stamp = stamps.get(stripe);
+        LongHashSet loaded = new LongHashSet();
+        for (Long playerId : favouritePlayerRepository.findPlayerIdsByUserLogin(login)) {
+            loaded.add(playerId);
+        }
+        Cache.ValueWrapper current = cache.putIfAbsent(login, loaded);
+        if (current != null && current.get() != null) {
+            return (LongHashSet) current.get();
+        }
+        if (stamps.get(stripe) != stamp) {
+            // A change committed during the query may be missing from the set: answer from it, but do not keep it
+            cache.evict(login);
+        }
+        return loaded;
+    }
+
+    private void update(String login, Long playerId, boolean favourite) {
+        if (playerId == null) {
+            return;
+        }
+        stamps.incrementAndGet(stripeOf(login));
+        LongHashSet players = cacheManager.getCache(MEMBERSHIPS_CACHE).get(login, LongHashSet.class);
+        if (players == null) {
+            return;
+        }
+        synchronized (players) {
+            if (favourite) {
+                players.add(playerId);
+            } else {
+                players.remove(playerId);
+            }
+        }
+    }
+
+    private static int stripeOf(String login) {
+        return Math.floorMod(login.hashCode(), STRIPES);
+    }
+}
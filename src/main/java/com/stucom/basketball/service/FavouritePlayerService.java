@@ -1,16 +1,29 @@
 package com.stucom.basketball.service;
 
 import com.stucom.basketball.domain.FavouritePlayer;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.User;
+import com.stucom.basketball.repository.KeysetRepository;
+import com.stucom.basketball.repository.ProjectionRepository;
 import com.stucom.basketball.repository.FavouritePlayerRepository;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetPage;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Service Implementation for managing FavouritePlayer.
@@ -19,20 +32,79 @@ import java.util.List;
 @Transactional
 public class FavouritePlayerService {
 
+    /** Properties, besides the id, the favouritePlayers can be listed by with keyset pagination: each has a (property, id) index */
+    public static final List<String> KEYSET_PROPERTIES = Arrays.asList("favouriteDateTime");
+
     private final Logger log = LoggerFactory.getLogger(FavouritePlayerService.class);
     
     @Inject
     private FavouritePlayerRepository favouritePlayerRepository;
 
+    @Inject
+    private KeysetRepository keysetRepository;
+
+    @Inject
+    private ProjectionRepository projectionRepository;
+
+    @Inject
+    private ApproximateCountService approximateCountService;
+
+    @Inject
+    private PlayerFavouriteCountService playerFavouriteCountService;
+
+    @Inject
+    private FavouritePlayerMembershipService favouritePlayerMembershipService;
+
+    @Inject
+    private PlayerSimilarityService playerSimilarityService;
+
     /**
-     * Save a favouritePlayer.
+     * Save a favouritePlayer, and update the favourite counts of its player, the favourites of its user
+     * and the similar players.
      *
      * @param favouritePlayer the entity to save
      * @return the persisted entity
      */
     public FavouritePlayer save(FavouritePlayer favouritePlayer) {
         log.debug("Request to save FavouritePlayer : {}", favouritePlayer);
+        Long previousPlayerId = null;
+        Long previousUserId = null;
+        String previousLogin = null;
+        if (favouritePlayer.getId() != null) {
+            // Read before saving: the merge copies the new values onto the managed entity
+            FavouritePlayer previous = favouritePlayerRepository.findOne(favouritePlayer.getId());
+            if (previous != null) {
+                previousPlayerId = playerIdOf(previous);
+                previousUserId = userIdOf(previous);
+                previousLogin = loginOf(previous);
+            }
+        }
+        boolean moved = !(Objects.equals(previousUserId, userIdOf(favouritePlayer))
+            && Objects.equals(previousPlayerId, playerIdOf(favouritePlayer)));
+        if (moved) {
+            // The other favourites of the user are read before the save for the removal, after it for the addition
+            playerSimilarityService.favouriteRemoved(previousUserId, previousPlayerId);
+        }
         FavouritePlayer result = favouritePlayerRepository.save(favouritePlayer);
+        Long playerId = playerIdOf(result);
+        String login = loginOf(result);
+        if (moved) {
+            playerSimilarityService.favouriteAdded(userIdOf(result), playerId);
+        }
+        playerFavouriteCountService.favouriteChanged(previousPlayerId, playerId);
+        if (previousLogin != null && previousPlayerId != null
+            && !(previousLogin.equals(login) && previousPlayerId.equals(playerId))) {
+            favouritePlayerMembershipService.removeAfterCommit(previousLogin, previousPlayerId);
+        }
+        if (login != null && playerId != null) {
+            favouritePlayerMembershipService.addAfterCommit(login, playerId);
+        }
+        // A user or player changed by an update is merged as a lazy reference: read it for the response
+        Hibernate.initialize(result.getUser());
+        if (result.getPlayer() != null) {
+            Hibernate.initialize(result.getPlayer());
+            Hibernate.initialize(result.getPlayer().getTeam());
+        }
         return result;
     }
 
@@ -49,6 +121,41 @@ public class FavouritePlayerService {
         return result;
     }
 
+    /**
+     *  Get a page of the favouritePlayers, without counting them.
+     *
+     *  @param pageable the pagination information
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<FavouritePlayer> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of FavouritePlayers");
+        return favouritePlayerRepository.findSlice(pageable);
+    }
+
+    /**
+     *  Get the number of favouritePlayers, as counted at most a few minutes ago.
+     *
+     *  @return the approximate number of entities
+     */
+    @Transactional(readOnly = true)
+    public long countApproximately() {
+        return approximateCountService.count(FavouritePlayer.class);
+    }
+
+    /**
+     *  Get a page of the favouritePlayers with keyset pagination.
+     *
+     *  @param cursor the position of the page
+     *  @param size the maximum number of entities to return
+     *  @return the page of entities, with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<FavouritePlayer> findAll(KeysetCursor cursor, int size) {
+        log.debug("Request to get a page of FavouritePlayers : {}", cursor);
+        return keysetRepository.findPage(FavouritePlayer.class, cursor, size, "user", "player.team");
+    }
+
     /**
      *  Get one favouritePlayer by id.
      *
@@ -62,6 +169,61 @@ public class FavouritePlayerService {
         return favouritePlayer;
     }
 
+    /**
+     *  Get the favouritePlayer of a user for a player.
+     *
+     *  @param user the user
+     *  @param player the player
+     *  @return the entity, if the user has the player as a favourite
+     */
+    @Transactional(readOnly = true)
+    public Optional<FavouritePlayer> findOneByUserAndPlayer(User user, Player player) {
+        log.debug("Request to get FavouritePlayer of User {} for Player {}", user.getLogin(), player.getId());
+        return favouritePlayerRepository.findOneByUserAndPlayer(user, player);
+    }
+
+    /**
+     *  Get the requested fields of all the favouritePlayers.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the list of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the favouritePlayer
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAll(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of all FavouritePlayers", fields);
+        return projectionRepository.findAll(FavouritePlayer.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of a page of the favouritePlayers, without counting them.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the slice of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the favouritePlayer
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> findSlice(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of a slice of FavouritePlayers", fields);
+        return projectionRepository.findSlice(FavouritePlayer.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of one favouritePlayer by id.
+     *
+     *  @param fields the fields to read
+     *  @param id the id of the entity
+     *  @return the fields of the entity, null if there is no such entity
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the favouritePlayer
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findOne(Fields fields, Long id) {
+        log.debug("Request to get the fields {} of FavouritePlayer : {}", fields, id);
+        return projectionRepository.findOne(FavouritePlayer.class, fields, id);
+    }
+
     /**
      *  Delete the  favouritePlayer by id.
      *
@@ -69,6 +231,30 @@ public class FavouritePlayerService {
      */
     public void delete(Long id) {
         log.debug("Request to delete FavouritePlayer : {}", id);
+        FavouritePlayer favouritePlayer = favouritePlayerRepository.findOne(id);
+        if (favouritePlayer != null) {
+            playerSimilarityService.favouriteRemoved(userIdOf(favouritePlayer), playerIdOf(favouritePlayer));
+        }
         favouritePlayerRepository.delete(id);
+        if (favouritePlayer != null) {
+            Long playerId = playerIdOf(favouritePlayer);
+            playerFavouriteCountService.favouriteChanged(playerId, null);
+            String login = loginOf(favouritePlayer);
+            if (login != null && playerId != null) {
+                favouritePlayerMembershipService.removeAfterCommit(login, playerId);
+            }
+        }
+    }
+
+    private Long playerIdOf(FavouritePlayer favouritePlayer) {
+        return favouritePlayer.getPlayer() == null ? null : favouritePlayer.getPlayer().getId();
+    }
+
+    private Long userIdOf(FavouritePlayer favouritePlayer) {
+        return favouritePlayer.getUser() == null ? null : favouritePlayer.getUser().getId();
+    }
+
+    private String loginOf(FavouritePlayer favouritePlayer) {
+        return favouritePlayer.getUser() == null ? null : favouritePlayer.getUser().getLogin();
     }
 }
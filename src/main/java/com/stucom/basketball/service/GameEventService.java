@@ -0,0 +1,205 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.enumeration.GameEventType;
+import com.stucom.basketball.repository.GameEventJdbcRepository;
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.service.dto.GameEventDTO;
+import com.stucom.basketball.service.dto.GameScoreDTO;
+import com.stucom.basketball.service.dto.PlayerStatsDTO;
+import com.stucom.basketball.service.util.GameResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for the play-by-play of the games: an append-only log of events, the scores of the games and the stats
+ * of the players are derived from.
+ *
+ * <p>
+ * The events appended to a game are applied and inserted in one transaction: one update of the scores of the game,
+ * which locks it until the commit, one update of the stats of each player of the events, then one JDBC batch of
+ * inserts. Appends to the same game are thus numbered one after the other, and a reader tailing the events of a
+ * game by seq never skips an event committed later with a lower seq.
+ * </p>
+ */
+@Service
+@Transactional
+public class GameEventService {
+
+    /** Points of a basket without points */
+    public static final int DEFAULT_BASKET_POINTS = 2;
+
+    private final Logger log = LoggerFactory.getLogger(GameEventService.class);
+
+    @Inject
+    private GameEventJdbcRepository gameEventJdbcRepository;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private PlayerService playerService;
+
+    @Inject
+    private GameLiveService gameLiveService;
+
+    @Inject
+    private TeamStandingService teamStandingService;
+
+    @Inject
+    private TeamRatingService teamRatingService;
+
+    @Inject
+    private HeadToHeadService headToHeadService;
+
+    @Inject
+    private GameScheduleService gameScheduleService;
+
+    /**
+     * Append events to the play-by-play of a game, and add them to the scores of the game and the stats of their
+     * players. A basket without points scores {@link #DEFAULT_BASKET_POINTS}, an event without time happened now.
+     *
+     * @param gameId the id of the game
+     * @param events the events, in the order they happened
+     * @return the events with their seq, null if there is no such game
+     * @throws IllegalArgumentException if an event has no type or player, its team is not one of the teams of the
+     * game, its points do not fit its type, or its player does not exist or does not play for its team (no event is
+     * then appended)
+     */
+    public List<GameEventDTO> append(Long gameId, List<GameEventDTO> events) {
+        log.debug("Request to append {} events to Game : {}", events.size(), gameId);
+        List<Object[]> results = gameRepository.findResult(gameId);
+        if (results.isEmpty()) {
+            return null;
+        }
+        GameResult before = GameResult.of(results.get(0));
+        Long localTeamId = before.getLocalTeamId();
+        Long visitorTeamId = before.getVisitorTeamId();
+        ZonedDateTime now = ZonedDateTime.now();
+        int localPoints = 0;
+        int visitorPoints = 0;
+        Map<Long, PlayerStatsDTO> deltas = new LinkedHashMap<>();
+        Map<Long, Long> teamIds = new HashMap<>();
+        for (GameEventDTO event : events) {
+            if (event.getType() == null || event.getPlayerId() == null) {
+                throw new IllegalArgumentException("An event needs a type and a playerId");
+            }
+            boolean local = event.getTeamId() != null && event.getTeamId().equals(localTeamId);
+            if (!local && (event.getTeamId() == null || !event.getTeamId().equals(visitorTeamId))) {
+                throw new IllegalArgumentException("The team of an event must be one of the teams of the game");
+            }
+            if (event.getPoints() == null) {
+                event.setPoints(event.getType() == GameEventType.BASKET ? DEFAULT_BASKET_POINTS : 0);
+            }
+            if (event.getType() == GameEventType.BASKET ? event.getPoints() < 1 || event.getPoints() > 3 : event.getPoints() != 0) {
+                throw new IllegalArgumentException("A basket scores 1 to 3 points, an assist or a rebound none");
+            }
+            Long teamId = teamIds.putIfAbsent(event.getPlayerId(), event.getTeamId());
+            if (teamId != null && !teamId.equals(event.getTeamId())) {
+                throw new IllegalArgumentException("The events of a player must be of the same team");
+            }
+            if (event.getEventTime() == null) {
+                event.setEventTime(now);
+            }
+            if (local) {
+                localPoints += event.getPoints();
+            } else {
+                visitorPoints += event.getPoints();
+            }
+            PlayerStatsDTO delta = deltas.computeIfAbsent(event.getPlayerId(), playerId -> new PlayerStatsDTO(playerId, 0, 0, 0));
+            if (event.getType() == GameEventType.BASKET) {
+                delta.setNumBaskets(delta.getNumBaskets() + 1);
+            } else if (event.getType() == GameEventType.ASSIST) {
+                delta.setNumAssists(delta.getNumAssists() + 1);
+            } else {
+                delta.setNumRebounds(delta.getNumRebounds() + 1);
+            }
+        }
+        if (events.isEmpty()) {
+            return events;
+        }
+
+        // Locks the game until the commit: the appends to the game are numbered one after the other
+        if (gameRepository.addToScores(gameId, localPoints, visitorPoints) == 0) {
+            return null;
+        }
+        if (playerService.addToStats(new ArrayList<>(deltas.values()), teamIds) == null) {
+            // Rolls back the scores
+            throw new IllegalArgumentException("The player of an event does not exist or does not play for its team");
+        }
+        // Read under the lock: an event appended to a finished game corrects its result
+        Object[] row = gameRepository.findResult(gameId).get(0);
+        GameResult result = GameResult.of(row);
+        if (result.isFinished()) {
+            boolean scored = before.getLocalScore() != null && before.getVisitorScore() != null;
+            GameResult previous = scored ? result.plus(-localPoints, -visitorPoints) : before;
+            teamStandingService.gameChanged(previous, result);
+            headToHeadService.gameChanged(previous, result);
+            teamRatingService.gameChangedAfterCommit(gameId, (Long) row[5], previous, result);
+        }
+        long seq = gameEventJdbcRepository.findLastSeq(gameId);
+        for (GameEventDTO event : events) {
+            event.setSeq(++seq);
+        }
+        gameEventJdbcRepository.insert(gameId, events);
+        gameScheduleService.evictAfterCommit(gameRepository.findStartTime(gameId));
+        if (gameLiveService.hasSubscribers(gameId)) {
+            Object[] scores = gameRepository.findScores(gameId).get(0);
+            gameLiveService.publishAfterCommit(new GameScoreDTO(gameId, (Integer) scores[0], (Integer) scores[1], (Long) scores[2]));
+        }
+        return events;
+    }
+
+    /**
+     * Get the events of a game after a seq, to tail its play-by-play.
+     *
+     * @param gameId the id of the game
+     * @param since the seq of the last event already read, 0 to read from the first one
+     * @param size the maximum number of events to return
+     * @return the events after the seq, in seq order, null if there is no such game
+     */
+    @Transactional(readOnly = true)
+    public List<GameEventDTO> findSince(Long gameId, long since, int size) {
+        log.debug("Request to get the events of Game {} since : {}", gameId, since);
+        List<GameEventDTO> events = gameEventJdbcRepository.findSince(gameId, since, size);
+        if (events.isEmpty() && gameRepository.findVersion(gameId) == null) {
+            return null;
+        }
+        return events;
+    }
+
+    /**
+     * Delete the events of a game, before the game itself is deleted, and take them off the stats of their players.
+     * <p>
+     * The game is locked first, as by the appends of its events, so no event is appended between the read of the
+     * stats and the delete, and the players are locked after the game like in {@link #append}.
+     * </p>
+     *
+     * @param gameId the id of the game
+     */
+    public void delete(Long gameId) {
+        log.debug("Request to delete the events of Game : {}", gameId);
+        if (gameRepository.findIdForUpdate(gameId).isEmpty()) {
+            return;
+        }
+        List<PlayerStatsDTO> deltas = new ArrayList<>();
+        for (PlayerStatsDTO stats : gameEventJdbcRepository.findStatsOfGame(gameId)) {
+            deltas.add(new PlayerStatsDTO(stats.getPlayerId(), -stats.getNumBaskets(), -stats.getNumAssists(),
+                -stats.getNumRebounds()));
+        }
+        // The players of the events cannot be deleted while the events exist (foreign key)
+        if (playerService.addToStats(deltas) == null) {
+            throw new IllegalStateException("The player of an event of Game " + gameId + " does not exist");
+        }
+        gameEventJdbcRepository.deleteGame(gameId);
+    }
+}
@@ -0,0 +1,148 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.GameRatingStats;
+import com.stucom.basketball.repository.GameRatingStatsRepository;
+import com.stucom.basketball.service.util.RankedIndex;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory ranking of the games by average rating.
+ *
+ * <p>
+ * Fed from the rating aggregates (GameRatingStats) once their transaction commits, and rebuilt from
+ * them at startup. Each aggregate carries a version, so an update that arrives after a newer one for
+ * the same game is ignored. A deleted game keeps a tombstone version that no update beats, so the late
+ * update of a rating committed before the deletion cannot rank the game again. Top-N and rank queries
+ * never touch the database.
+ * </p>
+ */
+@Service
+public class GameLeaderboardService {
+
+    // Version of a deleted game
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final Logger log = LoggerFactory.getLogger(GameLeaderboardService.class);
+
+    private final RankedIndex index = new RankedIndex();
+
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    @Inject
+    private GameRatingStatsRepository gameRatingStatsRepository;
+
+    /**
+     * Publish the state of an aggregate once the current transaction commits (right away if there is none).
+     *
+     * @param stats the aggregate, read when the transaction has committed
+     */
+    public void updateAfterCommit(GameRatingStats stats) {
+        TransactionUtil.afterCommit(() -> update(stats.getGameId(), stats.getSumScore(), stats.getNumRatings(), stats.getVersion()));
+    }
+
+    /**
+     * Remove a game from the ranking once the current transaction commits, for good: the updates of the game
+     * that arrive later are ignored.
+     *
+     * @param gameId the id of the game
+     */
+    public void removeAfterCommit(Long gameId) {
+        TransactionUtil.afterCommit(() -> remove(gameId));
+    }
+
+    /**
+     * @param offset the number of games to skip
+     * @param limit the maximum number of games to return
+     * @return the best rated games, best first
+     */
+    public List<RankedIndex.Entry> findTop(int offset, int limit) {
+        return index.top(offset, limit);
+    }
+
+    /**
+     * @param gameId the id of the game
+     * @return the 1-based rank of the game, or 0 if it has no ratings
+     */
+    public int findRank(Long gameId) {
+        return index.rank(gameId);
+    }
+
+    /**
+     * @param gameId the id of the game
+     * @return the ranked entry of the game, or null if it has no ratings
+     */
+    public RankedIndex.Entry findEntry(Long gameId) {
+        return index.get(gameId);
+    }
+
+    /**
+     * @param gameId the id of the game
+     * @return true if the game has a rating aggregate, whether it has ratings or not
+     */
+    public boolean contains(Long gameId) {
+        Long version = versions.get(gameId);
+        return version != null && version != DELETED;
+    }
+
+    /**
+     * Rebuild the ranking from the rating aggregates.
+     */
+    public void rebuild() {
+        Set<Long> gameIds = new HashSet<>();
+        for (GameRatingStats stats : gameRatingStatsRepository.findAll()) {
+            gameIds.add(stats.getGameId());
+            update(stats.getGameId(), stats.getSumScore(), stats.getNumRatings(), stats.getVersion());
+        }
+        for (Long gameId : versions.keySet()) {
+            if (!gameIds.contains(gameId)) {
+                remove(gameId);
+            }
+        }
+        log.debug("Rebuilt the game leaderboard, {} games ranked", index.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAtStartup() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            // With the asynchronous Liquibase of the "dev" profile the schema may not be there yet
+            log.warn("Could not build the game leaderboard at startup: {}", e.getMessage());
+        }
+    }
+
+    private void remove(Long gameId) {
+        versions.compute(gameId, (id, current) -> {
+            index.remove(gameId);
+            return DELETED;
+        });
+    }
+
+    private void update(Long gameId, long sumScore, long numRatings, Long version) {
+        long newVersion = version == null ? 0 : version;
+        versions.compute(gameId, (id, current) -> {
+            if (current != null && current > newVersion) {
+                return current;
+            }
+            if (numRatings > 0) {
+                index.put(gameId, (double) sumScore / numRatings, numRatings);
+            } else {
+                index.remove(gameId);
+            }
+            return newVersion;
+        });
+    }
+}
@@ -0,0 +1,388 @@
+package com.stucom.basketball.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stucom.basketball.config.JHipsterProperties;
+import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.service.dto.GameScoreDTO;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Server-Sent Events streams of the live scores of the games, instead of each viewer polling the game.
+ *
+ * <p>
+ * A score is published once the transaction writing it commits. It is serialized once, then handed to every
+ * subscriber of the game, and written to the clients by a small pool of sender threads. A subscriber holds at most
+ * one pending message: when a slow client has not received a score yet, a newer score replaces it, so a slow client
+ * skips intermediate scores instead of buffering them. A score older (by version) than the last one offered to a
+ * subscriber is ignored. Every subscriber with nothing pending is sent a heartbeat comment, so proxies keep idle
+ * streams open.
+ * </p>
+ * <p>
+ * A send is a blocking write, which a client that stops reading can hold until the container's write timeout.
+ * The heartbeat ends the streams whose send has run for more than sendTimeout, and adds a sender thread for each
+ * of their sends still blocked, until it returns, so a slow client only holds up its own stream.
+ * </p>
+ * <p>
+ * Each node accepts at most maxSubscribers streams; a stream ends after the timeout, and the browser reconnects.
+ * </p>
+ */
+@Service
+public class GameLiveService {
+
+    /** Name of the events holding a score */
+    public static final String SCORE_EVENT = "score";
+
+    private static final MediaType DATA_TYPE = new MediaType("text", "plain", StandardCharsets.UTF_8);
+
+    private final Logger log = LoggerFactory.getLogger(GameLiveService.class);
+
+    private final Map<Long, Set<Subscriber>> channels = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    // Sends of ended streams still holding a sender thread
+    private final AtomicInteger blockedSends = new AtomicInteger();
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private ThreadPoolTaskExecutor sender;
+
+    private Meter published;
+
+    private Meter skipped;
+
+    private Meter rejected;
+
+    private Meter timedOut;
+
+    @PostConstruct
+    public void init() {
+        sender = new ThreadPoolTaskExecutor();
+        sender.setCorePoolSize(Math.max(1, live().getSenderThreads()));
+        sender.setThreadNamePrefix("basketball-Live-");
+        sender.setDaemon(true);
+        sender.initialize();
+        published = metricRegistry.meter(MetricRegistry.name(GameLiveService.class, "published"));
+        skipped = metricRegistry.meter(MetricRegistry.name(GameLiveService.class, "skipped"));
+        rejected = metricRegistry.meter(MetricRegistry.name(GameLiveService.class, "rejected"));
+        timedOut = metricRegistry.meter(MetricRegistry.name(GameLiveService.class, "timed-out"));
+        metricRegistry.register(MetricRegistry.name(GameLiveService.class, "subscribers"),
+            (Gauge<Integer>) subscriberCount::get);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (Set<Subscriber> subscribers : channels.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        sender.shutdown();
+    }
+
+    /**
+     * Open a stream of the scores of a game.
+     *
+     * @param score the current score of the game, the first event of the stream
+     * @return the stream, or null if this node has as many subscribers as it accepts
+     */
+    public SseEmitter subscribe(GameScoreDTO score) {
+        if (subscriberCount.incrementAndGet() > live().getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            rejected.mark();
+            return null;
+        }
+        Long gameId = score.getGameId();
+        Subscriber subscriber = new Subscriber(gameId, new SseEmitter(live().getTimeout()));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        channels.compute(gameId, (id, subscribers) -> {
+            Set<Subscriber> result = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            result.add(subscriber);
+            return result;
+        });
+        log.debug("Subscriber of Game {} added, {} subscribers", gameId, subscriberCount.get());
+        Message message = scoreMessage(score);
+        if (message != null) {
+            subscriber.offer(message);
+        }
+        return subscriber.emitter;
+    }
+
+    /**
+     * @param gameId the id of a game
+     * @return true if the game has subscribers on this node, false if its scores need not be published
+     */
+    public boolean hasSubscribers(Long gameId) {
+        return channels.containsKey(gameId);
+    }
+
+    /**
+     * Publish the score of a game once the current transaction commits (right away if there is none).
+     *
+     * @param game the game written by the transaction, read when the transaction has committed (and its version
+     * has been incremented)
+     */
+    public void publishAfterCommit(Game game) {
+        TransactionUtil.afterCommit(() ->
+            publish(new GameScoreDTO(game.getId(), game.getLocalScore(), game.getVisitorScore(), game.getVersion())));
+    }
+
+    /**
+     * Publish the score of a game once the current transaction commits (right away if there is none).
+     *
+     * @param score the score, as written by the transaction
+     */
+    public void publishAfterCommit(GameScoreDTO score) {
+        TransactionUtil.afterCommit(() -> publish(score));
+    }
+
+    /**
+     * End the streams of a deleted game once the current transaction commits.
+     *
+     * @param gameId the id of the game
+     */
+    public void closeAfterCommit(Long gameId) {
+        TransactionUtil.afterCommit(() -> {
+            Set<Subscriber> subscribers = channels.get(gameId);
+            if (subscribers != null) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.emitter.complete();
+                }
+            }
+        });
+    }
+
+    private void publish(GameScoreDTO score) {
+        Set<Subscriber> subscribers = channels.get(score.getGameId());
+        if (subscribers == null) {
+            return;
+        }
+        Message message = scoreMessage(score);
+        if (message == null) {
+            return;
+        }
+        published.mark();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Send a heartbeat to the subscribers with nothing pending, and end the streams whose send takes longer than
+     * sendTimeout.
+     */
+    @Scheduled(fixedDelayString = "${jhipster.live.heartbeatInterval:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Set<Subscriber> subscribers : channels.values()) {
+            for (Subscriber subscriber : subscribers) {
+                long since = subscriber.sendingSince;
+                if (since != 0 && now - since > live().getSendTimeout()) {
+                    subscriber.abort();
+                } else {
+                    subscriber.offerHeartbeat();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of open streams on this node
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        channels.computeIfPresent(subscriber.gameId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        log.debug("Subscriber of Game {} removed, {} subscribers", subscriber.gameId, subscriberCount.get());
+    }
+
+    private Message scoreMessage(GameScoreDTO score) {
+        try {
+            return new Message(score.getVersion(), objectMapper.writeValueAsString(score));
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize the score {}", score, e);
+            return null;
+        }
+    }
+
+    /**
+     * Keep senderThreads threads free to send, besides the ones held by the blocked sends of ended streams.
+     */
+    private void resizeSender() {
+        sender.setCorePoolSize(Math.max(1, live().getSenderThreads()) + blockedSends.get());
+    }
+
+    private JHipsterProperties.Live live() {
+        return jHipsterProperties.getLive();
+    }
+
+    /**
+     * A serialized score, shared by all the subscribers it is sent to.
+     */
+    private static class Message {
+
+        private static final Message HEARTBEAT = new Message(null, null);
+
+        private final Long version;
+
+        private final String data;
+
+        Message(Long version, String data) {
+            this.version = version;
+            this.data = data;
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(String.valueOf(version)).name(SCORE_EVENT).data(data, DATA_TYPE);
+        }
+    }
+
+    /**
+     * A stream, with the one message waiting to be sent to it.
+     */
+    private class Subscriber {
+
+        private final Long gameId;
+
+        private final SseEmitter emitter;
+
+        private final AtomicReference<Message> pending = new AtomicReference<>();
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        // Time the running send started, 0 if there is none
+        private volatile long sendingSince;
+
+        // Set once the stream is ended while a send of it is blocked
+        private final AtomicBoolean blocked = new AtomicBoolean();
+
+        // Version of the last score offered, older ones are ignored
+        private Long version;
+
+        Subscriber(Long gameId, SseEmitter emitter) {
+            this.gameId = gameId;
+            this.emitter = emitter;
+        }
+
+        void offer(Message message) {
+            synchronized (this) {
+                if (version != null && message.version != null && message.version <= version) {
+                    return;
+                }
+                version = message.version;
+                Message replaced = pending.getAndSet(message);
+                if (replaced != null && replaced != Message.HEARTBEAT) {
+                    skipped.mark();
+                }
+            }
+            schedule();
+        }
+
+        void offerHeartbeat() {
+            if (pending.compareAndSet(null, Message.HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!closed.get() && sending.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /**
+         * End the stream of a send that takes too long. Its sender thread is replaced until the send returns.
+         */
+        void abort() {
+            if (closed.get()) {
+                return;
+            }
+            log.debug("Ending a subscriber of Game {}: its send takes more than {} ms", gameId, live().getSendTimeout());
+            timedOut.mark();
+            unsubscribe(this);
+            if (blocked.compareAndSet(false, true)) {
+                blockedSends.incrementAndGet();
+                // The send may have returned meanwhile, then whichever of this and the drain comes last counts it back
+                if (sendingSince == 0 && blocked.compareAndSet(true, false)) {
+                    blockedSends.decrementAndGet();
+                }
+                resizeSender();
+            }
+            emitter.completeWithError(new IOException("Send timed out"));
+        }
+
+        /**
+         * Send the pending messages, one sender thread at a time per subscriber.
+         */
+        private void drain() {
+            try {
+                Message message;
+                while ((message = pending.getAndSet(null)) != null && !closed.get()) {
+                    sendingSince = System.currentTimeMillis();
+                    emitter.send(message.toEvent());
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, or the stream is already complete
+                log.debug("Could not send to a subscriber of Game {}: {}", gameId, e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            } finally {
+                sendingSince = 0;
+                sending.set(false);
+                if (blocked.compareAndSet(true, false)) {
+                    blockedSends.decrementAndGet();
+                    resizeSender();
+                }
+            }
+            if (pending.get() != null) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.stucom.basketball.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.stucom.basketball.config.JHipsterProperties;
+import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.domain.GameRating;
+import com.stucom.basketball.domain.User;
+import com.stucom.basketball.repository.GameRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind buffer of game ratings ("burst mode"), for the minute after a game ends when thousands of
+ * users rate it at once.
+ *
+ * <p>
+ * Ratings are accepted into lock-free queues, one per stripe, the stripe being chosen by game so the
+ * ratings of a game stay in order. A scheduled flusher drains the stripes and writes them with
+ * {@link GameRatingService#saveScores}, in JDBC batches of at most batchSize ratings per transaction.
+ * A rating is refused, and must be written synchronously by the caller, when burst mode is disabled,
+ * when its game is unknown, when its stripe is full, or when the oldest rating of its stripe waits for
+ * more than maxLag.
+ * </p>
+ * <p>
+ * A batch that fails is kept at the head of its stripe, whose newer ratings wait behind it so the last
+ * rating of a user still wins, and is written again at the next flush, split in halves to isolate the
+ * ratings that make it fail. A single rating that fails maxAttempts times is dead-lettered: logged in
+ * full and dropped.
+ * </p>
+ * <p>
+ * With the "accepted" durability a rating is acknowledged once buffered, and is lost if the application
+ * stops before the flush or if it is dead-lettered. With "flushed" the caller waits on the returned
+ * future, which completes once the batch holding the rating is committed, or exceptionally if the rating
+ * is dead-lettered or dropped because its user or its game was deleted meanwhile. A buffered rating never
+ * overwrites a rating of the same user and game dated after it, such as one written synchronously while
+ * its stripe refused ratings.
+ * </p>
+ */
+@Service
+public class GameRatingBurstBuffer {
+
+    private final Logger log = LoggerFactory.getLogger(GameRatingBurstBuffer.class);
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private GameRatingService gameRatingService;
+
+    @Inject
+    private GameLeaderboardService gameLeaderboardService;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private Stripe[] stripes;
+
+    private Meter accepted;
+
+    private Meter rejected;
+
+    private Meter flushed;
+
+    private Meter failed;
+
+    private Meter deadLettered;
+
+    private Timer flushes;
+
+    @PostConstruct
+    public void init() {
+        stripes = new Stripe[Math.max(1, burst().getStripes())];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        accepted = metricRegistry.meter(MetricRegistry.name(GameRatingBurstBuffer.class, "accepted"));
+        rejected = metricRegistry.meter(MetricRegistry.name(GameRatingBurstBuffer.class, "rejected"));
+        flushed = metricRegistry.meter(MetricRegistry.name(GameRatingBurstBuffer.class, "flushed"));
+        failed = metricRegistry.meter(MetricRegistry.name(GameRatingBurstBuffer.class, "failed"));
+        deadLettered = metricRegistry.meter(MetricRegistry.name(GameRatingBurstBuffer.class, "dead-lettered"));
+        flushes = metricRegistry.timer(MetricRegistry.name(GameRatingBurstBuffer.class, "flushes"));
+        metricRegistry.register(MetricRegistry.name(GameRatingBurstBuffer.class, "queue-depth"),
+            (Gauge<Integer>) this::getQueueDepth);
+        metricRegistry.register(MetricRegistry.name(GameRatingBurstBuffer.class, "lag"),
+            (Gauge<Long>) this::getLag);
+    }
+
+    /**
+     * @return true if ratings may be buffered
+     */
+    public boolean isEnabled() {
+        return burst().isEnabled();
+    }
+
+    /**
+     * Buffer a rating.
+     *
+     * @param login the login of the user rating the game
+     * @param gameId the id of the game
+     * @param score the score
+     * @return a future completed once the rating is committed, or null if the rating was not buffered
+     * (the caller then writes it, or rejects it if its game does not exist)
+     */
+    public CompletableFuture<Void> offer(String login, Long gameId, Integer score) {
+        JHipsterProperties.Rating.Burst burst = burst();
+        if (!burst.isEnabled()) {
+            return null;
+        }
+        // The leaderboard knows every game with a rating aggregate; the others are looked up by primary key
+        if (!gameLeaderboardService.contains(gameId) && !gameRepository.exists(gameId)) {
+            rejected.mark();
+            return null;
+        }
+        Stripe stripe = stripes[Math.floorMod(gameId.hashCode(), stripes.length)];
+        long now = System.currentTimeMillis();
+        long oldest = stripe.oldest();
+        if (oldest != 0 && now - oldest > burst.getMaxLag()) {
+            rejected.mark();
+            return null;
+        }
+        if (stripe.size.incrementAndGet() > burst.getQueueCapacity()) {
+            stripe.size.decrementAndGet();
+            rejected.mark();
+            return null;
+        }
+        User user = new User();
+        user.setLogin(login);
+        Game game = new Game();
+        game.setId(gameId);
+        Pending pending = new Pending(new GameRating().score(score).scoreDateTime(ZonedDateTime.now()).user(user).game(game), now);
+        stripe.queue.add(pending);
+        accepted.mark();
+        return pending.future;
+    }
+
+    /**
+     * Write the buffered ratings.
+     * <p>
+     * Each stripe is drained up to the ratings it held when the flush started, so a stripe that keeps
+     * receiving ratings cannot hold the flusher forever. The failed batches of a stripe are written first;
+     * while one of them still fails, the rest of the stripe waits for the next flush.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${jhipster.rating.burst.flushInterval:500}")
+    public synchronized void flush() {
+        int batchSize = Math.max(1, burst().getBatchSize());
+        for (Stripe stripe : stripes) {
+            if (!retry(stripe)) {
+                continue;
+            }
+            int remaining = stripe.size.get();
+            while (remaining > 0) {
+                List<Pending> batch = stripe.drain(Math.min(remaining, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                remaining -= batch.size();
+                if (write(batch) != null) {
+                    stripe.addFailed(batch);
+                    break;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (getQueueDepth() > 0) {
+            log.info("Flushing {} buffered game ratings", getQueueDepth());
+            flush();
+        }
+    }
+
+    /**
+     * @return the number of buffered ratings
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Stripe stripe : stripes) {
+            depth += stripe.size.get() + stripe.failedSize;
+        }
+        return depth;
+    }
+
+    /**
+     * @return the age in milliseconds of the oldest buffered rating, 0 if there is none
+     */
+    public long getLag() {
+        long now = System.currentTimeMillis();
+        long lag = 0;
+        for (Stripe stripe : stripes) {
+            long oldest = stripe.oldest();
+            if (oldest != 0) {
+                lag = Math.max(lag, now - oldest);
+            }
+        }
+        return lag;
+    }
+
+    /**
+     * Write the failed batches of a stripe, oldest first. A batch that fails again is split in halves, or, down
+     * to a single rating, counted as one more attempt of that rating.
+     *
+     * @return true if the stripe has no failed batch left
+     */
+    private boolean retry(Stripe stripe) {
+        while (!stripe.failed.isEmpty()) {
+            List<Pending> batch = stripe.failed.peekFirst();
+            RuntimeException error = write(batch);
+            if (error == null) {
+                stripe.removeFailed();
+                continue;
+            }
+            if (batch.size() > 1) {
+                stripe.splitFailed();
+                return false;
+            }
+            Pending pending = batch.get(0);
+            if (++pending.attempts < Math.max(1, burst().getMaxAttempts())) {
+                return false;
+            }
+            stripe.removeFailed();
+            GameRating rating = pending.rating;
+            log.error("Dead-lettering the buffered rating of Game {} by {}, score {} at {}, after {} attempts",
+                rating.getGame().getId(), rating.getUser().getLogin(), rating.getScore(), rating.getScoreDateTime(),
+                pending.attempts, error);
+            deadLettered.mark();
+            pending.future.completeExceptionally(error);
+        }
+        return true;
+    }
+
+    /**
+     * @return the error, or null if the batch is committed
+     */
+    private RuntimeException write(List<Pending> batch) {
+        List<GameRating> ratings = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            ratings.add(pending.rating);
+        }
+        Timer.Context context = flushes.time();
+        try {
+            Set<GameRating> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+            dropped.addAll(gameRatingService.saveScores(ratings));
+            flushed.mark(batch.size() - dropped.size());
+            for (Pending pending : batch) {
+                if (dropped.contains(pending.rating)) {
+                    // Its user or its game was deleted since it was accepted: it is not stored, do not report it so
+                    pending.future.completeExceptionally(new IllegalStateException("The user or the game of the rating does not exist"));
+                } else {
+                    pending.future.complete(null);
+                }
+            }
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} buffered game ratings, they will be written again: {}", batch.size(), e.toString());
+            failed.mark(batch.size());
+            return e;
+        } finally {
+            context.stop();
+        }
+    }
+
+    private JHipsterProperties.Rating.Burst burst() {
+        return jHipsterProperties.getRating().getBurst();
+    }
+
+    private static class Stripe {
+
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+        // Kept apart from the queue, whose size() walks all of its nodes
+        private final AtomicInteger size = new AtomicInteger();
+
+        // The batches that failed, oldest first, only touched by the flusher
+        private final Deque<List<Pending>> failed = new ArrayDeque<>();
+
+        // Published for the other threads
+        private volatile int failedSize;
+
+        private volatile long failedSince;
+
+        /**
+         * @return the time the oldest rating of the stripe was accepted, 0 if there is none
+         */
+        private long oldest() {
+            long since = failedSince;
+            if (since != 0) {
+                return since;
+            }
+            Pending head = queue.peek();
+            return head == null ? 0 : head.acceptedAt;
+        }
+
+        private void addFailed(List<Pending> batch) {
+            failed.addLast(batch);
+            failedSize += batch.size();
+            failedSince = failed.peekFirst().get(0).acceptedAt;
+        }
+
+        private void splitFailed() {
+            List<Pending> batch = failed.pollFirst();
+            int half = batch.size() / 2;
+            failed.addFirst(new ArrayList<>(batch.subList(half, batch.size())));
+            failed.addFirst(new ArrayList<>(batch.subList(0, half)));
+        }
+
+        private void removeFailed() {
+            failedSize -= failed.pollFirst().size();
+            failedSince = failed.isEmpty() ? 0 : failed.peekFirst().get(0).acceptedAt;
+        }
+
+        private List<Pending> drain(int max) {
+            List<Pending> batch = new ArrayList<>(max);
+            Pending pending;
+            while (batch.size() < max && (pending = queue.poll()) != null) {
+                batch.add(pending);
+            }
+            size.addAndGet(-batch.size());
+            return batch;
+        }
+    }
+
+    private static class Pending {
+
+        private final GameRating rating;
+
+        private final long acceptedAt;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private int attempts;
+
+        private Pending(GameRating rating, long acceptedAt) {
+            this.rating = rating;
+            this.acceptedAt = acceptedAt;
+        }
+    }
+}
@@ -1,16 +1,40 @@
 package com.stucom.basketball.service;
 
+import com.stucom.basketball.domain.Game;
 import com.stucom.basketball.domain.GameRating;
+import com.stucom.basketball.domain.User;
+import com.stucom.basketball.repository.GameRatingJdbcRepository;
+import com.stucom.basketball.repository.KeysetRepository;
+import com.stucom.basketball.repository.ProjectionRepository;
 import com.stucom.basketball.repository.GameRatingRepository;
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.repository.UserRepository;
+import com.stucom.basketball.service.dto.GameRatingBatchResultDTO;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.GameRatingDelta;
+import com.stucom.basketball.service.util.KeysetPage;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Service Implementation for managing GameRating.
@@ -19,23 +43,267 @@ import java.util.List;
 @Transactional
 public class GameRatingService {
 
+    /** Properties, besides the id, the gameRatings can be listed by with keyset pagination: each has a (property, id) index */
+    public static final List<String> KEYSET_PROPERTIES = Arrays.asList("scoreDateTime");
+
     private final Logger log = LoggerFactory.getLogger(GameRatingService.class);
     
     @Inject
     private GameRatingRepository gameRatingRepository;
 
+    @Inject
+    private KeysetRepository keysetRepository;
+
+    @Inject
+    private ProjectionRepository projectionRepository;
+
+    @Inject
+    private ApproximateCountService approximateCountService;
+
+    @Inject
+    private GameRatingJdbcRepository gameRatingJdbcRepository;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private GameRatingStatsService gameRatingStatsService;
+
     /**
-     * Save a gameRating.
+     * Save a gameRating, and update the rating aggregates of its game.
+     * <p>
+     * The aggregates of the games of the rating, before and after the write, are locked first, so the rating it
+     * replaces is read without racing with the other writes of the same games.
+     * </p>
      *
      * @param gameRating the entity to save
      * @return the persisted entity
      */
     public GameRating save(GameRating gameRating) {
         log.debug("Request to save GameRating : {}", gameRating);
+        Long previousGameId = null;
+        Integer previousScore = null;
+        if (gameRating.getId() != null) {
+            // Read before saving: the merge copies the new values onto the managed entity
+            Object[] previous = lockAndReadPrevious(gameRating.getId(), gameIdOf(gameRating));
+            if (previous != null) {
+                previousGameId = (Long) previous[0];
+                previousScore = (Integer) previous[1];
+            }
+        }
         GameRating result = gameRatingRepository.save(gameRating);
+        gameRatingStatsService.ratingChanged(previousGameId, previousScore, gameIdOf(result), result.getScore());
+        // A user or game changed by an update is merged as a lazy reference: read it for the response
+        Hibernate.initialize(result.getUser());
+        if (result.getGame() != null) {
+            Hibernate.initialize(result.getGame());
+            Hibernate.initialize(result.getGame().getLocalTeam());
+            Hibernate.initialize(result.getGame().getVisitorTeam());
+        }
         return result;
     }
 
+    /**
+     * Save the score of a user for a game with one upsert statement, and update the rating aggregates of the game.
+     * <p>
+     * The aggregate of the game is locked first, so the previous score of the user, which the aggregate
+     * needs, is read without racing with the other ratings of the game.
+     * </p>
+     *
+     * @param gameRating the rating, with its user and game (only their ids are used), score and date; its id is set
+     * @return true if the user had not rated the game yet
+     */
+    public boolean saveScore(GameRating gameRating) {
+        log.debug("Request to save GameRating score : {}", gameRating);
+        Long userId = gameRating.getUser().getId();
+        Long gameId = gameRating.getGame().getId();
+        gameRatingStatsService.lock(gameId);
+        List<Object[]> previous = gameRatingRepository.findIdAndScore(userId, gameId);
+        gameRatingJdbcRepository.saveScore(gameRating);
+        if (previous.isEmpty()) {
+            gameRating.setId((Long) gameRatingRepository.findIdAndScore(userId, gameId).get(0)[0]);
+            gameRatingStatsService.ratingChanged(null, null, gameId, gameRating.getScore());
+            return true;
+        }
+        gameRating.setId((Long) previous.get(0)[0]);
+        gameRatingStatsService.ratingChanged(gameId, (Integer) previous.get(0)[1], gameId, gameRating.getScore());
+        return false;
+    }
+
+    /**
+     * Save a batch of ratings of one user, as queued by an offline client.
+     * <p>
+     * The games are checked with one query, the ratings are upserted in JDBC batches, and the aggregates of the
+     * games are updated from the previous scores of the user, read with one query once the aggregates are locked
+     * (in game id order). When the batch rates a game several times, the last rating wins.
+     * </p>
+     *
+     * @param user the user rating the games
+     * @param gameRatings the ratings, with their game (only its id is used), score and date
+     * @return the outcome of each rating, in the order of the batch
+     */
+    public List<GameRatingBatchResultDTO> saveBatch(User user, List<GameRating> gameRatings) {
+        log.debug("Request to save a batch of {} GameRatings of User : {}", gameRatings.size(), user.getLogin());
+        List<GameRatingBatchResultDTO> results = new ArrayList<>(gameRatings.size());
+        Set<Long> gameIds = new HashSet<>();
+        for (GameRating gameRating : gameRatings) {
+            Long gameId = gameIdOf(gameRating);
+            GameRatingBatchResultDTO result = new GameRatingBatchResultDTO(results.size(), gameId, gameRating.getScore());
+            if (gameId == null || gameRating.getScore() == null) {
+                result.setStatus(GameRatingBatchResultDTO.Status.INVALID);
+            } else {
+                gameIds.add(gameId);
+            }
+            results.add(result);
+        }
+        Set<Long> existingGameIds = gameIds.isEmpty() ? new HashSet<>() : new HashSet<>(gameRepository.findExistingIds(gameIds));
+
+        // Sorted by game id, the order the aggregates are locked in
+        Map<Long, GameRatingBatchResultDTO> latest = new TreeMap<>();
+        for (GameRatingBatchResultDTO result : results) {
+            if (result.getStatus() != null) {
+                continue;
+            }
+            if (!existingGameIds.contains(result.getGameId())) {
+                result.setStatus(GameRatingBatchResultDTO.Status.GAME_NOT_FOUND);
+                continue;
+            }
+            GameRatingBatchResultDTO superseded = latest.put(result.getGameId(), result);
+            if (superseded != null) {
+                superseded.setStatus(GameRatingBatchResultDTO.Status.SUPERSEDED);
+            }
+        }
+        if (latest.isEmpty()) {
+            return results;
+        }
+
+        for (Long gameId : latest.keySet()) {
+            gameRatingStatsService.lock(gameId);
+        }
+        Map<Long, Object[]> previous = new HashMap<>();
+        for (Object[] row : gameRatingRepository.findIdAndScoreOfGames(user.getId(), latest.keySet())) {
+            previous.put((Long) row[0], row);
+        }
+        List<GameRating> writes = new ArrayList<>(latest.size());
+        for (GameRatingBatchResultDTO result : latest.values()) {
+            Game game = new Game();
+            game.setId(result.getGameId());
+            writes.add(new GameRating().score(result.getScore())
+                .scoreDateTime(gameRatings.get(result.getIndex()).getScoreDateTime()).user(user).game(game));
+        }
+        gameRatingJdbcRepository.saveScores(writes);
+
+        for (Object[] row : gameRatingRepository.findIdAndScoreOfGames(user.getId(), latest.keySet())) {
+            GameRatingBatchResultDTO result = latest.get(row[0]);
+            Object[] before = previous.get(row[0]);
+            result.setId((Long) row[1]);
+            if (before == null) {
+                result.setStatus(GameRatingBatchResultDTO.Status.CREATED);
+                gameRatingStatsService.ratingChanged(null, null, result.getGameId(), result.getScore());
+            } else {
+                result.setStatus(GameRatingBatchResultDTO.Status.UPDATED);
+                gameRatingStatsService.ratingChanged(result.getGameId(), (Integer) before[2], result.getGameId(), result.getScore());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Save a batch of scores with JDBC batches, and apply their net change to the rating aggregates of their games.
+     * <p>
+     * The ratings are identified by the login of their user and the id of their game, and replace the rating
+     * that user already gave to that game, if any, unless that rating is dated after it: a rating written
+     * synchronously while an older one of the same user waited in a buffer is kept. When the batch holds several
+     * ratings of the same user for the same game, the last one wins. Ratings of unknown users or games are
+     * dropped. The aggregates are locked in game id order, then the ratings the batch replaces are read with one
+     * query.
+     * </p>
+     *
+     * @param ratings the ratings to save, with the login of their user, the id of their game, a score and a date
+     * @return the ratings dropped because their user or their game does not exist
+     */
+    public List<GameRating> saveScores(List<GameRating> ratings) {
+        log.debug("Request to save {} GameRating scores", ratings.size());
+        Set<String> logins = new HashSet<>();
+        Set<Long> gameIds = new HashSet<>();
+        for (GameRating rating : ratings) {
+            logins.add(rating.getUser().getLogin());
+            gameIds.add(rating.getGame().getId());
+        }
+        Map<String, Long> userIds = new HashMap<>();
+        for (User user : userRepository.findAllByLoginIn(logins)) {
+            userIds.put(user.getLogin(), user.getId());
+        }
+        Set<Long> existingGameIds = new HashSet<>(gameRepository.findExistingIds(gameIds));
+
+        List<GameRating> dropped = new ArrayList<>();
+        Map<List<Long>, GameRating> latest = new LinkedHashMap<>();
+        for (GameRating rating : ratings) {
+            Long userId = userIds.get(rating.getUser().getLogin());
+            Long gameId = rating.getGame().getId();
+            if (userId == null || !existingGameIds.contains(gameId)) {
+                log.warn("Dropping the rating of Game {} by unknown user or game : {}", gameId, rating.getUser().getLogin());
+                dropped.add(rating);
+                continue;
+            }
+            User user = new User();
+            user.setId(userId);
+            Game game = new Game();
+            game.setId(gameId);
+            GameRating write = new GameRating().score(rating.getScore()).scoreDateTime(rating.getScoreDateTime())
+                .user(user).game(game);
+            List<Long> key = Arrays.asList(userId, gameId);
+            latest.remove(key);
+            latest.put(key, write);
+        }
+        if (latest.isEmpty()) {
+            return dropped;
+        }
+
+        // Sorted by game id, the order the aggregates are locked in
+        Set<Long> lockedIds = new TreeSet<>();
+        Set<Long> writerIds = new HashSet<>();
+        for (GameRating write : latest.values()) {
+            lockedIds.add(write.getGame().getId());
+            writerIds.add(write.getUser().getId());
+        }
+        for (Long gameId : lockedIds) {
+            gameRatingStatsService.lock(gameId);
+        }
+        Map<List<Long>, Object[]> stored = new HashMap<>();
+        for (Object[] row : gameRatingRepository.findScoresOfUsersAndGames(writerIds, lockedIds)) {
+            List<Long> key = Arrays.asList((Long) row[0], (Long) row[1]);
+            GameRating write = latest.get(key);
+            if (write != null && row[3] != null && ((ZonedDateTime) row[3]).isAfter(write.getScoreDateTime())) {
+                // Written after this rating was accepted: the stored rating is the last one
+                latest.remove(key);
+            } else if (write != null) {
+                stored.put(key, row);
+            }
+        }
+        Map<Long, GameRatingDelta> deltas = new TreeMap<>();
+        for (Map.Entry<List<Long>, GameRating> write : latest.entrySet()) {
+            GameRatingDelta delta = deltas.computeIfAbsent(write.getValue().getGame().getId(), gameId -> new GameRatingDelta());
+            if (write.getValue().getScore() != null) {
+                delta.add(write.getValue().getScore());
+            }
+            Object[] row = stored.get(write.getKey());
+            if (row != null && row[2] != null) {
+                delta.remove((Integer) row[2]);
+            }
+        }
+        if (!latest.isEmpty()) {
+            gameRatingJdbcRepository.saveScores(new ArrayList<>(latest.values()));
+        }
+        for (Map.Entry<Long, GameRatingDelta> delta : deltas.entrySet()) {
+            gameRatingStatsService.ratingsChanged(delta.getKey(), delta.getValue());
+        }
+        return dropped;
+    }
+
     /**
      *  Get all the gameRatings.
      *  
@@ -49,6 +317,41 @@ public class GameRatingService {
         return result;
     }
 
+    /**
+     *  Get a page of the gameRatings, without counting them.
+     *
+     *  @param pageable the pagination information
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<GameRating> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of GameRatings");
+        return gameRatingRepository.findSlice(pageable);
+    }
+
+    /**
+     *  Get the number of gameRatings, as counted at most a few minutes ago.
+     *
+     *  @return the approximate number of entities
+     */
+    @Transactional(readOnly = true)
+    public long countApproximately() {
+        return approximateCountService.count(GameRating.class);
+    }
+
+    /**
+     *  Get a page of the gameRatings with keyset pagination.
+     *
+     *  @param cursor the position of the page
+     *  @param size the maximum number of entities to return
+     *  @return the page of entities, with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<GameRating> findAll(KeysetCursor cursor, int size) {
+        log.debug("Request to get a page of GameRatings : {}", cursor);
+        return keysetRepository.findPage(GameRating.class, cursor, size, "user", "game.localTeam", "game.visitorTeam");
+    }
+
     /**
      *  Get one gameRating by id.
      *
@@ -62,6 +365,48 @@ public class GameRatingService {
         return gameRating;
     }
 
+    /**
+     *  Get the requested fields of all the gameRatings.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the list of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the gameRating
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAll(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of all GameRatings", fields);
+        return projectionRepository.findAll(GameRating.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of a page of the gameRatings, without counting them.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the slice of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the gameRating
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> findSlice(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of a slice of GameRatings", fields);
+        return projectionRepository.findSlice(GameRating.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of one gameRating by id.
+     *
+     *  @param fields the fields to read
+     *  @param id the id of the entity
+     *  @return the fields of the entity, null if there is no such entity
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the gameRating
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findOne(Fields fields, Long id) {
+        log.debug("Request to get the fields {} of GameRating : {}", fields, id);
+        return projectionRepository.findOne(GameRating.class, fields, id);
+    }
+
     /**
      *  Delete the  gameRating by id.
      *
@@ -69,6 +414,50 @@ public class GameRatingService {
      */
     public void delete(Long id) {
         log.debug("Request to delete GameRating : {}", id);
+        Object[] previous = lockAndReadPrevious(id, null);
         gameRatingRepository.delete(id);
+        if (previous != null) {
+            gameRatingStatsService.ratingChanged((Long) previous[0], (Integer) previous[1], null, null);
+        }
+    }
+
+    /**
+     * Lock the aggregates of the game of a rating and of the game it is written to, in game id order, then read
+     * the rating with a locking read. A rating moved to another game meanwhile gets the aggregate of that game
+     * locked too, and is read again.
+     *
+     * @param id the id of the rating
+     * @param gameId the game the rating is written to, null if it is deleted
+     * @return [gameId, score] of the rating, or null if there is no such rating
+     */
+    private Object[] lockAndReadPrevious(Long id, Long gameId) {
+        // Only tells which aggregates to lock: the rating is not locked before them, like in the other writes
+        GameRating current = gameRatingRepository.findOne(id);
+        Long previousGameId = current == null ? null : gameIdOf(current);
+        Set<Long> lockedIds = new HashSet<>();
+        while (true) {
+            Set<Long> gameIds = new TreeSet<>();
+            if (gameId != null) {
+                gameIds.add(gameId);
+            }
+            if (previousGameId != null) {
+                gameIds.add(previousGameId);
+            }
+            for (Long lockedId : gameIds) {
+                if (lockedIds.add(lockedId)) {
+                    gameRatingStatsService.lock(lockedId);
+                }
+            }
+            List<Object[]> rows = gameRatingRepository.findGameIdAndScoreForUpdate(id);
+            Object[] previous = rows.isEmpty() ? null : rows.get(0);
+            previousGameId = previous == null ? null : (Long) previous[0];
+            if (previousGameId == null || lockedIds.contains(previousGameId)) {
+                return previous;
+            }
+        }
+    }
+
+    private Long gameIdOf(GameRating gameRating) {
+        return gameRating.getGame() == null ? null : gameRating.getGame().getId();
     }
 }
@@ -0,0 +1,384 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.GameRatingStats;
+import com.stucom.basketball.repository.GameRatingRepository;
+import com.stucom.basketball.repository.GameRatingStatsRepository;
+import com.stucom.basketball.service.dto.GameRatingHistogramDTO;
+import com.stucom.basketball.service.util.GameRatingDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Service maintaining the per-game rating aggregates (GameRatingStats).
+ *
+ * <p>
+ * Every write goes through a row lock on the aggregate of the game, so concurrent ratings of the
+ * same game are applied one after the other and the reconciliation job can recompute a game
+ * without racing with them.
+ * </p>
+ */
+@Service
+@Transactional
+public class GameRatingStatsService {
+
+    private final Logger log = LoggerFactory.getLogger(GameRatingStatsService.class);
+
+    @Inject
+    private GameRatingStatsRepository gameRatingStatsRepository;
+
+    @Inject
+    private GameRatingRepository gameRatingRepository;
+
+    @Inject
+    private GameLeaderboardService gameLeaderboardService;
+
+    /**
+     * Create the empty aggregate of a new game.
+     *
+     * @param gameId the id of the game
+     */
+    public void initialize(Long gameId) {
+        log.debug("Request to initialize GameRatingStats : {}", gameId);
+        if (!gameRatingStatsRepository.exists(gameId)) {
+            // Published unranked, so the leaderboard knows every game that can be rated
+            gameLeaderboardService.updateAfterCommit(gameRatingStatsRepository.save(new GameRatingStats(gameId)));
+        }
+    }
+
+    /**
+     * Apply a rating write to the aggregates, once the write itself has been issued in the current transaction.
+     * A null game or score stands for "no rating", so this covers creation (no previous values), deletion
+     * (no new values), and updates, including moving a rating from one game to another.
+     *
+     * @param previousGameId the game the rating belonged to before the write
+     * @param previousScore the score before the write
+     * @param gameId the game the rating belongs to after the write
+     * @param score the score after the write
+     */
+    public void ratingChanged(Long previousGameId, Integer previousScore, Long gameId, Integer score) {
+        boolean removes = previousGameId != null && previousScore != null;
+        boolean adds = gameId != null && score != null;
+        if (removes && adds && previousGameId.equals(gameId) && previousScore.equals(score)) {
+            return;
+        }
+        if (removes && adds && previousGameId.equals(gameId)) {
+            GameRatingStats stats = lockForChange(gameId);
+            if (stats != null && !remove(stats, previousScore, 1)) {
+                add(stats, score, 1);
+            }
+            return;
+        }
+        // Lock in id order so two writers moving ratings between the same games cannot deadlock
+        if (removes && adds && previousGameId > gameId) {
+            lock(gameId);
+        }
+        if (removes) {
+            GameRatingStats stats = lockForChange(previousGameId);
+            if (stats != null) {
+                remove(stats, previousScore, 1);
+            }
+        }
+        if (adds) {
+            GameRatingStats stats = lockForChange(gameId);
+            if (stats != null) {
+                add(stats, score, 1);
+            }
+        }
+    }
+
+    /**
+     * Apply the net change of a batch of rating writes of a game to its aggregate, once the writes have been
+     * issued in the current transaction. The caller locks the aggregate with {@link #lock} before reading the
+     * scores the batch replaces, like any other writer.
+     *
+     * @param gameId the id of the game
+     * @param delta the scores the batch removed and added
+     */
+    public void ratingsChanged(Long gameId, GameRatingDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        GameRatingStats stats = lockForChange(gameId);
+        if (stats == null) {
+            return;
+        }
+        for (Map.Entry<Integer, Integer> count : delta.getCounts().entrySet()) {
+            if (count.getValue() < 0 && remove(stats, count.getKey(), -count.getValue())) {
+                return;
+            }
+        }
+        for (Map.Entry<Integer, Integer> count : delta.getCounts().entrySet()) {
+            if (count.getValue() > 0) {
+                add(stats, count.getKey(), count.getValue());
+            }
+        }
+    }
+
+    /**
+     *  Get the aggregate of one game.
+     *
+     *  @param gameId the id of the game
+     *  @return the aggregate, or null if the game has none
+     */
+    @Transactional(readOnly = true)
+    public GameRatingStats findOne(Long gameId) {
+        log.debug("Request to get GameRatingStats : {}", gameId);
+        return gameRatingStatsRepository.findOne(gameId);
+    }
+
+    /**
+     *  Get the distribution of the scores of one game, from GameRatingStats.HISTOGRAM_MIN_SCORE to
+     *  GameRatingStats.HISTOGRAM_MAX_SCORE. Read from the aggregate of the game; an aggregate not given
+     *  a histogram yet gets it from the (game_id, score) index, without saving it.
+     *
+     *  @param gameId the id of the game
+     *  @return the distribution, empty if the game has no aggregate
+     */
+    @Transactional(readOnly = true)
+    public GameRatingHistogramDTO findHistogram(Long gameId) {
+        GameRatingStats stats = gameRatingStatsRepository.findOne(gameId);
+        if (stats == null) {
+            stats = new GameRatingStats(gameId);
+        } else if (stats.getHistogram() == null) {
+            stats = new GameRatingStats(gameId);
+            apply(stats, gameRatingRepository.countScoresOfGame(gameId));
+        }
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        int[] histogram = stats.getHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            counts.put(i + GameRatingStats.HISTOGRAM_MIN_SCORE, histogram[i]);
+        }
+        return new GameRatingHistogramDTO(gameId, stats.getNumRatings(), stats.getAverage(), counts);
+    }
+
+    /**
+     *  Get the average score of one game.
+     *
+     *  @param gameId the id of the game
+     *  @return the average, or null if the game has no ratings
+     */
+    @Transactional(readOnly = true)
+    public Double findAverage(Long gameId) {
+        GameRatingStats stats = gameRatingStatsRepository.findOne(gameId);
+        return stats == null ? null : stats.getAverage();
+    }
+
+    /**
+     *  Get the average scores of several games, with one query.
+     *
+     *  @param gameIds the ids of the games
+     *  @return the average of each game that has ratings, by game id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Double> findAverages(Collection<Long> gameIds) {
+        log.debug("Request to get the averages of Games : {}", gameIds);
+        Map<Long, Double> averages = new HashMap<>();
+        if (gameIds.isEmpty()) {
+            return averages;
+        }
+        for (GameRatingStats stats : gameRatingStatsRepository.findAll(gameIds)) {
+            if (stats.getAverage() != null) {
+                averages.put(stats.getGameId(), stats.getAverage());
+            }
+        }
+        return averages;
+    }
+
+    /**
+     *  Delete the aggregate of a game, before the game itself is deleted.
+     *
+     *  @param gameId the id of the game
+     */
+    public void delete(Long gameId) {
+        log.debug("Request to delete GameRatingStats : {}", gameId);
+        if (gameRatingStatsRepository.exists(gameId)) {
+            gameRatingStatsRepository.delete(gameId);
+        }
+        gameLeaderboardService.removeAfterCommit(gameId);
+    }
+
+    /**
+     * Rebuild the aggregates from the game_rating table.
+     * <p>
+     * The aggregates are compared against one grouped query; only the games that differ are locked and
+     * recomputed, so a mismatch caused by a write running at the same time is not "fixed" into a wrong value.
+     * </p>
+     * <p>
+     * This is scheduled to get fired everyday, at 03:00 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void reconcile() {
+        Map<Long, List<Object[]>> rowsByGame = new HashMap<>();
+        for (Object[] row : gameRatingRepository.countScoresByGame()) {
+            rowsByGame.computeIfAbsent((Long) row[0], gameId -> new ArrayList<>()).add(row);
+        }
+        Map<Long, GameRatingStats> expected = new HashMap<>();
+        for (Map.Entry<Long, List<Object[]>> rows : rowsByGame.entrySet()) {
+            GameRatingStats stats = new GameRatingStats(rows.getKey());
+            apply(stats, rows.getValue());
+            expected.put(rows.getKey(), stats);
+        }
+        int fixed = 0;
+        for (GameRatingStats stats : gameRatingStatsRepository.findAll()) {
+            if (!matches(stats, expected.remove(stats.getGameId()))) {
+                recompute(stats.getGameId());
+                fixed++;
+            }
+        }
+        for (Long gameId : expected.keySet()) {
+            recompute(gameId);
+            fixed++;
+        }
+        if (fixed > 0) {
+            log.warn("Reconciled the rating aggregates of {} games", fixed);
+        }
+    }
+
+    /**
+     * Lock the aggregate of a game for the rest of the transaction. Every aggregate that is locked may be
+     * modified, so it is also published to the leaderboard when the transaction commits.
+     * <p>
+     * Writers lock the aggregate before reading the rating they replace, so that read cannot be outdated
+     * by a concurrent write of the same game.
+     * </p>
+     *
+     * @param gameId the id of the game
+     * @return the locked aggregate
+     */
+    public GameRatingStats lock(Long gameId) {
+        GameRatingStats stats = gameRatingStatsRepository.findOneForUpdate(gameId);
+        if (stats == null) {
+            // Games are created with their aggregate, this only happens for games inserted by other means
+            stats = gameRatingStatsRepository.saveAndFlush(new GameRatingStats(gameId));
+        }
+        gameLeaderboardService.updateAfterCommit(stats);
+        return stats;
+    }
+
+    /**
+     * Lock the aggregate of a game about to be changed by a rating write.
+     *
+     * @return the aggregate, or null if it had to be recomputed from the ratings, and so already reflects the current write
+     */
+    private GameRatingStats lockForChange(Long gameId) {
+        GameRatingStats stats = lock(gameId);
+        if (stats.getHistogram() == null) {
+            // Aggregates written before the histogram existed get it, with the rest, from the ratings
+            recompute(stats);
+            return null;
+        }
+        return stats;
+    }
+
+    private void add(GameRatingStats stats, int score, int count) {
+        stats.setSumScore(stats.getSumScore() + (long) score * count);
+        stats.setNumRatings(stats.getNumRatings() + count);
+        if (stats.getMinScore() == null || score < stats.getMinScore()) {
+            stats.setMinScore(score);
+        }
+        if (stats.getMaxScore() == null || score > stats.getMaxScore()) {
+            stats.setMaxScore(score);
+        }
+        int[] histogram = stats.getHistogram().clone();
+        histogram[GameRatingStats.bucketOf(score)] += count;
+        stats.setHistogram(histogram);
+    }
+
+    /**
+     * @return true if the aggregate had to be recomputed from the ratings, and so already reflects the current write
+     */
+    private boolean remove(GameRatingStats stats, int score, int count) {
+        stats.setSumScore(stats.getSumScore() - (long) score * count);
+        stats.setNumRatings(stats.getNumRatings() - count);
+        if (stats.getNumRatings() <= 0) {
+            clear(stats);
+            return false;
+        }
+        // Whether every score has a bucket of its own, so the histogram knows the extremes
+        boolean exact = stats.getMinScore() >= GameRatingStats.HISTOGRAM_MIN_SCORE
+            && stats.getMaxScore() <= GameRatingStats.HISTOGRAM_MAX_SCORE;
+        int[] histogram = stats.getHistogram().clone();
+        histogram[GameRatingStats.bucketOf(score)] -= count;
+        stats.setHistogram(histogram);
+        if (Objects.equals(stats.getMinScore(), score) || Objects.equals(stats.getMaxScore(), score)) {
+            if (!exact) {
+                // The removed score may have been the only one at an extreme, out of the range of the histogram
+                recompute(stats);
+                return true;
+            }
+            int min = 0;
+            while (min < histogram.length - 1 && histogram[min] == 0) {
+                min++;
+            }
+            int max = histogram.length - 1;
+            while (max > 0 && histogram[max] == 0) {
+                max--;
+            }
+            stats.setMinScore(min + GameRatingStats.HISTOGRAM_MIN_SCORE);
+            stats.setMaxScore(max + GameRatingStats.HISTOGRAM_MIN_SCORE);
+        }
+        return false;
+    }
+
+    private void recompute(Long gameId) {
+        recompute(lock(gameId));
+    }
+
+    private void recompute(GameRatingStats stats) {
+        apply(stats, gameRatingRepository.countScoresOfGame(stats.getGameId()));
+    }
+
+    /**
+     * Set an aggregate from the [gameId, score, count] rows of its game.
+     */
+    private void apply(GameRatingStats stats, List<Object[]> rows) {
+        clear(stats);
+        int[] histogram = stats.getHistogram();
+        for (Object[] row : rows) {
+            int score = (Integer) row[1];
+            long count = (Long) row[2];
+            stats.setSumScore(stats.getSumScore() + score * count);
+            stats.setNumRatings(stats.getNumRatings() + count);
+            if (stats.getMinScore() == null || score < stats.getMinScore()) {
+                stats.setMinScore(score);
+            }
+            if (stats.getMaxScore() == null || score > stats.getMaxScore()) {
+                stats.setMaxScore(score);
+            }
+            histogram[GameRatingStats.bucketOf(score)] += count;
+        }
+    }
+
+    private void clear(GameRatingStats stats) {
+        stats.setSumScore(0L);
+        stats.setNumRatings(0L);
+        stats.setMinScore(null);
+        stats.setMaxScore(null);
+        stats.setHistogram(new int[GameRatingStats.HISTOGRAM_MAX_SCORE - GameRatingStats.HISTOGRAM_MIN_SCORE + 1]);
+    }
+
+    private boolean matches(GameRatingStats stats, GameRatingStats expected) {
+        if (expected == null) {
+            return stats.getNumRatings() == 0 && stats.getHistogram() != null;
+        }
+        return Objects.equals(stats.getSumScore(), expected.getSumScore())
+            && Objects.equals(stats.getNumRatings(), expected.getNumRatings())
+            && Objects.equals(stats.getMinScore(), expected.getMinScore())
+            && Objects.equals(stats.getMaxScore(), expected.getMaxScore())
+            && Arrays.equals(stats.getHistogram(), expected.getHistogram());
+    }
+}
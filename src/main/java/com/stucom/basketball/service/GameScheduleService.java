@@ -0,0 +1,162 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.service.dto.GameScheduleDTO;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Service for the schedule of the games, by day.
+ *
+ * <p>
+ * The games of a range of days are read with one query on the (start_time, id) index, as lightweight DTOs. A past
+ * day whose games have all finished does not change any more: its games are kept in the "gameScheduleDays" cache,
+ * so only the days still being played, and the days not cached yet, are read again. A game write evicts the days
+ * of the game, before and after the write, once it commits.
+ * </p>
+ * <p>
+ * The stamps of the days are taken before the query and each eviction bumps the stamp of its day first, so a day
+ * read before a write committed, and cached after the write evicted it, is dropped instead of being served stale.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class GameScheduleService {
+
+    /** Name of the cache of the past days, configured in "jhipster.cache.regions" */
+    public static final String DAYS_CACHE = "gameScheduleDays";
+
+    /** Maximum number of days read at once */
+    public static final int MAX_DAYS = 62;
+
+    private static final int STRIPES = 1024;
+
+    private final Logger log = LoggerFactory.getLogger(GameScheduleService.class);
+
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    /**
+     *  Get the games starting between two days.
+     *
+     *  @param from the first day
+     *  @param to the last day, included
+     *  @return the games, by day then id
+     *  @throws IllegalArgumentException if the last day is before the first one, or there are more than
+     *  {@link #MAX_DAYS} days
+     */
+    public List<GameScheduleDTO> findBetween(LocalDate from, LocalDate to) {
+        log.debug("Request to get the Games from {} to {}", from, to);
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new IllegalArgumentException("A range of 1 to " + MAX_DAYS + " days is expected");
+        }
+        Cache cache = cacheManager.getCache(DAYS_CACHE);
+        LocalDate today = LocalDate.now();
+        // Taken before any query of the transaction, which may read from a snapshot of its first one
+        long[] dayStamps = new long[(int) ChronoUnit.DAYS.between(from, to) + 1];
+        for (int i = 0; i < dayStamps.length; i++) {
+            dayStamps[i] = stamps.get(stripeOf(from.plusDays(i)));
+        }
+        List<GameScheduleDTO> result = new ArrayList<>();
+        // First day of the days not cached, read with one query
+        LocalDate missing = null;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            List<GameScheduleDTO> games = day.isBefore(today) ? getCached(cache, day) : null;
+            if (games == null) {
+                if (missing == null) {
+                    missing = day;
+                }
+                continue;
+            }
+            if (missing != null) {
+                result.addAll(load(cache, missing, day.minusDays(1), today, dayStamps, from));
+                missing = null;
+            }
+            result.addAll(games);
+        }
+        if (missing != null) {
+            result.addAll(load(cache, missing, to, today, dayStamps, from));
+        }
+        return result;
+    }
+
+    /**
+     * Evict the days of a game once the current transaction commits (right away if there is none).
+     *
+     * @param days the days the game started, before and after its write; null days are ignored
+     */
+    public void evictAfterCommit(LocalDate... days) {
+        TransactionUtil.afterCommit(() -> {
+            Cache cache = cacheManager.getCache(DAYS_CACHE);
+            for (LocalDate day : days) {
+                if (day != null) {
+                    stamps.incrementAndGet(stripeOf(day));
+                    if (cache != null) {
+                        cache.evict(day);
+                    }
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<GameScheduleDTO> getCached(Cache cache, LocalDate day) {
+        return cache == null ? null : cache.get(day, List.class);
+    }
+
+    private static int stripeOf(LocalDate day) {
+        return (int) Math.floorMod(day.toEpochDay(), STRIPES);
+    }
+
+    /**
+     * Read the games of a range of days, and cache the past days whose games have all finished, unless a write of
+     * the day committed since its stamp was taken.
+     *
+     * @param dayStamps the stamps of the days requested, taken before any query, starting at {@code first}
+     */
+    private List<GameScheduleDTO> load(Cache cache, LocalDate from, LocalDate to, LocalDate today, long[] dayStamps,
+                                       LocalDate first) {
+        List<GameScheduleDTO> result = new ArrayList<>();
+        for (Object[] row : gameRepository.findSchedule(from, to)) {
+            result.add(new GameScheduleDTO(row));
+        }
+        if (cache == null) {
+            return result;
+        }
+        int index = 0;
+        for (LocalDate day = from; !day.isAfter(to) && day.isBefore(today); day = day.plusDays(1)) {
+            List<GameScheduleDTO> games = new ArrayList<>();
+            boolean finished = true;
+            for (; index < result.size() && result.get(index).getStartTime().equals(day); index++) {
+                games.add(result.get(index));
+                finished &= result.get(index).getFinishTime() != null;
+            }
+            if (finished) {
+                cache.putIfAbsent(day, Collections.unmodifiableList(games));
+                if (stamps.get(stripeOf(day)) != dayStamps[(int) ChronoUnit.DAYS.between(first, day)]) {
+                    // A write of the day may have committed after the query: do not keep what it read
+                    cache.evict(day);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -1,16 +1,28 @@
 package com.stucom.basketball.service;
 
 import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.repository.KeysetRepository;
+import com.stucom.basketball.repository.ProjectionRepository;
 import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.service.dto.GameScoreDTO;
+import com.stucom.basketball.service.util.GameResult;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetPage;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service Implementation for managing Game.
@@ -19,11 +31,44 @@ import java.util.List;
 @Transactional
 public class GameService {
 
+    /** Properties, besides the id, the games can be listed by with keyset pagination: each has a (property, id) index */
+    public static final List<String> KEYSET_PROPERTIES = Arrays.asList("name", "startTime");
+
     private final Logger log = LoggerFactory.getLogger(GameService.class);
     
     @Inject
     private GameRepository gameRepository;
 
+    @Inject
+    private KeysetRepository keysetRepository;
+
+    @Inject
+    private ProjectionRepository projectionRepository;
+
+    @Inject
+    private ApproximateCountService approximateCountService;
+
+    @Inject
+    private GameRatingStatsService gameRatingStatsService;
+
+    @Inject
+    private GameEventService gameEventService;
+
+    @Inject
+    private GameLiveService gameLiveService;
+
+    @Inject
+    private TeamStandingService teamStandingService;
+
+    @Inject
+    private TeamRatingService teamRatingService;
+
+    @Inject
+    private HeadToHeadService headToHeadService;
+
+    @Inject
+    private GameScheduleService gameScheduleService;
+
     /**
      * Save a game.
      *
@@ -32,7 +77,29 @@ public class GameService {
      */
     public Game save(Game game) {
         log.debug("Request to save Game : {}", game);
+        boolean created = game.getId() == null;
+        // Read before the save: if the game changed since the version it was read at, the version check fails the save
+        GameResult previous = created ? null : findResult(game.getId());
+        LocalDate previousDay = created ? null : gameRepository.findStartTime(game.getId());
         Game result = gameRepository.save(game);
+        if (created) {
+            gameRatingStatsService.initialize(result.getId());
+        }
+        gameScheduleService.evictAfterCommit(previousDay, result.getStartTime());
+        GameResult current = GameResult.of(result);
+        if ((previous != null && previous.isFinished()) || current.isFinished()) {
+            // Locks the game before the records of its teams, in the order the appends of events lock them
+            gameRepository.flush();
+            teamStandingService.gameChanged(previous, current);
+            headToHeadService.gameChanged(previous, current);
+            teamRatingService.gameChangedAfterCommit(result.getId(), result.getVersion(), previous, current);
+        }
+        // The teams of an updated game are merged as lazy references: read them for the response
+        Hibernate.initialize(result.getLocalTeam());
+        Hibernate.initialize(result.getVisitorTeam());
+        if (!created && gameLiveService.hasSubscribers(result.getId())) {
+            gameLiveService.publishAfterCommit(result);
+        }
         return result;
     }
 
@@ -49,6 +116,41 @@ public class GameService {
         return result;
     }
 
+    /**
+     *  Get a page of the games, without counting them.
+     *
+     *  @param pageable the pagination information
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Game> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of Games");
+        return gameRepository.findSlice(pageable);
+    }
+
+    /**
+     *  Get the number of games, as counted at most a few minutes ago.
+     *
+     *  @return the approximate number of entities
+     */
+    @Transactional(readOnly = true)
+    public long countApproximately() {
+        return approximateCountService.count(Game.class);
+    }
+
+    /**
+     *  Get a page of the games with keyset pagination.
+     *
+     *  @param cursor the position of the page
+     *  @param size the maximum number of entities to return
+     *  @return the page of entities, with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Game> findAll(KeysetCursor cursor, int size) {
+        log.debug("Request to get a page of Games : {}", cursor);
+        return keysetRepository.findPage(Game.class, cursor, size, "localTeam", "visitorTeam");
+    }
+
     /**
      *  Get one game by id.
      *
@@ -62,6 +164,61 @@ public class GameService {
         return game;
     }
 
+    /**
+     *  Get the requested fields of all the games.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the list of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the game
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAll(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of all Games", fields);
+        return projectionRepository.findAll(Game.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of a page of the games, without counting them.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the slice of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the game
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> findSlice(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of a slice of Games", fields);
+        return projectionRepository.findSlice(Game.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of one game by id.
+     *
+     *  @param fields the fields to read
+     *  @param id the id of the entity
+     *  @return the fields of the entity, null if there is no such entity
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the game
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findOne(Fields fields, Long id) {
+        log.debug("Request to get the fields {} of Game : {}", fields, id);
+        return projectionRepository.findOne(Game.class, fields, id);
+    }
+
+    /**
+     *  Get the score of a game.
+     *
+     *  @param id the id of the game
+     *  @return the score, null if there is no such game
+     */
+    @Transactional(readOnly = true)
+    public GameScoreDTO findScore(Long id) {
+        log.debug("Request to get the score of Game : {}", id);
+        List<Object[]> scores = gameRepository.findScores(id);
+        return scores.isEmpty() ? null : new GameScoreDTO(id, (Integer) scores.get(0)[0], (Integer) scores.get(0)[1], (Long) scores.get(0)[2]);
+    }
+
     /**
      *  Delete the  game by id.
      *
@@ -69,6 +226,22 @@ public class GameService {
      */
     public void delete(Long id) {
         log.debug("Request to delete Game : {}", id);
+        gameRatingStatsService.delete(id);
+        gameEventService.delete(id);
+        GameResult previous = findResult(id);
+        gameScheduleService.evictAfterCommit(gameRepository.findStartTime(id));
         gameRepository.delete(id);
+        if (previous != null && previous.isFinished()) {
+            gameRepository.flush();
+            teamStandingService.gameChanged(previous, null);
+            headToHeadService.gameChanged(previous, null);
+            teamRatingService.gameDeletedAfterCommit(id);
+        }
+        gameLiveService.closeAfterCommit(id);
+    }
+
+    private GameResult findResult(Long id) {
+        List<Object[]> results = gameRepository.findResult(id);
+        return results.isEmpty() ? null : GameResult.of(results.get(0));
     }
 }
@@ -0,0 +1,198 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.service.dto.GameTrendDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory count of the ratings each game received over the last hour, 6 hours and 24 hours.
+ *
+ * <p>
+ * Each game has a ring buffer of one bucket per minute over the last 24 hours, plus the running total of
+ * each window, so a rating and the passing of a minute are both constant-time. Every minute the buffers are
+ * moved forward, the games without ratings in the last 24 hours are dropped (memory is bounded by the games
+ * rated in a day), and the ranking of each window is rebuilt. Queries read that ranking.
+ * </p>
+ * <p>
+ * Nothing is persisted: after a restart the trends start again from zero.
+ * </p>
+ */
+@Service
+public class GameTrendingService {
+
+    /**
+     * The windows the games are ranked on.
+     */
+    public enum Window {
+        HOUR("1h", 60),
+        SIX_HOURS("6h", 6 * 60),
+        DAY("24h", 24 * 60);
+
+        private final String code;
+        private final int minutes;
+
+        Window(String code, int minutes) {
+            this.code = code;
+            this.minutes = minutes;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * @param code the code of a window, as in "1h"
+         * @return the window, or null if there is none with that code
+         */
+        public static Window fromCode(String code) {
+            for (Window window : values()) {
+                if (window.code.equals(code)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Maximum number of games kept in the ranking of each window */
+    public static final int MAX_RANKED = 100;
+
+    private static final int BUCKETS = 24 * 60;
+
+    private final Logger log = LoggerFactory.getLogger(GameTrendingService.class);
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private volatile Map<Window, List<GameTrendDTO>> rankings = new EnumMap<>(Window.class);
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * Count a rating of a game, now.
+     *
+     * @param gameId the id of the game
+     */
+    public void record(Long gameId) {
+        long minute = currentMinute();
+        counters.compute(gameId, (id, counter) -> {
+            if (counter == null) {
+                counter = new Counter(minute);
+            }
+            counter.add(minute);
+            return counter;
+        });
+    }
+
+    /**
+     * @param window the window
+     * @param limit the maximum number of games to return, at most {@link #MAX_RANKED}
+     * @return the games with the most ratings over the window, as of the last refresh, most rated first
+     */
+    public List<GameTrendDTO> findTrending(Window window, int limit) {
+        List<GameTrendDTO> ranking = rankings.getOrDefault(window, Collections.emptyList());
+        return ranking.subList(0, Math.max(0, Math.min(limit, ranking.size())));
+    }
+
+    /**
+     * Move every game to the current minute, drop the games without ratings in the last 24 hours, and rebuild
+     * the rankings.
+     * <p>
+     * This is scheduled to get fired every minute.
+     * </p>
+     */
+    @Scheduled(cron = "0 * * * * ?")
+    public void refresh() {
+        long minute = currentMinute();
+        Map<Window, List<GameTrendDTO>> trends = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            trends.put(window, new ArrayList<>());
+        }
+        for (Long gameId : counters.keySet()) {
+            Counter kept = counters.computeIfPresent(gameId, (id, counter) -> {
+                counter.advance(minute);
+                return counter.total(Window.DAY) == 0 ? null : counter;
+            });
+            if (kept == null) {
+                continue;
+            }
+            for (Window window : Window.values()) {
+                long total = kept.total(window);
+                if (total > 0) {
+                    trends.get(window).add(new GameTrendDTO(gameId, total));
+                }
+            }
+        }
+        Comparator<GameTrendDTO> byRatings = Comparator.comparing(GameTrendDTO::getRatings).reversed()
+            .thenComparing(GameTrendDTO::getGameId);
+        Map<Window, List<GameTrendDTO>> ranked = new EnumMap<>(Window.class);
+        for (Map.Entry<Window, List<GameTrendDTO>> trend : trends.entrySet()) {
+            List<GameTrendDTO> ranking = trend.getValue();
+            ranking.sort(byRatings);
+            ranked.put(trend.getKey(), Collections.unmodifiableList(
+                new ArrayList<>(ranking.subList(0, Math.min(MAX_RANKED, ranking.size())))));
+        }
+        rankings = ranked;
+        log.debug("Refreshed the trending games, {} games rated in the last 24 hours", counters.size());
+    }
+
+    private long currentMinute() {
+        return clock.millis() / 60000;
+    }
+
+    /**
+     * The ratings of one game by minute, over the last 24 hours.
+     */
+    private static class Counter {
+
+        private final int[] buckets = new int[BUCKETS];
+
+        private final long[] totals = new long[Window.values().length];
+
+        private long minute;
+
+        private Counter(long minute) {
+            this.minute = minute;
+        }
+
+        private synchronized void add(long now) {
+            advance(now);
+            buckets[(int) (minute % BUCKETS)]++;
+            for (int i = 0; i < totals.length; i++) {
+                totals[i]++;
+            }
+        }
+
+        private synchronized void advance(long now) {
+            if (now - minute >= BUCKETS) {
+                Arrays.fill(buckets, 0);
+                Arrays.fill(totals, 0);
+                minute = now;
+                return;
+            }
+            while (minute < now) {
+                minute++;
+                // The bucket of minute - window.minutes leaves each window
+                for (Window window : Window.values()) {
+                    totals[window.ordinal()] -= buckets[(int) ((minute - window.minutes) % BUCKETS)];
+                }
+                buckets[(int) (minute % BUCKETS)] = 0;
+            }
+        }
+
+        private synchronized long total(Window window) {
+            return totals[window.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.repository.HeadToHeadJdbcRepository;
+import com.stucom.basketball.repository.TeamRepository;
+import com.stucom.basketball.service.dto.HeadToHeadDTO;
+import com.stucom.basketball.service.util.GameResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Service maintaining the all-time records between pairs of teams (head_to_head).
+ *
+ * <p>
+ * Like the standings, a game write removes the previous result of the game from the record of its pair of teams
+ * and adds its new one, with one atomic update per pair, so the record of two teams is read with one primary key
+ * lookup instead of a query over their games. The verification job recounts the pairs whose record differs from
+ * their games.
+ * </p>
+ */
+@Service
+@Transactional
+public class HeadToHeadService {
+
+    private static final Comparator<long[]> PAIR_ORDER = Comparator.<long[]>comparingLong(pair -> pair[0])
+        .thenComparingLong(pair -> pair[1]);
+
+    private final Logger log = LoggerFactory.getLogger(HeadToHeadService.class);
+
+    @Inject
+    private HeadToHeadJdbcRepository headToHeadJdbcRepository;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    /**
+     * Apply a game write to the records, in the transaction of the write, once the write itself has been flushed.
+     * A null result stands for "no game", so this covers creation, deletion and updates.
+     *
+     * @param previous the result of the game before the write
+     * @param current the result of the game after the write
+     */
+    public void gameChanged(GameResult previous, GameResult current) {
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        // Sorted by pair, the order the records are locked in
+        Map<long[], int[]> deltas = new TreeMap<>(PAIR_ORDER);
+        addResult(deltas, previous, -1);
+        addResult(deltas, current, 1);
+        for (Map.Entry<long[], int[]> entry : deltas.entrySet()) {
+            if (!Arrays.equals(entry.getValue(), new int[4])) {
+                headToHeadJdbcRepository.addToRecord(entry.getKey()[0], entry.getKey()[1], entry.getValue());
+            }
+        }
+    }
+
+    /**
+     *  Get the all-time record of a team against an opponent.
+     *
+     *  @param teamId the id of the team
+     *  @param opponentId the id of the opponent
+     *  @return the record, null if one of the teams does not exist
+     */
+    @Transactional(readOnly = true)
+    public HeadToHeadDTO findRecord(Long teamId, Long opponentId) {
+        log.debug("Request to get the record of Team {} against Team : {}", teamId, opponentId);
+        boolean low = teamId < opponentId;
+        int[] record = headToHeadJdbcRepository.findRecord(Math.min(teamId, opponentId), Math.max(teamId, opponentId));
+        if (record == null) {
+            if (!teamRepository.exists(teamId) || !teamRepository.exists(opponentId)) {
+                return null;
+            }
+            record = new int[4];
+        }
+        return new HeadToHeadDTO(teamId, opponentId, record[0], low ? record[1] : record[2], low ? record[2] : record[1],
+            low ? record[3] : -record[3]);
+    }
+
+    /**
+     *  Delete the records of a team, before the team itself is deleted.
+     *
+     *  @param teamId the id of the team
+     */
+    public void delete(Long teamId) {
+        log.debug("Request to delete the HeadToHead records of Team : {}", teamId);
+        headToHeadJdbcRepository.deleteTeam(teamId);
+    }
+
+    /**
+     * Check the records against the games.
+     * <p>
+     * The records are compared against one read of the finished games; only the pairs that differ are locked and
+     * counted again, from their own games.
+     * </p>
+     * <p>
+     * This is scheduled to get fired everyday, at 03:50 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 50 3 * * ?")
+    public void verify() {
+        Map<long[], int[]> expected = new TreeMap<>(PAIR_ORDER);
+        for (Object[] row : gameRepository.findAllResults()) {
+            addResult(expected, GameResult.of(row), 1);
+        }
+        Map<long[], int[]> records = new HashMap<>();
+        for (long[] row : headToHeadJdbcRepository.findAll()) {
+            records.put(new long[] {row[0], row[1]}, new int[] {(int) row[2], (int) row[3], (int) row[4], (int) row[5]});
+        }
+        int fixed = 0;
+        for (Map.Entry<long[], int[]> entry : records.entrySet()) {
+            int[] games = expected.remove(entry.getKey());
+            if (!Arrays.equals(entry.getValue(), games == null ? new int[4] : games)) {
+                recount(entry.getKey());
+                fixed++;
+            }
+        }
+        for (long[] pair : expected.keySet()) {
+            recount(pair);
+            fixed++;
+        }
+        if (fixed > 0) {
+            log.warn("Fixed the head to head records of {} pairs of teams", fixed);
+        }
+    }
+
+    /**
+     * Add a result to the record of its pair of teams, as [games, low team wins, high team wins, margin sum].
+     */
+    private static void addResult(Map<long[], int[]> records, GameResult result, int sign) {
+        if (result == null || !result.isFinished() || result.getLocalTeamId().equals(result.getVisitorTeamId())) {
+            return;
+        }
+        boolean localLow = result.getLocalTeamId() < result.getVisitorTeamId();
+        long[] pair = localLow ? new long[] {result.getLocalTeamId(), result.getVisitorTeamId()}
+            : new long[] {result.getVisitorTeamId(), result.getLocalTeamId()};
+        int lowScore = localLow ? result.getLocalScore() : result.getVisitorScore();
+        int highScore = localLow ? result.getVisitorScore() : result.getLocalScore();
+        int[] record = records.computeIfAbsent(pair, key -> new int[4]);
+        record[0] += sign;
+        record[1] += lowScore > highScore ? sign : 0;
+        record[2] += lowScore < highScore ? sign : 0;
+        record[3] += sign * (lowScore - highScore);
+    }
+
+    private void recount(long[] pair) {
+        headToHeadJdbcRepository.lockRecord(pair[0], pair[1]);
+        Map<long[], int[]> games = new TreeMap<>(PAIR_ORDER);
+        games.put(pair, new int[4]);
+        for (Object[] row : gameRepository.findResultsBetween(pair[0], pair[1])) {
+            addResult(games, GameResult.of(row), 1);
+        }
+        headToHeadJdbcRepository.setRecord(pair[0], pair[1], games.get(pair));
+    }
+}
@@ -0,0 +1,152 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.PlayerFavouriteCount;
+import com.stucom.basketball.repository.FavouritePlayerRepository;
+import com.stucom.basketball.repository.PlayerFavouriteCountRepository;
+import com.stucom.basketball.service.dto.PlayerDTO;
+import com.stucom.basketball.service.util.OffsetPageRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service maintaining the number of favourites of each player (PlayerFavouriteCount).
+ *
+ * <p>
+ * The counts are changed with one atomic update each, so concurrent favourites of the same player
+ * never lose an increment; the verification job locks a count before fixing it.
+ * </p>
+ */
+@Service
+@Transactional
+public class PlayerFavouriteCountService {
+
+    private final Logger log = LoggerFactory.getLogger(PlayerFavouriteCountService.class);
+
+    @Inject
+    private PlayerFavouriteCountRepository playerFavouriteCountRepository;
+
+    @Inject
+    private FavouritePlayerRepository favouritePlayerRepository;
+
+    /**
+     * Create the zero count of a new player.
+     *
+     * @param playerId the id of the player
+     */
+    public void initialize(Long playerId) {
+        log.debug("Request to initialize PlayerFavouriteCount : {}", playerId);
+        if (!playerFavouriteCountRepository.exists(playerId)) {
+            playerFavouriteCountRepository.save(new PlayerFavouriteCount(playerId, 0L));
+        }
+    }
+
+    /**
+     * Apply a favourite write to the counts, once the write itself has been issued in the current transaction.
+     * A null player stands for "no favourite", so this covers creation, deletion, and updates that change
+     * the player.
+     *
+     * @param previousPlayerId the player of the favourite before the write
+     * @param playerId the player of the favourite after the write
+     */
+    public void favouriteChanged(Long previousPlayerId, Long playerId) {
+        if (previousPlayerId != null && previousPlayerId.equals(playerId)) {
+            return;
+        }
+        if (previousPlayerId != null) {
+            addToCount(previousPlayerId, -1);
+        }
+        if (playerId != null) {
+            addToCount(playerId, 1);
+        }
+    }
+
+    /**
+     *  Get the most favourited players.
+     *
+     *  @param offset the number of players to skip, skipped by the database
+     *  @param limit the maximum number of players to return
+     *  @return the players with their number of favourites, most favourited first
+     */
+    @Transactional(readOnly = true)
+    public List<PlayerDTO> findTop(int offset, int limit) {
+        log.debug("Request to get the top Players : {}, {}", offset, limit);
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return playerFavouriteCountRepository.findTopPlayers(new OffsetPageRequest(offset, limit)).stream()
+            .map(row -> new PlayerDTO((Player) row[0], (Long) row[1]))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     *  Delete the count of a player, before the player itself is deleted.
+     *
+     *  @param playerId the id of the player
+     */
+    public void delete(Long playerId) {
+        log.debug("Request to delete PlayerFavouriteCount : {}", playerId);
+        if (playerFavouriteCountRepository.exists(playerId)) {
+            playerFavouriteCountRepository.delete(playerId);
+        }
+    }
+
+    /**
+     * Check the counts against the favourite_player table.
+     * <p>
+     * The counts are compared against one grouped query; only the players that differ are locked and
+     * counted again, so a mismatch caused by a write running at the same time is not "fixed" into a wrong value.
+     * </p>
+     * <p>
+     * This is scheduled to get fired everyday, at 03:30 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void verify() {
+        Map<Long, Long> expected = new HashMap<>();
+        for (Object[] row : favouritePlayerRepository.countFavouritesByPlayer()) {
+            expected.put((Long) row[0], (Long) row[1]);
+        }
+        int fixed = 0;
+        for (PlayerFavouriteCount count : playerFavouriteCountRepository.findAll()) {
+            Long favourites = expected.remove(count.getPlayerId());
+            if (!count.getFavouriteCount().equals(favourites == null ? 0L : favourites)) {
+                recount(count.getPlayerId());
+                fixed++;
+            }
+        }
+        for (Long playerId : expected.keySet()) {
+            recount(playerId);
+            fixed++;
+        }
+        if (fixed > 0) {
+            log.warn("Fixed the favourite counts of {} players", fixed);
+        }
+    }
+
+    private void addToCount(Long playerId, long delta) {
+        if (playerFavouriteCountRepository.addToCount(playerId, delta) == 0) {
+            // Players are created with their count, this only happens for players inserted by other means
+            recount(playerId);
+        }
+    }
+
+    private void recount(Long playerId) {
+        PlayerFavouriteCount count = playerFavouriteCountRepository.findOneForUpdate(playerId);
+        if (count == null) {
+            count = new PlayerFavouriteCount(playerId, 0L);
+        }
+        count.setFavouriteCount(favouritePlayerRepository.countByPlayerId(playerId));
+        playerFavouriteCountRepository.save(count);
+    }
+}
@@ -1,16 +1,36 @@
 package com.stucom.basketball.service;
 
 import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.repository.KeysetRepository;
+import com.stucom.basketball.repository.PlayerJdbcRepository;
+import com.stucom.basketball.repository.ProjectionRepository;
 import com.stucom.basketball.repository.PlayerRepository;
+import com.stucom.basketball.service.dto.PlayerStatsDTO;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetPage;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 
 /**
  * Service Implementation for managing Player.
@@ -19,11 +39,38 @@ import java.util.List;
 @Transactional
 public class PlayerService {
 
+    /** Properties, besides the id, the players can be listed by with keyset pagination: each has a (property, id) index */
+    public static final List<String> KEYSET_PROPERTIES = Arrays.asList("name", "surname");
+
     private final Logger log = LoggerFactory.getLogger(PlayerService.class);
     
     @Inject
     private PlayerRepository playerRepository;
 
+    @Inject
+    private KeysetRepository keysetRepository;
+
+    @Inject
+    private ProjectionRepository projectionRepository;
+
+    @Inject
+    private ApproximateCountService approximateCountService;
+
+    @Inject
+    private PlayerFavouriteCountService playerFavouriteCountService;
+
+    @Inject
+    private PlayerSimilarityService playerSimilarityService;
+
+    @Inject
+    private TeamRosterService teamRosterService;
+
+    @Inject
+    private PlayerJdbcRepository playerJdbcRepository;
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
     /**
      * Save a player.
      *
@@ -32,7 +79,15 @@ public class PlayerService {
      */
     public Player save(Player player) {
         log.debug("Request to save Player : {}", player);
+        boolean created = player.getId() == null;
+        Long previousTeamId = created ? null : playerRepository.findTeamId(player.getId());
         Player result = playerRepository.save(player);
+        teamRosterService.evictAfterCommit(previousTeamId, result.getTeam() == null ? null : result.getTeam().getId());
+        if (created) {
+            playerFavouriteCountService.initialize(result.getId());
+        }
+        // The team of an updated player is merged as a lazy reference: read it for the response
+        Hibernate.initialize(result.getTeam());
         return result;
     }
 
@@ -49,6 +104,41 @@ public class PlayerService {
         return result;
     }
 
+    /**
+     *  Get a page of the players, without counting them.
+     *
+     *  @param pageable the pagination information
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Player> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of Players");
+        return playerRepository.findSlice(pageable);
+    }
+
+    /**
+     *  Get the number of players, as counted at most a few minutes ago.
+     *
+     *  @return the approximate number of entities
+     */
+    @Transactional(readOnly = true)
+    public long countApproximately() {
+        return approximateCountService.count(Player.class);
+    }
+
+    /**
+     *  Get a page of the players with keyset pagination.
+     *
+     *  @param cursor the position of the page
+     *  @param size the maximum number of entities to return
+     *  @return the page of entities, with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Player> findAll(KeysetCursor cursor, int size) {
+        log.debug("Request to get a page of Players : {}", cursor);
+        return keysetRepository.findPage(Player.class, cursor, size, "team");
+    }
+
     /**
      *  Get one player by id.
      *
@@ -59,9 +149,160 @@ public class PlayerService {
     public Player findOne(Long id) {
         log.debug("Request to get Player : {}", id);
         Player player = playerRepository.findOne(id);
+        if (player != null) {
+            // A player read from the second-level cache comes without its team
+            Hibernate.initialize(player.getTeam());
+        }
         return player;
     }
 
+    /**
+     *  Get the requested fields of all the players.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the list of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the player
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAll(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of all Players", fields);
+        return projectionRepository.findAll(Player.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of a page of the players, without counting them.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the slice of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the player
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> findSlice(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of a slice of Players", fields);
+        return projectionRepository.findSlice(Player.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of one player by id.
+     *
+     *  @param fields the fields to read
+     *  @param id the id of the entity
+     *  @return the fields of the entity, null if there is no such entity
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the player
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findOne(Fields fields, Long id) {
+        log.debug("Request to get the fields {} of Player : {}", fields, id);
+        return projectionRepository.findOne(Player.class, fields, id);
+    }
+
+    /**
+     *  Add deltas to the stats of a player, in one update statement: concurrent scorers do not lose each other's
+     *  updates. Only the cached entry of the player is evicted, once the transaction commits.
+     *
+     *  @param id the id of the player
+     *  @param deltas the numbers to add to the stats, a missing one adds nothing
+     *  @return the new totals of the player, null if there is no such player
+     */
+    public PlayerStatsDTO addToStats(Long id, PlayerStatsDTO deltas) {
+        log.debug("Request to add to the stats of Player {} : {}", id, deltas);
+        playerRepository.flush();
+        if (playerJdbcRepository.addToStats(id, valueOf(deltas.getNumBaskets()), valueOf(deltas.getNumAssists()),
+            valueOf(deltas.getNumRebounds())) == 0) {
+            return null;
+        }
+        evictAfterCommit(Collections.singleton(id));
+        return findStats(Collections.singleton(id)).get(id);
+    }
+
+    /**
+     *  Add deltas to the stats of several players, all or none: the deltas of the same player are summed, and
+     *  each player is updated with one statement, in player id order.
+     *
+     *  @param deltas the numbers to add to the stats of each player
+     *  @return the new totals of the player of each delta, in the order of the deltas, null if a player does not
+     *  exist (no stats are then changed)
+     *  @throws ConcurrencyFailureException if a player is deleted meanwhile (the transaction is then rolled back)
+     */
+    public List<PlayerStatsDTO> addToStats(List<PlayerStatsDTO> deltas) {
+        return addToStats(deltas, null);
+    }
+
+    /**
+     *  Same as {@link #addToStats(List)}, for deltas of players that must play for given teams, such as the events
+     *  of a game: the teams are checked by the query that checks the players exist.
+     *
+     *  @param deltas the numbers to add to the stats of each player
+     *  @param teamIds the id of the team of each player, by player id
+     *  @return the new totals of the player of each delta, in the order of the deltas, null if a player does not
+     *  exist or does not play for its team (no stats are then changed)
+     *  @throws ConcurrencyFailureException if a player is deleted meanwhile (the transaction is then rolled back)
+     */
+    public List<PlayerStatsDTO> addToStats(List<PlayerStatsDTO> deltas, Map<Long, Long> teamIds) {
+        log.debug("Request to add to the stats of {} Players", deltas.size());
+        // Sorted by player id, the order the rows are locked in
+        Map<Long, int[]> sums = new TreeMap<>();
+        for (PlayerStatsDTO delta : deltas) {
+            int[] sum = sums.computeIfAbsent(delta.getPlayerId(), playerId -> new int[3]);
+            sum[0] += valueOf(delta.getNumBaskets());
+            sum[1] += valueOf(delta.getNumAssists());
+            sum[2] += valueOf(delta.getNumRebounds());
+        }
+        if (sums.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object[]> players = playerRepository.findTeamIds(sums.keySet());
+        if (players.size() < sums.size()) {
+            return null;
+        }
+        if (teamIds != null) {
+            for (Object[] player : players) {
+                if (!Objects.equals(teamIds.get(player[0]), player[1])) {
+                    return null;
+                }
+            }
+        }
+        playerRepository.flush();
+        for (Map.Entry<Long, int[]> sum : sums.entrySet()) {
+            if (playerJdbcRepository.addToStats(sum.getKey(), sum.getValue()[0], sum.getValue()[1], sum.getValue()[2]) == 0) {
+                throw new ConcurrencyFailureException("Player " + sum.getKey() + " was deleted while adding to its stats");
+            }
+        }
+        evictAfterCommit(sums.keySet());
+        Map<Long, PlayerStatsDTO> totals = findStats(sums.keySet());
+        List<PlayerStatsDTO> result = new ArrayList<>(deltas.size());
+        for (PlayerStatsDTO delta : deltas) {
+            result.add(totals.get(delta.getPlayerId()));
+        }
+        return result;
+    }
+
+    private Map<Long, PlayerStatsDTO> findStats(Collection<Long> ids) {
+        Map<Long, PlayerStatsDTO> stats = new HashMap<>();
+        for (Object[] row : playerRepository.findStats(ids)) {
+            stats.put((Long) row[0], new PlayerStatsDTO((Long) row[0], (Integer) row[1], (Integer) row[2], (Integer) row[3]));
+        }
+        return stats;
+    }
+
+    /**
+     * Evict the cached entries of players updated without Hibernate, once the current transaction commits.
+     */
+    private void evictAfterCommit(Collection<Long> ids) {
+        List<Long> evicted = new ArrayList<>(ids);
+        TransactionUtil.afterCommit(() -> {
+            for (Long id : evicted) {
+                entityManagerFactory.getCache().evict(Player.class, id);
+            }
+        });
+    }
+
+    private static int valueOf(Integer delta) {
+        return delta == null ? 0 : delta;
+    }
+
     /**
      *  Delete the  player by id.
      *
@@ -69,6 +310,9 @@ public class PlayerService {
      */
     public void delete(Long id) {
         log.debug("Request to delete Player : {}", id);
+        playerFavouriteCountService.delete(id);
+        playerSimilarityService.delete(id);
+        teamRosterService.evictAfterCommit(playerRepository.findTeamId(id));
         playerRepository.delete(id);
     }
 }
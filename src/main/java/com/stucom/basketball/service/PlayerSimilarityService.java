@@ -0,0 +1,245 @@
+package com.stucom.basketball.service;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.repository.FavouritePlayerRepository;
+import com.stucom.basketball.repository.PlayerRepository;
+import com.stucom.basketball.repository.PlayerSimilarityJdbcRepository;
+import com.stucom.basketball.service.dto.SimilarPlayerDTO;
+import com.stucom.basketball.service.util.CooccurrenceMatrix;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service recommending players from the favourites of the users: "users who favourited X also favourited Y".
+ *
+ * <p>
+ * The number of users having each pair of players as favourites is kept in memory in a sparse
+ * {@link CooccurrenceMatrix}, built from one scan of favourite_player at startup and every night, and
+ * updated as favourites are committed. The {@link #TOP_K} most similar players of each player are written
+ * to player_similarity, so reading the similar players of a player is one indexed query.
+ * </p>
+ * <p>
+ * The players whose neighbours changed are written every minute. A favourite committed while the matrix is
+ * being rebuilt, or two favourites of the same user committed at once, may be counted wrong until the next
+ * rebuild.
+ * </p>
+ */
+@Service
+public class PlayerSimilarityService {
+
+    /** Number of similar players kept for each player */
+    public static final int TOP_K = 20;
+
+    private final Logger log = LoggerFactory.getLogger(PlayerSimilarityService.class);
+
+    // Guarded by this
+    private CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+
+    // The players whose similar players must be written again, guarded by this
+    private final LongHashSet dirty = new LongHashSet();
+
+    @Inject
+    private PlayerSimilarityJdbcRepository playerSimilarityJdbcRepository;
+
+    @Inject
+    private FavouritePlayerRepository favouritePlayerRepository;
+
+    @Inject
+    private PlayerRepository playerRepository;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Count a new favourite of a user once the current transaction commits. To be called once the
+     * favourite is written in the current transaction.
+     *
+     * @param userId the id of the user
+     * @param playerId the id of the player
+     */
+    public void favouriteAdded(Long userId, Long playerId) {
+        favouriteChanged(userId, playerId, 1);
+    }
+
+    /**
+     * Uncount a favourite of a user once the current transaction commits. To be called before the
+     * favourite is deleted or changed in the current transaction.
+     *
+     * @param userId the id of the user
+     * @param playerId the id of the player
+     */
+    public void favouriteRemoved(Long userId, Long playerId) {
+        favouriteChanged(userId, playerId, -1);
+    }
+
+    /**
+     * Delete the similarities of a player, before the player itself is deleted.
+     *
+     * @param playerId the id of the player
+     */
+    public void delete(Long playerId) {
+        log.debug("Request to delete the similar Players of Player : {}", playerId);
+        playerSimilarityJdbcRepository.deletePlayer(playerId);
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                for (long other : matrix.remove(playerId)) {
+                    dirty.add(other);
+                }
+                dirty.remove(playerId);
+            }
+        });
+    }
+
+    /**
+     *  Get the players most often favourited by the users having a player as favourite.
+     *
+     *  @param playerId the id of the player
+     *  @param limit the maximum number of players to return, at most TOP_K
+     *  @return the similar players, most similar first
+     */
+    @Transactional(readOnly = true)
+    public List<SimilarPlayerDTO> findSimilar(Long playerId, int limit) {
+        log.debug("Request to get the similar Players of Player : {}", playerId);
+        List<long[]> rows = playerSimilarityJdbcRepository.findSimilar(playerId, Math.min(limit, TOP_K));
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (long[] row : rows) {
+            ids.add(row[0]);
+        }
+        Map<Long, Player> players = new HashMap<>();
+        for (Player player : playerRepository.findAll(ids)) {
+            players.put(player.getId(), player);
+        }
+        List<SimilarPlayerDTO> result = new ArrayList<>(rows.size());
+        for (long[] row : rows) {
+            Player player = players.get(row[0]);
+            if (player != null) {
+                result.add(new SimilarPlayerDTO(player, (int) row[1]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write the similar players of the players whose neighbours changed.
+     * <p>
+     * This is scheduled to get fired every minute.
+     * </p>
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void flush() {
+        List<Long> playerIds = new ArrayList<>();
+        List<long[]> rows = new ArrayList<>();
+        synchronized (this) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            for (LongCursor cursor : dirty) {
+                playerIds.add(cursor.value);
+                addRows(rows, cursor.value);
+            }
+            dirty.clear();
+        }
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                playerSimilarityJdbcRepository.delete(playerIds);
+                playerSimilarityJdbcRepository.insert(rows);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            // A player deleted meanwhile; the next rebuild writes everything again
+            log.warn("Could not write the similar players of {} players: {}", playerIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild the co-occurrence matrix from the favourites, and write the similar players of all players.
+     * <p>
+     * This is scheduled to get fired everyday, at 04:00 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 0 4 * * ?")
+    public void rebuild() {
+        CooccurrenceMatrix rebuilt = new CooccurrenceMatrix();
+        LongArrayList favourites = new LongArrayList();
+        long[] currentUser = {-1};
+        playerSimilarityJdbcRepository.scanFavouritesByUser((userId, playerId) -> {
+            if (userId != currentUser[0]) {
+                rebuilt.addSet(favourites.toArray());
+                favourites.clear();
+                currentUser[0] = userId;
+            }
+            favourites.add(playerId);
+        });
+        rebuilt.addSet(favourites.toArray());
+
+        List<long[]> rows = new ArrayList<>();
+        synchronized (this) {
+            matrix = rebuilt;
+            dirty.clear();
+            for (long playerId : matrix.ids()) {
+                addRows(rows, playerId);
+            }
+        }
+        new TransactionTemplate(transactionManager).execute(status -> {
+            playerSimilarityJdbcRepository.deleteAll();
+            playerSimilarityJdbcRepository.insert(rows);
+            return null;
+        });
+        log.debug("Rebuilt the similar players of {} players", rebuilt.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAtStartup() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            // With the asynchronous Liquibase of the "dev" profile the schema may not be there yet
+            log.warn("Could not build the similar players at startup: {}", e.getMessage());
+        }
+    }
+
+    private void favouriteChanged(Long userId, Long playerId, int delta) {
+        if (userId == null || playerId == null) {
+            return;
+        }
+        long[] others = favouritePlayerRepository.findPlayerIdsByUserId(userId).stream()
+            .mapToLong(Long::longValue)
+            .filter(other -> other != playerId)
+            .toArray();
+        if (others.length == 0) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                matrix.add(playerId, others, delta);
+                dirty.add(playerId);
+                dirty.addAll(others);
+            }
+        });
+    }
+
+    private void addRows(List<long[]> rows, long playerId) {
+        CooccurrenceMatrix.Neighbours neighbours = matrix.top(playerId, TOP_K);
+        for (int i = 0; i < neighbours.size(); i++) {
+            rows.add(new long[]{playerId, neighbours.getId(i), neighbours.getCount(i)});
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.stucom.basketball.service;
+
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.repository.TeamRepository;
+import com.stucom.basketball.service.dto.TeamRatingDTO;
+import com.stucom.basketball.service.util.GameResult;
+import com.stucom.basketball.service.util.TeamRatingEngine;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory power ranking of the teams by Elo rating (TeamRatingEngine).
+ *
+ * <p>
+ * Fed with the results of the games once their transaction commits, and rebuilt from the finished games at
+ * startup. A game finished after the others is applied in constant time; a correction of an older game replays
+ * the games from the last checkpoint before it.
+ * </p>
+ * <p>
+ * Each write carries the version of its game, and the service remembers the version and finish day it applied
+ * for each game, so a write that arrives after a newer one of the same game is ignored, and a game is always
+ * removed from the day it was rated at. The verification job applies the games whose version differs from the
+ * one applied.
+ * </p>
+ */
+@Service
+public class TeamRatingService {
+
+    // Day of a game that is not rated: not finished, or deleted
+    private static final long NOT_RATED = Long.MIN_VALUE;
+
+    private final Logger log = LoggerFactory.getLogger(TeamRatingService.class);
+
+    private final TeamRatingEngine engine = new TeamRatingEngine();
+
+    // [version, day, write] applied for each game, the write counting the applies; guarded by the service
+    private final LongObjectHashMap<long[]> applied = new LongObjectHashMap<>();
+
+    private long writes;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    /**
+     * Apply a game write to the ratings once the current transaction commits (right away if there is none).
+     * A null result stands for "no game", so this covers creation and updates.
+     *
+     * @param gameId the id of the game
+     * @param version the version of the game written
+     * @param previous the result of the game before the write
+     * @param current the result of the game after the write
+     */
+    public void gameChangedAfterCommit(Long gameId, Long version, GameResult previous, GameResult current) {
+        boolean sameResult = Objects.equals(previous, current);
+        TransactionUtil.afterCommit(() -> {
+            int replayed = apply(gameId, version == null ? 0 : version, current, sameResult);
+            log.debug("Applied Game {} to the team ratings, {} games replayed", gameId, replayed);
+        });
+    }
+
+    /**
+     * Remove a game from the ratings once the current transaction commits. Writes of the game that arrive later
+     * are ignored.
+     *
+     * @param gameId the id of the game
+     */
+    public void gameDeletedAfterCommit(Long gameId) {
+        TransactionUtil.afterCommit(() -> apply(gameId, Long.MAX_VALUE, null, false));
+    }
+
+    /**
+     *  Get the power ranking.
+     *
+     *  @return the ratings of the teams, best first
+     */
+    @Transactional(readOnly = true)
+    public List<TeamRatingDTO> findAll() {
+        log.debug("Request to get the team ratings");
+        Map<Long, Double> ratings = engine.getRatings();
+        List<TeamRatingDTO> result = new ArrayList<>(ratings.size());
+        for (Team team : teamRepository.findAll(new ArrayList<>(ratings.keySet()))) {
+            result.add(new TeamRatingDTO(team, ratings.get(team.getId())));
+        }
+        result.sort(Comparator.comparing(TeamRatingDTO::getRating).reversed()
+            .thenComparing(rating -> rating.getTeam().getId()));
+        return result;
+    }
+
+    /**
+     * Bring the ratings up to date with the finished games: the games whose version differs from the one applied
+     * are applied again, and the games no longer finished are removed, unless a write of theirs arrived meanwhile.
+     * Applied in (finish day, id) order, the games are appended in constant time when the ratings are empty.
+     * <p>
+     * This is scheduled to get fired everyday, at 03:50 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 50 3 * * ?")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long started;
+        synchronized (this) {
+            started = writes;
+        }
+        List<Object[]> rows = gameRepository.findAllResults();
+        int fixed = 0;
+        synchronized (this) {
+            LongHashSet finished = new LongHashSet(rows.size());
+            for (Object[] row : rows) {
+                Long gameId = (Long) row[5];
+                finished.add(gameId);
+                long[] game = applied.get(gameId);
+                if (game == null || game[0] < (Long) row[6]) {
+                    apply(gameId, (Long) row[6], GameResult.of(row), false);
+                    fixed++;
+                }
+            }
+            for (LongObjectCursor<long[]> game : applied) {
+                if (game.value[1] != NOT_RATED && game.value[2] <= started && !finished.contains(game.key)) {
+                    engine.remove(game.key, game.value[1]);
+                    game.value[1] = NOT_RATED;
+                    fixed++;
+                }
+            }
+        }
+        log.debug("Rebuilt the team ratings, {} games applied again, {} games rated", fixed, engine.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAtStartup() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            // With the asynchronous Liquibase of the "dev" profile the schema may not be there yet
+            log.warn("Could not build the team ratings at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Apply a version of a game, unless a newer one was applied.
+     *
+     * @param sameResult true if the write did not change the result, so the game need not be rated again if it is
+     * rated at its day
+     * @return the number of games replayed
+     */
+    private synchronized int apply(Long gameId, long version, GameResult current, boolean sameResult) {
+        long[] game = applied.get(gameId);
+        if (game != null && game[0] >= version) {
+            return 0;
+        }
+        long day = current != null && current.isFinished() ? current.getFinishTime().toEpochDay() : NOT_RATED;
+        if (game == null) {
+            game = new long[] {version, NOT_RATED, 0};
+            applied.put(gameId, game);
+        }
+        game[0] = version;
+        game[2] = ++writes;
+        if (sameResult && game[1] == day) {
+            return 0;
+        }
+        int replayed = 0;
+        if (game[1] != NOT_RATED) {
+            replayed += Math.max(0, engine.remove(gameId, game[1]));
+        }
+        if (day != NOT_RATED) {
+            replayed += engine.put(gameId, day, current.getLocalTeamId(), current.getVisitorTeamId(),
+                current.getLocalScore(), current.getVisitorScore());
+        }
+        game[1] = day;
+        return replayed;
+    }
+}
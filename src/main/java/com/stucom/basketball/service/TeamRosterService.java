@@ -0,0 +1,85 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.repository.PlayerRepository;
+import com.stucom.basketball.repository.TeamRepository;
+import com.stucom.basketball.service.dto.PlayerDTO;
+import com.stucom.basketball.service.dto.TeamRosterDTO;
+import com.stucom.basketball.service.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for the rosters of the teams: a team with its players and their numbers of favourites.
+ *
+ * <p>
+ * The players of a team and their counts are read with one query, and the roster is kept in the "teamRosters"
+ * cache. A write of a player evicts the rosters of its team, before and after the write, and a write of a team
+ * evicts its roster, once they commit. The stats and favourites of the players, written far more often, are not
+ * evicted: the cache expires them after a short time.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class TeamRosterService {
+
+    /** Name of the cache of the rosters, configured in "jhipster.cache.regions" */
+    public static final String ROSTERS_CACHE = "teamRosters";
+
+    private final Logger log = LoggerFactory.getLogger(TeamRosterService.class);
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    @Inject
+    private PlayerRepository playerRepository;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    /**
+     *  Get the roster of a team.
+     *
+     *  @param teamId the id of the team
+     *  @return the team with its players, in id order, null if there is no such team
+     */
+    @Cacheable(cacheNames = ROSTERS_CACHE, unless = "#result == null")
+    public TeamRosterDTO findRoster(Long teamId) {
+        log.debug("Request to get the roster of Team : {}", teamId);
+        Team team = teamRepository.findOne(teamId);
+        if (team == null) {
+            return null;
+        }
+        List<PlayerDTO> players = new ArrayList<>();
+        for (Object[] row : playerRepository.findRoster(teamId)) {
+            players.add(new PlayerDTO((Player) row[0], row[1] == null ? 0L : (Long) row[1]));
+        }
+        return new TeamRosterDTO(team, players);
+    }
+
+    /**
+     * Evict the rosters of teams once the current transaction commits (right away if there is none).
+     *
+     * @param teamIds the ids of the teams; null ids are ignored
+     */
+    public void evictAfterCommit(Long... teamIds) {
+        TransactionUtil.afterCommit(() -> {
+            Cache cache = cacheManager.getCache(ROSTERS_CACHE);
+            for (Long teamId : teamIds) {
+                if (cache != null && teamId != null) {
+                    cache.evict(teamId);
+                }
+            }
+        });
+    }
+}
@@ -1,16 +1,24 @@
 package com.stucom.basketball.service;
 
 import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.repository.KeysetRepository;
+import com.stucom.basketball.repository.ProjectionRepository;
 import com.stucom.basketball.repository.TeamRepository;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service Implementation for managing Team.
@@ -19,11 +27,32 @@ import java.util.List;
 @Transactional
 public class TeamService {
 
+    /** Properties, besides the id, the teams can be listed by with keyset pagination: each has a (property, id) index */
+    public static final List<String> KEYSET_PROPERTIES = Arrays.asList("name");
+
     private final Logger log = LoggerFactory.getLogger(TeamService.class);
     
     @Inject
     private TeamRepository teamRepository;
 
+    @Inject
+    private KeysetRepository keysetRepository;
+
+    @Inject
+    private ProjectionRepository projectionRepository;
+
+    @Inject
+    private ApproximateCountService approximateCountService;
+
+    @Inject
+    private TeamStandingService teamStandingService;
+
+    @Inject
+    private HeadToHeadService headToHeadService;
+
+    @Inject
+    private TeamRosterService teamRosterService;
+
     /**
      * Save a team.
      *
@@ -32,7 +61,13 @@ public class TeamService {
      */
     public Team save(Team team) {
         log.debug("Request to save Team : {}", team);
+        boolean created = team.getId() == null;
         Team result = teamRepository.save(team);
+        if (created) {
+            teamStandingService.initialize(result.getId());
+        } else {
+            teamRosterService.evictAfterCommit(result.getId());
+        }
         return result;
     }
 
@@ -49,6 +84,41 @@ public class TeamService {
         return result;
     }
 
+    /**
+     *  Get a page of the teams, without counting them.
+     *
+     *  @param pageable the pagination information
+     *  @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Team> findSlice(Pageable pageable) {
+        log.debug("Request to get a slice of Teams");
+        return teamRepository.findSlice(pageable);
+    }
+
+    /**
+     *  Get the number of teams, as counted at most a few minutes ago.
+     *
+     *  @return the approximate number of entities
+     */
+    @Transactional(readOnly = true)
+    public long countApproximately() {
+        return approximateCountService.count(Team.class);
+    }
+
+    /**
+     *  Get a page of the teams with keyset pagination.
+     *
+     *  @param cursor the position of the page
+     *  @param size the maximum number of entities to return
+     *  @return the page of entities, with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Team> findAll(KeysetCursor cursor, int size) {
+        log.debug("Request to get a page of Teams : {}", cursor);
+        return keysetRepository.findPage(Team.class, cursor, size);
+    }
+
     /**
      *  Get one team by id.
      *
@@ -62,6 +132,48 @@ public class TeamService {
         return team;
     }
 
+    /**
+     *  Get the requested fields of all the teams.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the list of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the team
+     */
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAll(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of all Teams", fields);
+        return projectionRepository.findAll(Team.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of a page of the teams, without counting them.
+     *
+     *  @param fields the fields to read
+     *  @param pageable the pagination information
+     *  @return the slice of the fields of the entities
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the team
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> findSlice(Fields fields, Pageable pageable) {
+        log.debug("Request to get the fields {} of a slice of Teams", fields);
+        return projectionRepository.findSlice(Team.class, fields, pageable);
+    }
+
+    /**
+     *  Get the requested fields of one team by id.
+     *
+     *  @param fields the fields to read
+     *  @param id the id of the entity
+     *  @return the fields of the entity, null if there is no such entity
+     *  @throws org.springframework.dao.InvalidDataAccessApiUsageException if a field is not a property of the team
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findOne(Fields fields, Long id) {
+        log.debug("Request to get the fields {} of Team : {}", fields, id);
+        return projectionRepository.findOne(Team.class, fields, id);
+    }
+
     /**
      *  Delete the  team by id.
      *
@@ -69,6 +181,9 @@ public class TeamService {
      */
     public void delete(Long id) {
         log.debug("Request to delete Team : {}", id);
+        teamStandingService.delete(id);
+        headToHeadService.delete(id);
+        teamRosterService.evictAfterCommit(id);
         teamRepository.delete(id);
     }
 }
@@ -0,0 +1,268 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.domain.TeamStanding;
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.repository.TeamRepository;
+import com.stucom.basketball.repository.TeamStandingRepository;
+import com.stucom.basketball.service.dto.TeamStandingDTO;
+import com.stucom.basketball.service.util.GameResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service maintaining the standings of the teams (TeamStanding).
+ *
+ * <p>
+ * A game write removes the previous result of the game from the records of its teams and adds its new one, with
+ * one atomic update per team, in team id order: a correction of a finished game, or a change of its teams, is
+ * applied like any other write. A game that becomes the latest result of a team extends its streak with an atomic
+ * update of the current record, so two games of a team finishing at once both count even though each transaction
+ * reads the games from its own snapshot. After any other write, such as a correction of an older game, the streak
+ * is read again from the latest games of the team. The verification job recounts the teams whose record differs
+ * from their games.
+ * </p>
+ */
+@Service
+@Transactional
+public class TeamStandingService {
+
+    private static final int STREAK_PAGE_SIZE = 20;
+
+    private final Logger log = LoggerFactory.getLogger(TeamStandingService.class);
+
+    @Inject
+    private TeamStandingRepository teamStandingRepository;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    /**
+     * Create the empty record of a new team.
+     *
+     * @param teamId the id of the team
+     */
+    public void initialize(Long teamId) {
+        log.debug("Request to initialize TeamStanding : {}", teamId);
+        if (!teamStandingRepository.exists(teamId)) {
+            teamStandingRepository.save(new TeamStanding(teamId));
+        }
+    }
+
+    /**
+     * Apply a game write to the standings, once the write itself has been flushed in the current transaction.
+     * A null result stands for "no game", so this covers creation, deletion and updates.
+     *
+     * @param previous the result of the game before the write
+     * @param current the result of the game after the write
+     */
+    public void gameChanged(GameResult previous, GameResult current) {
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        // Sorted by team id, the order the records are locked in
+        Map<Long, int[]> deltas = new TreeMap<>();
+        if (previous != null && previous.isFinished()) {
+            addResult(deltas, previous, -1);
+        }
+        if (current != null && current.isFinished()) {
+            addResult(deltas, current, 1);
+        }
+        for (Map.Entry<Long, int[]> entry : deltas.entrySet()) {
+            int[] delta = entry.getValue();
+            if (delta[0] == 0 && delta[1] == 0 && delta[2] == 0 && delta[3] == 0 && delta[4] == 0) {
+                // Same outcome: only the order of the games of the team, hence its streak, may have changed
+                teamStandingRepository.updateStreak(entry.getKey(), streakOf(entry.getKey()));
+            } else if (teamStandingRepository.addToStanding(entry.getKey(), delta[0], delta[1], delta[2], delta[3], delta[4]) == 0) {
+                // Teams are created with their record, this only happens for teams inserted by other means
+                recount(entry.getKey());
+            } else if (isLatestAdded(entry.getKey(), previous, current)) {
+                teamStandingRepository.extendStreak(entry.getKey(), current.outcomeFor(entry.getKey()));
+            } else {
+                teamStandingRepository.updateStreak(entry.getKey(), streakOf(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     *  Get the standings.
+     *
+     *  @return the records of the teams, most wins first, then best point difference
+     */
+    @Transactional(readOnly = true)
+    public List<TeamStandingDTO> findAll() {
+        log.debug("Request to get the standings");
+        List<TeamStanding> standings = teamStandingRepository.findAllOrdered();
+        Map<Long, Team> teams = new HashMap<>();
+        for (Team team : teamRepository.findAll(standings.stream().map(TeamStanding::getTeamId).collect(Collectors.toList()))) {
+            teams.put(team.getId(), team);
+        }
+        List<TeamStandingDTO> result = new ArrayList<>(standings.size());
+        for (TeamStanding standing : standings) {
+            result.add(new TeamStandingDTO(teams.get(standing.getTeamId()), standing));
+        }
+        return result;
+    }
+
+    /**
+     *  Delete the record of a team, before the team itself is deleted.
+     *
+     *  @param teamId the id of the team
+     */
+    public void delete(Long teamId) {
+        log.debug("Request to delete TeamStanding : {}", teamId);
+        if (teamStandingRepository.exists(teamId)) {
+            teamStandingRepository.delete(teamId);
+        }
+    }
+
+    /**
+     * Check the records against the games.
+     * <p>
+     * The records are compared against one read of the finished games; only the teams that differ are locked and
+     * counted again, so a mismatch caused by a write running at the same time is not "fixed" into a wrong value.
+     * </p>
+     * <p>
+     * This is scheduled to get fired everyday, at 03:45 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 45 3 * * ?")
+    public void verify() {
+        Map<Long, TeamStanding> expected = new HashMap<>();
+        for (Object[] row : gameRepository.findAllResults()) {
+            GameResult result = GameResult.of(row);
+            addResult(expected, result, result.getLocalTeamId());
+            addResult(expected, result, result.getVisitorTeamId());
+        }
+        int fixed = 0;
+        for (TeamStanding standing : teamStandingRepository.findAll()) {
+            TeamStanding games = expected.remove(standing.getTeamId());
+            if (!sameRecord(standing, games == null ? new TeamStanding(standing.getTeamId()) : games)) {
+                recount(standing.getTeamId());
+                fixed++;
+            }
+        }
+        for (Long teamId : expected.keySet()) {
+            recount(teamId);
+            fixed++;
+        }
+        if (fixed > 0) {
+            log.warn("Fixed the standings of {} teams", fixed);
+        }
+    }
+
+    /**
+     * Add a result to the deltas of its teams, as [played, wins, losses, pointsFor, pointsAgainst].
+     */
+    private static void addResult(Map<Long, int[]> deltas, GameResult result, int sign) {
+        int[] local = deltas.computeIfAbsent(result.getLocalTeamId(), teamId -> new int[5]);
+        addOutcome(local, result.outcomeFor(result.getLocalTeamId()), result.getLocalScore(), result.getVisitorScore(), sign);
+        int[] visitor = deltas.computeIfAbsent(result.getVisitorTeamId(), teamId -> new int[5]);
+        addOutcome(visitor, result.outcomeFor(result.getVisitorTeamId()), result.getVisitorScore(), result.getLocalScore(), sign);
+    }
+
+    private static void addOutcome(int[] delta, int outcome, int pointsFor, int pointsAgainst, int sign) {
+        delta[0] += sign;
+        delta[1] += outcome > 0 ? sign : 0;
+        delta[2] += outcome < 0 ? sign : 0;
+        delta[3] += sign * pointsFor;
+        delta[4] += sign * pointsAgainst;
+    }
+
+    /**
+     * Add a result, oldest results first, to the expected record of one of its teams.
+     */
+    private static void addResult(Map<Long, TeamStanding> standings, GameResult result, Long teamId) {
+        TeamStanding standing = standings.computeIfAbsent(teamId, TeamStanding::new);
+        int outcome = result.outcomeFor(teamId);
+        boolean local = teamId.equals(result.getLocalTeamId());
+        standing.setPlayed(standing.getPlayed() + 1);
+        standing.setWins(standing.getWins() + (outcome > 0 ? 1 : 0));
+        standing.setLosses(standing.getLosses() + (outcome < 0 ? 1 : 0));
+        standing.setPointsFor(standing.getPointsFor() + (local ? result.getLocalScore() : result.getVisitorScore()));
+        standing.setPointsAgainst(standing.getPointsAgainst() + (local ? result.getVisitorScore() : result.getLocalScore()));
+        int streak = standing.getStreak();
+        standing.setStreak(outcome != 0 && Integer.signum(streak) == outcome ? streak + outcome : outcome);
+    }
+
+    private static boolean sameRecord(TeamStanding standing, TeamStanding games) {
+        return standing.getPlayed().equals(games.getPlayed()) && standing.getWins().equals(games.getWins()) &&
+            standing.getLosses().equals(games.getLosses()) && standing.getPointsFor().equals(games.getPointsFor()) &&
+            standing.getPointsAgainst().equals(games.getPointsAgainst()) && standing.getStreak().equals(games.getStreak());
+    }
+
+    /**
+     * @return true if the write adds a result of the team, rather than correcting or removing one, and that result
+     * is the latest of the team
+     */
+    private boolean isLatestAdded(Long teamId, GameResult previous, GameResult current) {
+        if ((previous != null && previous.isFinished() && plays(previous, teamId)) ||
+            current == null || !current.isFinished() || !plays(current, teamId)) {
+            return false;
+        }
+        // A game with the same result listed first counts the same in the streak
+        List<Object[]> latest = gameRepository.findLatestResultsOfTeam(teamId, new PageRequest(0, 1));
+        return !latest.isEmpty() && current.equals(GameResult.of(latest.get(0)));
+    }
+
+    private static boolean plays(GameResult result, Long teamId) {
+        return teamId.equals(result.getLocalTeamId()) || teamId.equals(result.getVisitorTeamId());
+    }
+
+    /**
+     * @return the streak of a team, read from its latest games until its outcome changes
+     */
+    private int streakOf(Long teamId) {
+        int streak = 0;
+        for (int page = 0; ; page++) {
+            List<Object[]> rows = gameRepository.findLatestResultsOfTeam(teamId, new PageRequest(page, STREAK_PAGE_SIZE));
+            for (Object[] row : rows) {
+                int outcome = GameResult.of(row).outcomeFor(teamId);
+                if (outcome == 0 || (streak != 0 && Integer.signum(streak) != outcome)) {
+                    return streak;
+                }
+                streak += outcome;
+            }
+            if (rows.size() < STREAK_PAGE_SIZE) {
+                return streak;
+            }
+        }
+    }
+
+    private void recount(Long teamId) {
+        TeamStanding standing = teamStandingRepository.findOneForUpdate(teamId);
+        if (standing == null) {
+            standing = new TeamStanding(teamId);
+        }
+        Map<Long, TeamStanding> games = new HashMap<>();
+        games.put(teamId, new TeamStanding(teamId));
+        List<Object[]> rows = gameRepository.findLatestResultsOfTeam(teamId, null);
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            addResult(games, GameResult.of(rows.get(i)), teamId);
+        }
+        TeamStanding counted = games.get(teamId);
+        standing.setPlayed(counted.getPlayed());
+        standing.setWins(counted.getWins());
+        standing.setLosses(counted.getLosses());
+        standing.setPointsFor(counted.getPointsFor());
+        standing.setPointsAgainst(counted.getPointsAgainst());
+        standing.setStreak(counted.getStreak());
+        teamStandingRepository.save(standing);
+    }
+}
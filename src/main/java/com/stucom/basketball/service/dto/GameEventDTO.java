@@ -0,0 +1,91 @@
+package com.stucom.basketball.service.dto;
+
+import com.stucom.basketball.domain.enumeration.GameEventType;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A DTO representing an event of the play-by-play of a game: a basket, an assist or a rebound of a player of one
+ * of its teams.
+ */
+public class GameEventDTO {
+
+    private Long seq;
+    private GameEventType type;
+    private Long playerId;
+    private Long teamId;
+    private Integer points;
+    private ZonedDateTime eventTime;
+
+    public GameEventDTO() {
+    }
+
+    public GameEventDTO(Long seq, GameEventType type, Long playerId, Long teamId, Integer points, ZonedDateTime eventTime) {
+        this.seq = seq;
+        this.type = type;
+        this.playerId = playerId;
+        this.teamId = teamId;
+        this.points = points;
+        this.eventTime = eventTime;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public GameEventType getType() {
+        return type;
+    }
+
+    public void setType(GameEventType type) {
+        this.type = type;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(Long playerId) {
+        this.playerId = playerId;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Integer getPoints() {
+        return points;
+    }
+
+    public void setPoints(Integer points) {
+        this.points = points;
+    }
+
+    public ZonedDateTime getEventTime() {
+        return eventTime;
+    }
+
+    public void setEventTime(ZonedDateTime eventTime) {
+        this.eventTime = eventTime;
+    }
+
+    @Override
+    public String toString() {
+        return "GameEventDTO{" +
+            "seq=" + seq +
+            ", type=" + type +
+            ", playerId=" + playerId +
+            ", teamId=" + teamId +
+            ", points=" + points +
+            ", eventTime=" + eventTime +
+            '}';
+    }
+}
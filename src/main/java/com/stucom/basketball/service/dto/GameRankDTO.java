@@ -0,0 +1,87 @@
+package com.stucom.basketball.service.dto;
+
+import com.stucom.basketball.domain.Game;
+
+/**
+ * A DTO representing the position of a game in the ranking by average rating.
+ */
+public class GameRankDTO {
+    private Game game;
+    private Integer rank;
+    private Double avgScore;
+    private Long numRatings;
+
+    public GameRankDTO() {
+    }
+
+    public GameRankDTO(Game game, Integer rank, Double avgScore, Long numRatings) {
+        this.game = game;
+        this.rank = rank;
+        this.avgScore = avgScore;
+        this.numRatings = numRatings;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public void setGame(Game game) {
+        this.game = game;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+
+    public Double getAvgScore() {
+        return avgScore;
+    }
+
+    public void setAvgScore(Double avgScore) {
+        this.avgScore = avgScore;
+    }
+
+    public Long getNumRatings() {
+        return numRatings;
+    }
+
+    public void setNumRatings(Long numRatings) {
+        this.numRatings = numRatings;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        GameRankDTO that = (GameRankDTO) o;
+
+        if (game != null ? !game.equals(that.game) : that.game != null) return false;
+        if (rank != null ? !rank.equals(that.rank) : that.rank != null) return false;
+        if (avgScore != null ? !avgScore.equals(that.avgScore) : that.avgScore != null) return false;
+        return numRatings != null ? numRatings.equals(that.numRatings) : that.numRatings == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = game != null ? game.hashCode() : 0;
+        result = 31 * result + (rank != null ? rank.hashCode() : 0);
+        result = 31 * result + (avgScore != null ? avgScore.hashCode() : 0);
+        result = 31 * result + (numRatings != null ? numRatings.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "GameRankDTO{" +
+            "game=" + game +
+            ", rank=" + rank +
+            ", avgScore=" + avgScore +
+            ", numRatings=" + numRatings +
+            '}';
+    }
+}
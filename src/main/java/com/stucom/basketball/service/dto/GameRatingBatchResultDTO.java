@@ -0,0 +1,86 @@
+package com.stucom.basketball.service.dto;
+
+/**
+ * A DTO representing the outcome of one rating of a batch of ratings.
+ */
+public class GameRatingBatchResultDTO {
+
+    public enum Status {
+        /** The user had not rated the game, the rating was created */
+        CREATED,
+        /** The rating replaced the one the user had given to the game */
+        UPDATED,
+        /** A later rating of the batch for the same game was saved instead */
+        SUPERSEDED,
+        /** The game does not exist */
+        GAME_NOT_FOUND,
+        /** The rating has no game or no score */
+        INVALID
+    }
+
+    private int index;
+    private Long id;
+    private Long gameId;
+    private Integer score;
+    private Status status;
+
+    public GameRatingBatchResultDTO() {
+    }
+
+    public GameRatingBatchResultDTO(int index, Long gameId, Integer score) {
+        this.index = index;
+        this.gameId = gameId;
+        this.score = score;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public Integer getScore() {
+        return score;
+    }
+
+    public void setScore(Integer score) {
+        this.score = score;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return "GameRatingBatchResultDTO{" +
+            "index=" + index +
+            ", id=" + id +
+            ", gameId=" + gameId +
+            ", score=" + score +
+            ", status=" + status +
+            '}';
+    }
+}
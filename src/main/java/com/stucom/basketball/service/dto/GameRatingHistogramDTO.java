@@ -0,0 +1,68 @@
+package com.stucom.basketball.service.dto;
+
+import java.util.Map;
+
+/**
+ * A DTO representing the distribution of the scores of a game.
+ */
+public class GameRatingHistogramDTO {
+    private Long gameId;
+    private Long numRatings;
+    private Double avgScore;
+    private Map<Integer, Integer> counts;
+
+    public GameRatingHistogramDTO() {
+    }
+
+    public GameRatingHistogramDTO(Long gameId, Long numRatings, Double avgScore, Map<Integer, Integer> counts) {
+        this.gameId = gameId;
+        this.numRatings = numRatings;
+        this.avgScore = avgScore;
+        this.counts = counts;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public Long getNumRatings() {
+        return numRatings;
+    }
+
+    public void setNumRatings(Long numRatings) {
+        this.numRatings = numRatings;
+    }
+
+    public Double getAvgScore() {
+        return avgScore;
+    }
+
+    public void setAvgScore(Double avgScore) {
+        this.avgScore = avgScore;
+    }
+
+    /**
+     * @return the number of ratings of each score, by score
+     */
+    public Map<Integer, Integer> getCounts() {
+        return counts;
+    }
+
+    public void setCounts(Map<Integer, Integer> counts) {
+        this.counts = counts;
+    }
+
+    @Override
+    public String toString() {
+        return "GameRatingHistogramDTO{" +
+            "gameId=" + gameId +
+            ", numRatings=" + numRatings +
+            ", avgScore=" + avgScore +
+            ", counts=" + counts +
+            '}';
+    }
+}
@@ -0,0 +1,113 @@
+package com.stucom.basketball.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A DTO representing a game in the schedule: its day, its teams and its result, without the teams themselves.
+ */
+public class GameScheduleDTO {
+
+    private Long id;
+    private String name;
+    private LocalDate startTime;
+    private LocalDate finishTime;
+    private Long localTeamId;
+    private Long visitorTeamId;
+    private Integer localScore;
+    private Integer visitorScore;
+
+    public GameScheduleDTO() {
+    }
+
+    /**
+     * @param row a row of [id, name, startTime, finishTime, localTeam id, visitorTeam id, localScore, visitorScore]
+     */
+    public GameScheduleDTO(Object[] row) {
+        this.id = (Long) row[0];
+        this.name = (String) row[1];
+        this.startTime = (LocalDate) row[2];
+        this.finishTime = (LocalDate) row[3];
+        this.localTeamId = (Long) row[4];
+        this.visitorTeamId = (Long) row[5];
+        this.localScore = (Integer) row[6];
+        this.visitorScore = (Integer) row[7];
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDate getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDate startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDate getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(LocalDate finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public Long getLocalTeamId() {
+        return localTeamId;
+    }
+
+    public void setLocalTeamId(Long localTeamId) {
+        this.localTeamId = localTeamId;
+    }
+
+    public Long getVisitorTeamId() {
+        return visitorTeamId;
+    }
+
+    public void setVisitorTeamId(Long visitorTeamId) {
+        this.visitorTeamId = visitorTeamId;
+    }
+
+    public Integer getLocalScore() {
+        return localScore;
+    }
+
+    public void setLocalScore(Integer localScore) {
+        this.localScore = localScore;
+    }
+
+    public Integer getVisitorScore() {
+        return visitorScore;
+    }
+
+    public void setVisitorScore(Integer visitorScore) {
+        this.visitorScore = visitorScore;
+    }
+
+    @Override
+    public String toString() {
+        return "GameScheduleDTO{" +
+            "id=" + id +
+            ", name='" + name + "'" +
+            ", startTime='" + startTime + "'" +
+            ", finishTime='" + finishTime + "'" +
+            ", localTeamId=" + localTeamId +
+            ", visitorTeamId=" + visitorTeamId +
+            ", localScore=" + localScore +
+            ", visitorScore=" + visitorScore +
+            '}';
+    }
+}
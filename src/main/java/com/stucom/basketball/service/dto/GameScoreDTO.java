@@ -0,0 +1,64 @@
+package com.stucom.basketball.service.dto;
+
+/**
+ * A DTO representing the score of a game, as pushed to the viewers of the game.
+ */
+public class GameScoreDTO {
+
+    private Long gameId;
+    private Integer localScore;
+    private Integer visitorScore;
+    private Long version;
+
+    public GameScoreDTO() {
+    }
+
+    public GameScoreDTO(Long gameId, Integer localScore, Integer visitorScore, Long version) {
+        this.gameId = gameId;
+        this.localScore = localScore;
+        this.visitorScore = visitorScore;
+        this.version = version;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public Integer getLocalScore() {
+        return localScore;
+    }
+
+    public void setLocalScore(Integer localScore) {
+        this.localScore = localScore;
+    }
+
+    public Integer getVisitorScore() {
+        return visitorScore;
+    }
+
+    public void setVisitorScore(Integer visitorScore) {
+        this.visitorScore = visitorScore;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "GameScoreDTO{" +
+            "gameId=" + gameId +
+            ", localScore=" + localScore +
+            ", visitorScore=" + visitorScore +
+            ", version=" + version +
+            '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.stucom.basketball.service.dto;
+
+/**
+ * A DTO representing the number of ratings a game received over a recent time window.
+ */
+public class GameTrendDTO {
+    private Long gameId;
+    private Long ratings;
+
+    public GameTrendDTO() {
+    }
+
+    public GameTrendDTO(Long gameId, Long ratings) {
+        this.gameId = gameId;
+        this.ratings = ratings;
+    }
+
+    public Long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    public Long getRatings() {
+        return ratings;
+    }
+
+    public void setRatings(Long ratings) {
+        this.ratings = ratings;
+    }
+
+    @Override
+    public String toString() {
+        return "GameTrendDTO{" +
+            "gameId=" + gameId +
+            ", ratings=" + ratings +
+            '}';
+    }
+}
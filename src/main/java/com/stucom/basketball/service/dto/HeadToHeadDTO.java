@@ -0,0 +1,105 @@
+package com.stucom.basketball.service.dto;
+
+/**
+ * A DTO representing the all-time record of a team against an opponent, over their finished games.
+ */
+public class HeadToHeadDTO {
+
+    private Long teamId;
+    private Long opponentId;
+    private Integer games;
+    private Integer wins;
+    private Integer losses;
+    private Integer ties;
+    private Double averageMargin;
+
+    public HeadToHeadDTO() {
+    }
+
+    /**
+     * @param teamId the id of the team
+     * @param opponentId the id of the opponent
+     * @param games the number of games between them
+     * @param wins the games won by the team
+     * @param losses the games won by the opponent
+     * @param marginSum the sum of the points of the team minus the points of the opponent
+     */
+    public HeadToHeadDTO(Long teamId, Long opponentId, int games, int wins, int losses, int marginSum) {
+        this.teamId = teamId;
+        this.opponentId = opponentId;
+        this.games = games;
+        this.wins = wins;
+        this.losses = losses;
+        this.ties = games - wins - losses;
+        this.averageMargin = games == 0 ? 0.0 : (double) marginSum / games;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Long getOpponentId() {
+        return opponentId;
+    }
+
+    public void setOpponentId(Long opponentId) {
+        this.opponentId = opponentId;
+    }
+
+    public Integer getGames() {
+        return games;
+    }
+
+    public void setGames(Integer games) {
+        this.games = games;
+    }
+
+    public Integer getWins() {
+        return wins;
+    }
+
+    public void setWins(Integer wins) {
+        this.wins = wins;
+    }
+
+    public Integer getLosses() {
+        return losses;
+    }
+
+    public void setLosses(Integer losses) {
+        this.losses = losses;
+    }
+
+    public Integer getTies() {
+        return ties;
+    }
+
+    public void setTies(Integer ties) {
+        this.ties = ties;
+    }
+
+    public Double getAverageMargin() {
+        return averageMargin;
+    }
+
+    public void setAverageMargin(Double averageMargin) {
+        this.averageMargin = averageMargin;
+    }
+
+    @Override
+    public String toString() {
+        return "HeadToHeadDTO{" +
+            "teamId=" + teamId +
+            ", opponentId=" + opponentId +
+            ", games=" + games +
+            ", wins=" + wins +
+            ", losses=" + losses +
+            ", ties=" + ties +
+            ", averageMargin=" + averageMargin +
+            '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.stucom.basketball.service.dto;
+
+/**
+ * A DTO representing the stats of a player: in a request, the deltas to add to them (a missing stat is left as it
+ * is), in a response, the totals.
+ */
+public class PlayerStatsDTO {
+
+    private Long playerId;
+    private Integer numBaskets;
+    private Integer numAssists;
+    private Integer numRebounds;
+
+    public PlayerStatsDTO() {
+    }
+
+    public PlayerStatsDTO(Long playerId, Integer numBaskets, Integer numAssists, Integer numRebounds) {
+        this.playerId = playerId;
+        this.numBaskets = numBaskets;
+        this.numAssists = numAssists;
+        this.numRebounds = numRebounds;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(Long playerId) {
+        this.playerId = playerId;
+    }
+
+    public Integer getNumBaskets() {
+        return numBaskets;
+    }
+
+    public void setNumBaskets(Integer numBaskets) {
+        this.numBaskets = numBaskets;
+    }
+
+    public Integer getNumAssists() {
+        return numAssists;
+    }
+
+    public void setNumAssists(Integer numAssists) {
+        this.numAssists = numAssists;
+    }
+
+    public Integer getNumRebounds() {
+        return numRebounds;
+    }
+
+    public void setNumRebounds(Integer numRebounds) {
+        this.numRebounds = numRebounds;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerStatsDTO{" +
+            "playerId=" + playerId +
+            ", numBaskets=" + numBaskets +
+            ", numAssists=" + numAssists +
+            ", numRebounds=" + numRebounds +
+            '}';
+    }
+}
@@ -0,0 +1,45 @@
+package com.stucom.basketball.service.dto;
+
+import com.stucom.basketball.domain.Player;
+
+/**
+ * A DTO representing a player similar to another one, with the number of users having both as favourites.
+ */
+public class SimilarPlayerDTO {
+
+    private Player player;
+
+    private Integer commonFavourites;
+
+    public SimilarPlayerDTO() {
+    }
+
+    public SimilarPlayerDTO(Player player, Integer commonFavourites) {
+        this.player = player;
+        this.commonFavourites = commonFavourites;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(Player player) {
+        this.player = player;
+    }
+
+    public Integer getCommonFavourites() {
+        return commonFavourites;
+    }
+
+    public void setCommonFavourites(Integer commonFavourites) {
+        this.commonFavourites = commonFavourites;
+    }
+
+    @Override
+    public String toString() {
+        return "SimilarPlayerDTO{" +
+            "player=" + player +
+            ", commonFavourites=" + commonFavourites +
+            '}';
+    }
+}
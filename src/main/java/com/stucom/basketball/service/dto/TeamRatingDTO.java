@@ -0,0 +1,44 @@
+package com.stucom.basketball.service.dto;
+
+import com.stucom.basketball.domain.Team;
+
+/**
+ * A DTO representing the Elo rating of a team in the power ranking.
+ */
+public class TeamRatingDTO {
+
+    private Team team;
+    private Double rating;
+
+    public TeamRatingDTO() {
+    }
+
+    public TeamRatingDTO(Team team, Double rating) {
+        this.team = team;
+        this.rating = rating;
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public void setTeam(Team team) {
+        this.team = team;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamRatingDTO{" +
+            "team=" + team +
+            ", rating=" + rating +
+            '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.stucom.basketball.service.dto;
+
+import com.stucom.basketball.domain.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing a team with its players, each with its number of favourites.
+ */
+public class TeamRosterDTO {
+
+    private Team team;
+    private List<PlayerDTO> players = new ArrayList<>();
+
+    public TeamRosterDTO() {
+    }
+
+    public TeamRosterDTO(Team team, List<PlayerDTO> players) {
+        this.team = team;
+        this.players = players;
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public void setTeam(Team team) {
+        this.team = team;
+    }
+
+    public List<PlayerDTO> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<PlayerDTO> players) {
+        this.players = players;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamRosterDTO{" +
+            "team=" + team +
+            ", players=" + players +
+            '}';
+    }
+}
@@ -0,0 +1,100 @@
+package com.stucom.basketball.service.dto;
+
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.domain.TeamStanding;
+
+/**
+ * A DTO representing the record of a team in the standings.
+ */
+public class TeamStandingDTO {
+
+    private Team team;
+    private Integer played;
+    private Integer wins;
+    private Integer losses;
+    private Integer pointsFor;
+    private Integer pointsAgainst;
+    private Integer streak;
+
+    public TeamStandingDTO() {
+    }
+
+    public TeamStandingDTO(Team team, TeamStanding standing) {
+        this.team = team;
+        this.played = standing.getPlayed();
+        this.wins = standing.getWins();
+        this.losses = standing.getLosses();
+        this.pointsFor = standing.getPointsFor();
+        this.pointsAgainst = standing.getPointsAgainst();
+        this.streak = standing.getStreak();
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public void setTeam(Team team) {
+        this.team = team;
+    }
+
+    public Integer getPlayed() {
+        return played;
+    }
+
+    public void setPlayed(Integer played) {
+        this.played = played;
+    }
+
+    public Integer getWins() {
+        return wins;
+    }
+
+    public void setWins(Integer wins) {
+        this.wins = wins;
+    }
+
+    public Integer getLosses() {
+        return losses;
+    }
+
+    public void setLosses(Integer losses) {
+        this.losses = losses;
+    }
+
+    public Integer getPointsFor() {
+        return pointsFor;
+    }
+
+    public void setPointsFor(Integer pointsFor) {
+        this.pointsFor = pointsFor;
+    }
+
+    public Integer getPointsAgainst() {
+        return pointsAgainst;
+    }
+
+    public void setPointsAgainst(Integer pointsAgainst) {
+        this.pointsAgainst = pointsAgainst;
+    }
+
+    public Integer getStreak() {
+        return streak;
+    }
+
+    public void setStreak(Integer streak) {
+        this.streak = streak;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamStandingDTO{" +
+            "team=" + team +
+            ", played=" + played +
+            ", wins=" + wins +
+            ", losses=" + losses +
+            ", pointsFor=" + pointsFor +
+            ", pointsAgainst=" + pointsAgainst +
+            ", streak=" + streak +
+            '}';
+    }
+}
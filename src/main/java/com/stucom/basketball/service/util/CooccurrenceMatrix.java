@@ -0,0 +1,185 @@
+package com.stucom.basketball.service.util;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+
+import java.util.Arrays;
+
+/**
+ * Sparse symmetric matrix counting how many times two ids appear in the same set.
+ *
+ * <p>
+ * Each id has a row mapping the ids it appeared with to their count, in primitive long to int hash maps,
+ * so a million pairs take a few tens of megabytes instead of hundreds with boxed maps. Pairs whose count
+ * drops to zero are removed. Not thread-safe.
+ * </p>
+ */
+public final class CooccurrenceMatrix {
+
+    /**
+     * The ids appearing most often with one id, with their counts, most frequent first.
+     */
+    public static final class Neighbours {
+
+        private final long[] ids;
+
+        private final int[] counts;
+
+        private Neighbours(long[] ids, int[] counts) {
+            this.ids = ids;
+            this.counts = counts;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public long getId(int i) {
+            return ids[i];
+        }
+
+        public int getCount(int i) {
+            return counts[i];
+        }
+    }
+
+    private final LongObjectHashMap<LongIntHashMap> rows = new LongObjectHashMap<>();
+
+    /**
+     * Count every pair of a set once.
+     *
+     * @param ids the ids of the set, without duplicates
+     */
+    public void addSet(long[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = i + 1; j < ids.length; j++) {
+                addTo(ids[i], ids[j], 1);
+                addTo(ids[j], ids[i], 1);
+            }
+        }
+    }
+
+    /**
+     * Change the count of the pairs made of one id and each of other ids, as when the id joins or leaves a set.
+     *
+     * @param id the id
+     * @param others the other ids, not including id
+     * @param delta the change of the count of each pair
+     */
+    public void add(long id, long[] others, int delta) {
+        for (long other : others) {
+            addTo(id, other, delta);
+            addTo(other, id, delta);
+        }
+    }
+
+    /**
+     * @param a an id
+     * @param b another id
+     * @return the number of sets holding both ids
+     */
+    public int get(long a, long b) {
+        LongIntHashMap row = rows.get(a);
+        return row == null ? 0 : row.get(b);
+    }
+
+    /**
+     * Remove an id and all of its pairs.
+     *
+     * @param id the id
+     * @return the ids that were paired with it
+     */
+    public long[] remove(long id) {
+        LongIntHashMap row = rows.remove(id);
+        if (row == null) {
+            return new long[0];
+        }
+        long[] others = row.keys().toArray();
+        for (long other : others) {
+            LongIntHashMap otherRow = rows.get(other);
+            if (otherRow != null) {
+                otherRow.remove(id);
+                if (otherRow.isEmpty()) {
+                    rows.remove(other);
+                }
+            }
+        }
+        return others;
+    }
+
+    /**
+     * @return the ids paired with at least one other id
+     */
+    public long[] ids() {
+        long[] ids = new long[rows.size()];
+        int i = 0;
+        for (LongCursor cursor : rows.keys()) {
+            ids[i++] = cursor.value;
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of ids paired with at least one other id
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Find the ids appearing most often with one id. Ties are broken by the lowest id.
+     *
+     * @param id the id
+     * @param k the maximum number of ids to return
+     * @return the neighbours of the id
+     */
+    public Neighbours top(long id, int k) {
+        LongIntHashMap row = rows.get(id);
+        if (row == null || k <= 0) {
+            return new Neighbours(new long[0], new int[0]);
+        }
+        // Insertion into arrays kept sorted: k is small, the row is walked once
+        long[] ids = new long[Math.min(k, row.size())];
+        int[] counts = new int[ids.length];
+        int size = 0;
+        for (LongIntCursor cursor : row) {
+            int position = size;
+            while (position > 0 && before(cursor.key, cursor.value, ids[position - 1], counts[position - 1])) {
+                position--;
+            }
+            if (position == ids.length) {
+                continue;
+            }
+            int moved = Math.min(size, ids.length - 1) - position;
+            System.arraycopy(ids, position, ids, position + 1, moved);
+            System.arraycopy(counts, position, counts, position + 1, moved);
+            ids[position] = cursor.key;
+            counts[position] = cursor.value;
+            size = Math.min(size + 1, ids.length);
+        }
+        return new Neighbours(Arrays.copyOf(ids, size), Arrays.copyOf(counts, size));
+    }
+
+    private void addTo(long a, long b, int delta) {
+        LongIntHashMap row = rows.get(a);
+        if (row == null) {
+            if (delta <= 0) {
+                return;
+            }
+            row = new LongIntHashMap();
+            rows.put(a, row);
+        }
+        if (row.addTo(b, delta) <= 0) {
+            row.remove(b);
+            if (row.isEmpty()) {
+                rows.remove(a);
+            }
+        }
+    }
+
+    private static boolean before(long id, int count, long otherId, int otherCount) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+}
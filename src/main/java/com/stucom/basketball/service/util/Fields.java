@@ -0,0 +1,93 @@
+package com.stucom.basketball.service.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields of a sparse fieldset request ("?fields=id,name,team.name"): the properties of an entity, or of an
+ * entity it references, to read and send instead of the whole entity.
+ *
+ * <p>
+ * The resources keep the "fields" parameter in their pagination links, so every page holds the same fields. A
+ * malformed request fails here with an IllegalArgumentException, and a field that is not a property of the entity
+ * fails in the {@link com.stucom.basketball.repository.ProjectionRepository} with an
+ * InvalidDataAccessApiUsageException: the resources answer both with 400 (Bad Request).
+ * </p>
+ */
+public final class Fields implements Iterable<String> {
+
+    private static final String SEPARATOR = ",";
+
+    private static final String PATH_SEPARATOR = ".";
+
+    private final List<String> paths;
+
+    private Fields(List<String> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * @param fields the requested fields, separated by commas: properties, or properties of a referenced entity
+     * as "association.property"
+     * @return the fields, without duplicates, in the requested order
+     * @throws IllegalArgumentException if no field is requested, or a field is nested more than one level
+     */
+    public static Fields of(String fields) {
+        Set<String> paths = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields.split(SEPARATOR)) {
+                String path = field.trim();
+                if (path.isEmpty()) {
+                    continue;
+                }
+                int dot = path.indexOf(PATH_SEPARATOR);
+                if (dot == 0 || path.endsWith(PATH_SEPARATOR) || (dot > 0 && path.indexOf(PATH_SEPARATOR, dot + 1) >= 0)) {
+                    throw new IllegalArgumentException("Invalid field " + path);
+                }
+                paths.add(path);
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("No field requested");
+        }
+        return new Fields(Collections.unmodifiableList(new ArrayList<>(paths)));
+    }
+
+    /**
+     * @param path a field
+     * @return the association of a nested field ("team" for "team.name"), null for a property of the entity
+     */
+    public static String associationOf(String path) {
+        int dot = path.indexOf(PATH_SEPARATOR);
+        return dot < 0 ? null : path.substring(0, dot);
+    }
+
+    /**
+     * @param path a field
+     * @return the property of the field ("name" for "team.name" and for "name")
+     */
+    public static String propertyOf(String path) {
+        return path.substring(path.indexOf(PATH_SEPARATOR) + 1);
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return paths.iterator();
+    }
+
+    /**
+     * @return the fields as in the request, separated by commas
+     */
+    @Override
+    public String toString() {
+        return String.join(SEPARATOR, paths);
+    }
+}
@@ -0,0 +1,67 @@
+package com.stucom.basketball.service.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Net change of the ratings of one game over a batch of rating writes: the number of ratings, the sum of their
+ * scores and the number of ratings of each score, each of which may be negative.
+ *
+ * <p>
+ * A rating that replaces another is counted as the removal of the old score and the addition of the new one, so
+ * a batch of updates that leaves a score unchanged leaves no trace.
+ * </p>
+ */
+public final class GameRatingDelta {
+
+    private long numRatings;
+
+    private long sumScore;
+
+    // Net number of ratings of each score, without the zeros
+    private final SortedMap<Integer, Integer> counts = new TreeMap<>();
+
+    /**
+     * @param score the score of a rating written by the batch
+     */
+    public void add(int score) {
+        change(score, 1);
+    }
+
+    /**
+     * @param score the score of a rating replaced by the batch
+     */
+    public void remove(int score) {
+        change(score, -1);
+    }
+
+    public long getNumRatings() {
+        return numRatings;
+    }
+
+    public long getSumScore() {
+        return sumScore;
+    }
+
+    /**
+     * @return the net number of ratings of each score that changed, by score
+     */
+    public Map<Integer, Integer> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * @return true if the batch leaves the ratings of the game as they were
+     */
+    public boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    private void change(int score, int count) {
+        numRatings += count;
+        sumScore += (long) score * count;
+        counts.merge(score, count, (current, added) -> current + added == 0 ? null : current + added);
+    }
+}
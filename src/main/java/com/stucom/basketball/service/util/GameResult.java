@@ -0,0 +1,120 @@
+package com.stucom.basketball.service.util;
+
+import com.stucom.basketball.domain.Game;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The result of a game, as counted in the standings of its teams: its teams, its scores and when it finished.
+ */
+public final class GameResult {
+
+    private final Long localTeamId;
+
+    private final Long visitorTeamId;
+
+    private final Integer localScore;
+
+    private final Integer visitorScore;
+
+    private final LocalDate finishTime;
+
+    public GameResult(Long localTeamId, Long visitorTeamId, Integer localScore, Integer visitorScore, LocalDate finishTime) {
+        this.localTeamId = localTeamId;
+        this.visitorTeamId = visitorTeamId;
+        this.localScore = localScore;
+        this.visitorScore = visitorScore;
+        this.finishTime = finishTime;
+    }
+
+    public static GameResult of(Game game) {
+        return new GameResult(game.getLocalTeam() == null ? null : game.getLocalTeam().getId(),
+            game.getVisitorTeam() == null ? null : game.getVisitorTeam().getId(),
+            game.getLocalScore(), game.getVisitorScore(), game.getFinishTime());
+    }
+
+    /**
+     * @param row a row of [localTeam id, visitorTeam id, localScore, visitorScore, finishTime]
+     * @return the result
+     */
+    public static GameResult of(Object[] row) {
+        return new GameResult((Long) row[0], (Long) row[1], (Integer) row[2], (Integer) row[3], (LocalDate) row[4]);
+    }
+
+    /**
+     * @param localPoints the points to add to the local score
+     * @param visitorPoints the points to add to the visitor score
+     * @return the result with the points added to its scores, a missing score counting as 0
+     */
+    public GameResult plus(int localPoints, int visitorPoints) {
+        return new GameResult(localTeamId, visitorTeamId, (localScore == null ? 0 : localScore) + localPoints,
+            (visitorScore == null ? 0 : visitorScore) + visitorPoints, finishTime);
+    }
+
+    /**
+     * @return true if the game counts in the standings: it has finished, and has both teams and both scores
+     */
+    public boolean isFinished() {
+        return finishTime != null && localTeamId != null && visitorTeamId != null && localScore != null && visitorScore != null;
+    }
+
+    /**
+     * @param teamId the id of one of the teams of the finished game
+     * @return 1 if the team won the game, -1 if it lost it, 0 for a tie
+     */
+    public int outcomeFor(Long teamId) {
+        int outcome = Integer.signum(localScore - visitorScore);
+        return teamId.equals(localTeamId) ? outcome : -outcome;
+    }
+
+    public Long getLocalTeamId() {
+        return localTeamId;
+    }
+
+    public Long getVisitorTeamId() {
+        return visitorTeamId;
+    }
+
+    public Integer getLocalScore() {
+        return localScore;
+    }
+
+    public Integer getVisitorScore() {
+        return visitorScore;
+    }
+
+    public LocalDate getFinishTime() {
+        return finishTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GameResult that = (GameResult) o;
+        return Objects.equals(localTeamId, that.localTeamId) && Objects.equals(visitorTeamId, that.visitorTeamId) &&
+            Objects.equals(localScore, that.localScore) && Objects.equals(visitorScore, that.visitorScore) &&
+            Objects.equals(finishTime, that.finishTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(localTeamId, visitorTeamId, localScore, visitorScore, finishTime);
+    }
+
+    @Override
+    public String toString() {
+        return "GameResult{" +
+            "localTeamId=" + localTeamId +
+            ", visitorTeamId=" + visitorTeamId +
+            ", localScore=" + localScore +
+            ", visitorScore=" + visitorScore +
+            ", finishTime=" + finishTime +
+            '}';
+    }
+}
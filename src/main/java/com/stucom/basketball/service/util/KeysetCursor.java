@@ -0,0 +1,157 @@
+package com.stucom.basketball.service.util;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Position in a list sorted on one property then on the id, for keyset (seek) pagination.
+ *
+ * <p>
+ * A page starts after the (sort value, id) of the last row of the previous page, so the database seeks
+ * into the (property, id) index instead of skipping the rows of the previous pages. The cursor is handed
+ * to clients as an opaque URL-safe string.
+ * </p>
+ */
+public final class KeysetCursor {
+
+    /** The property used when the list is only sorted by id */
+    public static final String ID = "id";
+
+    private static final String SEPARATOR = "|";
+
+    // Prefix of a non-null value, so a null value and an empty string are told apart
+    private static final String VALUE = "~";
+
+    private final String property;
+
+    private final Sort.Direction direction;
+
+    private final Long id;
+
+    private final String value;
+
+    private KeysetCursor(String property, Sort.Direction direction, Long id, String value) {
+        this.property = property;
+        this.direction = direction;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Read the cursor of a request: the encoded cursor of a following page, or the sort of the first page.
+     *
+     * @param after the encoded cursor, empty for the first page
+     * @param sort the requested sort, used for the first page: at most one property, ascending by id if none
+     * @param properties the properties, besides the id, that lists may be sorted on
+     * @return the cursor
+     * @throws IllegalArgumentException if the cursor is malformed or the sort is not supported
+     */
+    public static KeysetCursor of(String after, Sort sort, Collection<String> properties) {
+        KeysetCursor cursor;
+        if (after == null || after.isEmpty()) {
+            cursor = new KeysetCursor(ID, Sort.Direction.ASC, null, null);
+            if (sort != null) {
+                Iterator<Sort.Order> orders = sort.iterator();
+                if (orders.hasNext()) {
+                    Sort.Order order = orders.next();
+                    if (orders.hasNext()) {
+                        throw new IllegalArgumentException("Only one sort property is supported");
+                    }
+                    cursor = new KeysetCursor(order.getProperty(), order.getDirection(), null, null);
+                }
+            }
+        } else {
+            cursor = decode(after);
+        }
+        if (!ID.equals(cursor.property) && !properties.contains(cursor.property)) {
+            throw new IllegalArgumentException("Cannot sort on " + cursor.property);
+        }
+        return cursor;
+    }
+
+    private static KeysetCursor decode(String encoded) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        String[] parts = decoded.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4 || !(parts[3].isEmpty() || parts[3].startsWith(VALUE))) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new KeysetCursor(parts[1], Sort.Direction.fromString(parts[0]), Long.valueOf(parts[2]),
+                parts[3].isEmpty() ? null : parts[3].substring(VALUE.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * @param value the sort value of the last row of a page
+     * @param id the id of the last row of a page
+     * @return the cursor of the page following that row
+     */
+    public KeysetCursor after(Object value, Long id) {
+        String text = null;
+        if (value instanceof Enum) {
+            text = ((Enum<?>) value).name();
+        } else if (value != null) {
+            text = value.toString();
+        }
+        return new KeysetCursor(property, direction, id, text);
+    }
+
+    /**
+     * @return the cursor as an opaque URL-safe string
+     */
+    public String encode() {
+        String decoded = direction.name() + SEPARATOR + property + SEPARATOR + (id == null ? "" : id) + SEPARATOR +
+            (value == null ? "" : VALUE + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return true for the first page, which starts at the beginning of the list
+     */
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return the id of the last row of the previous page, null for the first page
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the sort value of the last row of the previous page, as text
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor{" +
+            "property='" + property + "'" +
+            ", direction=" + direction +
+            ", id=" + id +
+            ", value='" + value + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.stucom.basketball.service.util;
+
+import java.util.List;
+
+/**
+ * A page of a list read with keyset pagination: its rows and the cursor of the next page, without any total.
+ *
+ * @param <T> the type of the rows
+ */
+public final class KeysetPage<T> {
+
+    private final List<T> content;
+
+    private final KeysetCursor cursor;
+
+    private final int size;
+
+    private final KeysetCursor next;
+
+    public KeysetPage(List<T> content, KeysetCursor cursor, int size, KeysetCursor next) {
+        this.content = content;
+        this.cursor = cursor;
+        this.size = size;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the cursor the page was read from
+     */
+    public KeysetCursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return the requested number of rows per page
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the cursor of the next page, null if this is the last page
+     */
+    public KeysetCursor getNext() {
+        return next;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
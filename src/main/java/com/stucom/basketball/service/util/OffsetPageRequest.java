@@ -0,0 +1,95 @@
+package com.stucom.basketball.service.util;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * A Pageable starting at any row, not only at a multiple of its size: the repositories apply its offset as the
+ * first result of their query, so the rows before it are skipped by the database.
+ */
+public final class OffsetPageRequest implements Pageable {
+
+    private final int offset;
+
+    private final int size;
+
+    /**
+     * @param offset the number of rows to skip
+     * @param size the maximum number of rows to read
+     */
+    public OffsetPageRequest(int offset, int size) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("The offset must not be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("The size must be positive");
+        }
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    public int getPageNumber() {
+        return offset / size;
+    }
+
+    @Override
+    public int getPageSize() {
+        return size;
+    }
+
+    @Override
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public Sort getSort() {
+        return null;
+    }
+
+    @Override
+    public Pageable next() {
+        return new OffsetPageRequest(offset + size, size);
+    }
+
+    @Override
+    public Pageable previousOrFirst() {
+        return hasPrevious() ? new OffsetPageRequest(Math.max(0, offset - size), size) : first();
+    }
+
+    @Override
+    public Pageable first() {
+        return new OffsetPageRequest(0, size);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        OffsetPageRequest that = (OffsetPageRequest) o;
+        return offset == that.offset && size == that.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * offset + size;
+    }
+
+    @Override
+    public String toString() {
+        return "OffsetPageRequest{" +
+            "offset=" + offset +
+            ", size=" + size +
+            '}';
+    }
+}
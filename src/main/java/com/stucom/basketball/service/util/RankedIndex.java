@@ -0,0 +1,295 @@
+package com.stucom.basketball.service.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe ranking of ids by score, highest score first.
+ *
+ * <p>
+ * Backed by a treap whose nodes know the size of their subtree, so updates, "rank of id" and
+ * "top n from rank r" all run in logarithmic time (plus n for the top queries). Ties on the score
+ * are broken by the highest weight, then by the lowest id, so the order is total and stable.
+ * Readers share a read lock; writers are serialized.
+ * </p>
+ */
+public final class RankedIndex {
+
+    /**
+     * An immutable snapshot of one ranked id.
+     */
+    public static final class Entry {
+
+        private final long id;
+
+        private final double score;
+
+        private final long weight;
+
+        private Entry(long id, double score, long weight) {
+            this.id = id;
+            this.score = score;
+            this.weight = weight;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+    }
+
+    private static final class Node {
+
+        private final Entry entry;
+
+        private final int priority = ThreadLocalRandom.current().nextInt();
+
+        private Node left;
+
+        private Node right;
+
+        private int size = 1;
+
+        private Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Node> nodes = new HashMap<>();
+
+    private Node root;
+
+    /**
+     * Add an id, or move it to its new position if it is already ranked.
+     *
+     * @param id the id
+     * @param score the score, higher ranks first
+     * @param weight the tie-breaker for equal scores, higher ranks first
+     */
+    public void put(long id, double score, long weight) {
+        Node node = new Node(new Entry(id, score, weight));
+        lock.writeLock().lock();
+        try {
+            Node previous = nodes.put(id, node);
+            if (previous != null) {
+                root = delete(root, previous.entry);
+            }
+            root = insert(root, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove an id, if it is ranked.
+     *
+     * @param id the id
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Node previous = nodes.remove(id);
+            if (previous != null) {
+                root = delete(root, previous.entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id
+     * @return the current entry of the id, or null if it is not ranked
+     */
+    public Entry get(long id) {
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(id);
+            return node == null ? null : node.entry;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id
+     * @return the 1-based rank of the id, or 0 if it is not ranked
+     */
+    public int rank(long id) {
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(id);
+            if (node == null) {
+                return 0;
+            }
+            int rank = 0;
+            Node current = root;
+            while (current != null) {
+                int c = compare(node.entry, current.entry);
+                if (c < 0) {
+                    current = current.left;
+                } else if (c > 0) {
+                    rank += size(current.left) + 1;
+                    current = current.right;
+                } else {
+                    return rank + size(current.left) + 1;
+                }
+            }
+            return 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param offset the number of ranked ids to skip
+     * @param limit the maximum number of entries to return
+     * @return the entries ranked offset+1 to offset+limit, best first
+     */
+    public List<Entry> top(int offset, int limit) {
+        List<Entry> result = new ArrayList<>(Math.max(0, Math.min(limit, 100)));
+        lock.readLock().lock();
+        try {
+            collect(root, offset, offset + limit, 0, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of ranked ids
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * In-order walk of the ranks [from, to), skipping whole subtrees outside of it.
+     */
+    private static void collect(Node node, int from, int to, int base, List<Entry> result) {
+        if (node == null || base >= to || base + node.size <= from) {
+            return;
+        }
+        collect(node.left, from, to, base, result);
+        int position = base + size(node.left);
+        if (position >= from && position < to) {
+            result.add(node.entry);
+        }
+        collect(node.right, from, to, position + 1, result);
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            Node[] parts = split(node, inserted.entry);
+            inserted.left = parts[0];
+            inserted.right = parts[1];
+            update(inserted);
+            return inserted;
+        }
+        if (compare(inserted.entry, node.entry) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, Entry entry) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(entry, node.entry);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = delete(node.left, entry);
+        } else {
+            node.right = delete(node.right, entry);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * @return the nodes ordered before the entry, and the nodes ordered after it
+     */
+    private static Node[] split(Node node, Entry entry) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node.entry, entry) < 0) {
+            Node[] parts = split(node.right, entry);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node[] parts = split(node.left, entry);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int c = Double.compare(b.score, a.score);
+        if (c != 0) {
+            return c;
+        }
+        c = Long.compare(b.weight, a.weight);
+        if (c != 0) {
+            return c;
+        }
+        return Long.compare(a.id, b.id);
+    }
+}
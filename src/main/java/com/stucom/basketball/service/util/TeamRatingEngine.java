@@ -0,0 +1,274 @@
+package com.stucom.basketball.service.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe Elo ratings of the teams, over the history of the finished games in (finish day, game id) order.
+ *
+ * <p>
+ * The games and the ratings are held in primitive arrays. A game after the last one is applied to the ratings in
+ * constant time. Every {@code checkpointInterval} games the ratings are copied into a checkpoint, so a game added,
+ * corrected or removed in the past only replays the history from the last checkpoint before it, instead of the
+ * whole history. Readers share a read lock; writers are serialized.
+ * </p>
+ */
+public final class TeamRatingEngine {
+
+    /** Rating of a team before its first game */
+    public static final double INITIAL_RATING = 1500;
+
+    /** Maximum rating points exchanged in one game */
+    public static final double K_FACTOR = 20;
+
+    /** Default number of games between two checkpoints */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 4096;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int checkpointInterval;
+
+    private final Map<Long, Integer> teamIndexes = new HashMap<>();
+
+    private long[] teamIds = new long[16];
+
+    private double[] ratings = new double[16];
+
+    private int teamCount;
+
+    // The games, sorted by (day, gameId), with their teams as indexes in teamIds
+    private long[] days = new long[1024];
+
+    private long[] gameIds = new long[1024];
+
+    private int[] localTeams = new int[1024];
+
+    private int[] visitorTeams = new int[1024];
+
+    private int[] localScores = new int[1024];
+
+    private int[] visitorScores = new int[1024];
+
+    private int size;
+
+    // Checkpoint k holds the ratings before the game k * checkpointInterval, of the teams known then
+    private final List<double[]> checkpoints = new ArrayList<>();
+
+    // Number of games applied to the ratings, size outside of the write methods
+    private int applied;
+
+    public TeamRatingEngine() {
+        this(DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param checkpointInterval the number of games between two checkpoints: the most games a correction replays,
+     * besides the games after it
+     */
+    public TeamRatingEngine(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Add a finished game, or replace the game with the same day and id.
+     *
+     * @param gameId the id of the game
+     * @param day the day the game finished, as an epoch day
+     * @param localTeamId the id of the local team
+     * @param visitorTeamId the id of the visitor team
+     * @param localScore the score of the local team
+     * @param visitorScore the score of the visitor team
+     * @return the number of games applied to the ratings: 1 for a game after the last one
+     */
+    public int put(long gameId, long day, long localTeamId, long visitorTeamId, int localScore, int visitorScore) {
+        lock.writeLock().lock();
+        try {
+            int position = search(day, gameId);
+            if (position < 0) {
+                position = -position - 1;
+                insertAt(position);
+                days[position] = day;
+                gameIds[position] = gameId;
+            }
+            localTeams[position] = teamIndex(localTeamId);
+            visitorTeams[position] = teamIndex(visitorTeamId);
+            localScores[position] = localScore;
+            visitorScores[position] = visitorScore;
+            return replayFrom(position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a game.
+     *
+     * @param gameId the id of the game
+     * @param day the day the game finished, as an epoch day
+     * @return the number of games applied to the ratings, -1 if there is no such game
+     */
+    public int remove(long gameId, long day) {
+        lock.writeLock().lock();
+        try {
+            int position = search(day, gameId);
+            if (position < 0) {
+                return -1;
+            }
+            removeAt(position);
+            return replayFrom(position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param teamId the id of a team
+     * @return the rating of the team, {@link #INITIAL_RATING} if it has no games
+     */
+    public double getRating(long teamId) {
+        lock.readLock().lock();
+        try {
+            Integer index = teamIndexes.get(teamId);
+            return index == null ? INITIAL_RATING : ratings[index];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ratings of the teams that have or had games, by team id
+     */
+    public Map<Long, Double> getRatings() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> result = new HashMap<>();
+            for (int i = 0; i < teamCount; i++) {
+                result.put(teamIds[i], ratings[i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of games
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply the games from a position, restoring the ratings from the last checkpoint before it unless they are
+     * exactly the ratings before it.
+     *
+     * @return the number of games applied
+     */
+    private int replayFrom(int position) {
+        if (position != applied) {
+            int checkpoint = position / checkpointInterval;
+            double[] saved = checkpoints.get(checkpoint);
+            Arrays.fill(ratings, 0, teamCount, INITIAL_RATING);
+            System.arraycopy(saved, 0, ratings, 0, saved.length);
+            checkpoints.subList(checkpoint + 1, checkpoints.size()).clear();
+            applied = checkpoint * checkpointInterval;
+        }
+        int count = size - applied;
+        for (; applied < size; applied++) {
+            if (applied % checkpointInterval == 0 && checkpoints.size() == applied / checkpointInterval) {
+                checkpoints.add(Arrays.copyOf(ratings, teamCount));
+            }
+            apply(applied);
+        }
+        return count;
+    }
+
+    private void apply(int game) {
+        int local = localTeams[game];
+        int visitor = visitorTeams[game];
+        double expected = 1 / (1 + Math.pow(10, (ratings[visitor] - ratings[local]) / 400));
+        int outcome = Integer.compare(localScores[game], visitorScores[game]);
+        double delta = K_FACTOR * ((outcome + 1) / 2.0 - expected);
+        ratings[local] += delta;
+        ratings[visitor] -= delta;
+    }
+
+    /**
+     * @return the position of the game, or (-(insertion point) - 1) if there is no such game
+     */
+    private int search(long day, long gameId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = days[middle] != day ? Long.compare(days[middle], day) : Long.compare(gameIds[middle], gameId);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int teamIndex(long teamId) {
+        Integer index = teamIndexes.get(teamId);
+        if (index != null) {
+            return index;
+        }
+        if (teamCount == teamIds.length) {
+            teamIds = Arrays.copyOf(teamIds, teamCount * 2);
+            ratings = Arrays.copyOf(ratings, teamCount * 2);
+        }
+        teamIds[teamCount] = teamId;
+        ratings[teamCount] = INITIAL_RATING;
+        teamIndexes.put(teamId, teamCount);
+        return teamCount++;
+    }
+
+    private void insertAt(int position) {
+        if (size == days.length) {
+            int capacity = size * 2;
+            days = Arrays.copyOf(days, capacity);
+            gameIds = Arrays.copyOf(gameIds, capacity);
+            localTeams = Arrays.copyOf(localTeams, capacity);
+            visitorTeams = Arrays.copyOf(visitorTeams, capacity);
+            localScores = Arrays.copyOf(localScores, capacity);
+            visitorScores = Arrays.copyOf(visitorScores, capacity);
+        }
+        int moved = size - position;
+        System.arraycopy(days, position, days, position + 1, moved);
+        System.arraycopy(gameIds, position, gameIds, position + 1, moved);
+        System.arraycopy(localTeams, position, localTeams, position + 1, moved);
+        System.arraycopy(visitorTeams, position, visitorTeams, position + 1, moved);
+        System.arraycopy(localScores, position, localScores, position + 1, moved);
+        System.arraycopy(visitorScores, position, visitorScores, position + 1, moved);
+        size++;
+    }
+
+    private void removeAt(int position) {
+        int moved = size - position - 1;
+        System.arraycopy(days, position + 1, days, position, moved);
+        System.arraycopy(gameIds, position + 1, gameIds, position, moved);
+        System.arraycopy(localTeams, position + 1, localTeams, position, moved);
+        System.arraycopy(visitorTeams, position + 1, visitorTeams, position, moved);
+        System.arraycopy(localScores, position + 1, localScores, position, moved);
+        System.arraycopy(visitorScores, position + 1, visitorScores, position, moved);
+        size--;
+    }
+}
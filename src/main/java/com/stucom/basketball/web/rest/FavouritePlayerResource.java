@@ -2,25 +2,32 @@ package com.stucom.basketball.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import com.stucom.basketball.domain.FavouritePlayer;
-import com.stucom.basketball.domain.Player;
 import com.stucom.basketball.domain.User;
-import com.stucom.basketball.repository.FavouritePlayerRepository;
 import com.stucom.basketball.repository.UserRepository;
 import com.stucom.basketball.security.SecurityUtils;
+import com.stucom.basketball.service.FavouritePlayerMembershipService;
 import com.stucom.basketball.service.FavouritePlayerService;
+import com.stucom.basketball.service.PlayerFavouriteCountService;
 import com.stucom.basketball.service.dto.PlayerDTO;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.KeysetPage;
 import com.stucom.basketball.web.rest.util.HeaderUtil;
 import com.stucom.basketball.web.rest.util.PaginationUtil;
 
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import java.net.URI;
@@ -28,8 +35,8 @@ import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * REST controller for managing FavouritePlayer.
@@ -38,6 +45,9 @@ import java.util.stream.Collectors;
 @RequestMapping("/api")
 public class FavouritePlayerResource {
 
+    /** Maximum number of players skipped in the top players */
+    public static final int MAX_TOP_OFFSET = 1000;
+
     private final Logger log = LoggerFactory.getLogger(FavouritePlayerResource.class);
 
     @Inject
@@ -47,12 +57,18 @@ public class FavouritePlayerResource {
     private UserRepository userRepository;
 
     @Inject
-    private FavouritePlayerRepository favouritePlayerRepository;
+    private PlayerFavouriteCountService playerFavouriteCountService;
+
+    @Inject
+    private FavouritePlayerMembershipService favouritePlayerMembershipService;
+
     /**
      * POST  /favourite-players : Create a new favouritePlayer.
      *
      * @param favouritePlayer the favouritePlayer to create
-     * @return the ResponseEntity with status 201 (Created) and with body the new favouritePlayer, or with status 400 (Bad Request) if the favouritePlayer has already an ID
+     * @return the ResponseEntity with status 201 (Created) and with body the new favouritePlayer,
+     * or with status 200 (OK) and with body the existing favouritePlayer if the user already has the player as a favourite,
+     * or with status 400 (Bad Request) if the favouritePlayer has already an ID
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PostMapping("/favourite-players")
@@ -66,13 +82,31 @@ public class FavouritePlayerResource {
         User user = userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin()).get();
         ZonedDateTime now = ZonedDateTime.now();
 
-        // TODO:  Comprobar que el usuario que ha hecho la peticion no ha seleccionado previamente al jugador favorito.
-        // Evitar duplicados.
-
         favouritePlayer.setUser(user);
         favouritePlayer.setFavouriteDateTime(now);
 
-        FavouritePlayer result = favouritePlayerService.save(favouritePlayer);
+        // Un usuario solo puede tener un jugador como favorito una vez (indice unico (user_id, player_id)):
+        // si ya lo tiene se devuelve el favorito existente, de modo que repetir la peticion no tiene efecto
+        Long playerId = favouritePlayer.getPlayer() == null ? null : favouritePlayer.getPlayer().getId();
+        if (playerId != null && favouritePlayerMembershipService.isFavourite(user.getLogin(), playerId)) {
+            Optional<FavouritePlayer> existing = favouritePlayerService.findOneByUserAndPlayer(user, favouritePlayer.getPlayer());
+            if (existing.isPresent()) {
+                return ResponseEntity.ok(existing.get());
+            }
+        }
+
+        FavouritePlayer result;
+        try {
+            result = favouritePlayerService.save(favouritePlayer);
+        } catch (DataIntegrityViolationException e) {
+            // Otra peticion del mismo usuario ha creado el favorito a la vez
+            Optional<FavouritePlayer> existing = playerId == null ? Optional.empty()
+                : favouritePlayerService.findOneByUserAndPlayer(user, favouritePlayer.getPlayer());
+            if (!existing.isPresent()) {
+                throw e;
+            }
+            return ResponseEntity.ok(existing.get());
+        }
         return ResponseEntity.created(new URI("/api/favourite-players/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("favouritePlayer", result.getId().toString()))
             .body(result);
@@ -104,39 +138,127 @@ public class FavouritePlayerResource {
      * GET  /favourite-players : get all the favouritePlayers.
      *
      * @param pageable the pagination information
+     * @param count false to skip counting the favouritePlayers: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
      * @return the ResponseEntity with status 200 (OK) and the list of favouritePlayers in body
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @GetMapping("/favourite-players")
     @Timed
-    public ResponseEntity<List<FavouritePlayer>> getAllFavouritePlayers(@ApiParam Pageable pageable)
+    public ResponseEntity<List<FavouritePlayer>> getAllFavouritePlayers(@ApiParam Pageable pageable,
+                                                                        @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of FavouritePlayers");
+        if (!count) {
+            Slice<FavouritePlayer> slice = favouritePlayerService.findSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, favouritePlayerService.countApproximately(), "/api/favourite-players");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<FavouritePlayer> page = favouritePlayerService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/favourite-players");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
     /**
-     * GET  /favourite-players : get all the favouritePlayers.
+     * GET  /favourite-players?after= : get a page of the favouritePlayers with keyset pagination.
      *
-     * @return the ResponseEntity with status 200 (OK) and the list of favouritePlayers in body
-     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     * @param after the cursor of the page, from the "next" link of the previous page; empty for the first page
+     * @param pageable the size of the page and, for the first page, the property to sort on
+     * @return the ResponseEntity with status 200 (OK) and the list of favouritePlayers in body,
+     * or with status 400 (Bad Request) if the cursor or the sort is not valid
+     */
+    @GetMapping(value = "/favourite-players", params = "after")
+    @Timed
+    public ResponseEntity<List<FavouritePlayer>> getAllFavouritePlayersAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of FavouritePlayers after : {}", after);
+        KeysetPage<FavouritePlayer> page;
+        try {
+            page = favouritePlayerService.findAll(KeysetCursor.of(after, pageable.getSort(), FavouritePlayerService.KEYSET_PROPERTIES), pageable.getPageSize());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("favouritePlayer", "invalidcursor", e.getMessage())).body(null);
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/favourite-players");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /top-players : get the most favourited players.
+     *
+     * @param limit the maximum number of players to return, at most 100
+     * @param offset the number of players to skip, at most {@link #MAX_TOP_OFFSET}
+     * @return the ResponseEntity with status 200 (OK) and the list of players with their number of favourites in body,
+     * most favourited first, or with status 400 (Bad Request) if the offset is too large
      */
     @GetMapping("/top-players")
     @Timed
-    public ResponseEntity<List<PlayerDTO>> getTopPlayers()
-        throws URISyntaxException {
+    public ResponseEntity<List<PlayerDTO>> getTopPlayers(@RequestParam(defaultValue = "10") int limit,
+                                                         @RequestParam(defaultValue = "0") int offset) {
+
+        log.debug("REST request to get TopPlayers : {}, {}", offset, limit);
+        if (offset > MAX_TOP_OFFSET) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("favouritePlayer", "invalidoffset",
+                "The offset of the top players is at most " + MAX_TOP_OFFSET)).body(null);
+        }
+
+        // The favourites of each player are counted in player_favourite_count when a favourite is created or deleted:
+        // the top is an index read of a few rows, without a GROUP BY over favourite_player
+        List<PlayerDTO> result = playerFavouriteCountService.findTop(Math.max(0, offset), Math.max(0, Math.min(limit, 100)));
+
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 
-        log.debug("REST request to get TopPlayers");
+    /**
+     * GET  /favourite-players/membership : tell which players are favourites of the current user.
+     *
+     * @param playerIds the ids of the players, at most 500
+     * @return the ResponseEntity with status 200 (OK) and with body whether each player is a favourite, by player id,
+     * or with status 400 (Bad Request) if there are too many ids
+     */
+    @GetMapping("/favourite-players/membership")
+    @Timed
+    public ResponseEntity<Map<Long, Boolean>> getFavouritePlayerMembership(@RequestParam List<Long> playerIds) {
+        log.debug("REST request to get FavouritePlayer membership : {}", playerIds);
+        if (playerIds.size() > 500) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("favouritePlayer", "toomanyids", "At most 500 player ids can be checked at once")).body(null);
+        }
 
-        List<Object[]> topPlayers = favouritePlayerRepository.findTopPlayers();
+        // Los favoritos de cada usuario se guardan en memoria como un mapa de bits de ids de jugador:
+        // la comprobacion de cada ficha de jugador no hace ninguna consulta
+        Map<Long, Boolean> result = favouritePlayerMembershipService.areFavourites(SecurityUtils.getCurrentUserLogin(), playerIds);
 
-        List<PlayerDTO> result = topPlayers.parallelStream()
-            .map(topPlayer -> new PlayerDTO((Player) topPlayer[0],(Long) topPlayer[1])).
-            collect(Collectors.toList());
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 
-         return new ResponseEntity<>(result, HttpStatus.OK);
+    /**
+     * GET  /favourite-players?fields= : get the requested fields of all the favouritePlayers.
+     *
+     * @param fields the fields to read, separated by commas: properties of the favouritePlayer, or of its user or player as "player.name"
+     * @param pageable the pagination information
+     * @param count false to skip counting the favouritePlayers: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
+     * @return the ResponseEntity with status 200 (OK) and the list of the fields of the favouritePlayers in body,
+     * or with status 400 (Bad Request) if a field is not a property of the favouritePlayer
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @GetMapping(value = "/favourite-players", params = {"fields", "!after"})
+    @Timed
+    public ResponseEntity<List<Map<String, Object>>> getAllFavouritePlayersFields(@RequestParam String fields, @ApiParam Pageable pageable,
+                                                                @RequestParam(defaultValue = "true") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get the fields {} of a page of FavouritePlayers", fields);
+        String baseUrl = UriComponentsBuilder.fromPath("/api/favourite-players").queryParam("fields", fields).toUriString();
+        try {
+            if (!count) {
+                Slice<Map<String, Object>> slice = favouritePlayerService.findSlice(Fields.of(fields), pageable);
+                HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, favouritePlayerService.countApproximately(), baseUrl);
+                return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+            }
+            Page<Map<String, Object>> page = favouritePlayerService.findAll(Fields.of(fields), pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("favouritePlayer", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
     }
 
     /**
@@ -157,6 +279,31 @@ public class FavouritePlayerResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /favourite-players/:id?fields= : get the requested fields of the "id" favouritePlayer.
+     *
+     * @param id the id of the favouritePlayer to retrieve
+     * @param fields the fields to read, separated by commas: properties of the favouritePlayer, or of its user or player as "player.name"
+     * @return the ResponseEntity with status 200 (OK) and with body the fields of the favouritePlayer, or with status 404 (Not Found),
+     * or with status 400 (Bad Request) if a field is not a property of the favouritePlayer
+     */
+    @GetMapping(value = "/favourite-players/{id}", params = "fields")
+    @Timed
+    public ResponseEntity<Map<String, Object>> getFavouritePlayerFields(@PathVariable Long id, @RequestParam String fields) {
+        log.debug("REST request to get the fields {} of FavouritePlayer : {}", fields, id);
+        Map<String, Object> favouritePlayer;
+        try {
+            favouritePlayer = favouritePlayerService.findOne(Fields.of(fields), id);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("favouritePlayer", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+        return Optional.ofNullable(favouritePlayer)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
     /**
      * DELETE  /favourite-players/:id : delete the "id" favouritePlayer.
      *
@@ -1,35 +1,59 @@
 package com.stucom.basketball.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.stucom.basketball.config.JHipsterProperties;
 import com.stucom.basketball.domain.Game;
 import com.stucom.basketball.domain.GameRating;
-import com.stucom.basketball.repository.GameRatingRepository;
+import com.stucom.basketball.domain.User;
 import com.stucom.basketball.repository.GameRepository;
 import com.stucom.basketball.repository.UserRepository;
 import com.stucom.basketball.security.SecurityUtils;
+import com.stucom.basketball.service.GameLeaderboardService;
+import com.stucom.basketball.service.GameRatingBurstBuffer;
 import com.stucom.basketball.service.GameRatingService;
+import com.stucom.basketball.service.GameRatingStatsService;
 import com.stucom.basketball.service.GameService;
+import com.stucom.basketball.service.GameTrendingService;
+import com.stucom.basketball.service.dto.GameRankDTO;
+import com.stucom.basketball.service.dto.GameRatingBatchResultDTO;
 import com.stucom.basketball.service.dto.GameRatingDTO;
+import com.stucom.basketball.service.dto.GameRatingHistogramDTO;
+import com.stucom.basketball.service.dto.GameTrendDTO;
+import com.stucom.basketball.service.util.RankedIndex;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.KeysetPage;
 import com.stucom.basketball.web.rest.util.HeaderUtil;
 import com.stucom.basketball.web.rest.util.PaginationUtil;
 
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing GameRating.
@@ -40,24 +64,45 @@ public class GameRatingResource {
 
     private final Logger log = LoggerFactory.getLogger(GameRatingResource.class);
 
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private static final int MAX_AVERAGES = 100;
+
     @Inject
     private GameRatingService gameRatingService;
 
     @Inject
     private GameRepository gameRepository;
 
-    @Inject
-    private GameRatingRepository gameRatingRepository;
-
     @Inject
     private UserRepository userRepository;
 
     @Inject
     private GameService gameService;
 
+    @Inject
+    private GameRatingStatsService gameRatingStatsService;
+
+    @Inject
+    private GameLeaderboardService gameLeaderboardService;
+
+    @Inject
+    private GameRatingBurstBuffer gameRatingBurstBuffer;
+
+    @Inject
+    private GameTrendingService gameTrendingService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
     /**
      * POST  /game-ratings : Create a new gameRating.
      *
+     * <p>
+     * In burst mode (jhipster.rating.burst.enabled) the rating is buffered and written later in a batch: the response
+     * has status 202 (Accepted), or 200 (OK) once written with the "flushed" durability, and its body has no ID.
+     * </p>
+     *
      * @param gameRating the gameRating to create
      * @return the ResponseEntity with status 201 (Created) and with body the new gameRating, or with status 400 (Bad Request) if the gameRating has already an ID
      * @throws URISyntaxException if the Location URI syntax is incorrect
@@ -71,6 +116,18 @@ public class GameRatingResource {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("gameRating", "idexists", "A new gameRating cannot already have an ID")).body(null);
         }
 
+        if (gameRatingBurstBuffer.isEnabled()) {
+            //En modo rafaga (al acabar un partido) no consultamos nada: la valoracion se guarda en un buffer
+            //y se escribe despues en lote. Si el buffer la rechaza (lleno o con retraso) seguimos por el camino normal
+            ResponseEntity<GameRating> buffered = bufferGameRating(gameRating);
+            if (buffered != null) {
+                if (buffered.getStatusCode().is2xxSuccessful()) {
+                    gameTrendingService.record(gameRating.getGame().getId());
+                }
+                return buffered;
+            }
+        }
+
         if(gameRepository.findOne(gameRating.getGame().getId())==null){
             //Comprobamos si el objeto gameRating existe, si no existe regresamos un 403 bad request
             return ResponseEntity.badRequest().
@@ -82,32 +139,88 @@ public class GameRatingResource {
         gameRating.setScoreDateTime(ZonedDateTime.now());
         //Le colocamos el tiempo de hoy, ya que bien vaya a actualizar o crear, será hoy cuando lo haga
 
-        Optional<GameRating> gameRatingOptional = gameRatingRepository.findByUserAndGame(gameRating.getUser(),gameRating.getGame());
-
-        //buscamos una valoracion de ese usuario y del juego que pasamos por parametro
-        //Lo envolvemos en un Optional porque puede regresar un valor o un null
-        //OJO dentro del repository la consulta tambien debe tener un Optional
+        //Guardamos la valoracion con un solo upsert sobre el indice unico (user_id, game_id):
+        //si el usuario ya habia valorado el juego se actualiza su valoracion, si no se crea.
+        //Antes buscabamos la valoracion con findByUserAndGame y luego la creabamos o actualizabamos: dos peticiones
+        //a la vez del mismo usuario podian crear dos valoraciones. Con el upsert la base de datos garantiza una sola
+        //(el service actualiza tambien las estadisticas del juego, para eso lee la puntuacion anterior)
+        boolean created = gameRatingService.saveScore(gameRating);
+        //Contamos la valoracion para los juegos en tendencia (en memoria)
+        gameTrendingService.record(gameRating.getGame().getId());
+        if (created) {
+            //Si no existia, regresamos la URL con la ruta del gameRating creado
+            return ResponseEntity.created(new URI("/api/game-ratings/" + gameRating.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert("gameRating", gameRating.getId().toString()))
+                .body(gameRating);
+        }
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createEntityUpdateAlert("gameRating", gameRating.getId().toString()))
+            .body(gameRating);
+    }
 
-        GameRating result = null;
+    private ResponseEntity<GameRating> bufferGameRating(GameRating gameRating) {
+        if (gameRating.getGame() == null || gameRating.getGame().getId() == null) {
+            return ResponseEntity.badRequest().
+                headers(HeaderUtil.createFailureAlert("gameRating","gameNotExistant","Game doesn't exists")).body(null);
+        }
+        CompletableFuture<Void> flushed = gameRatingBurstBuffer.offer(SecurityUtils.getCurrentUserLogin(),
+            gameRating.getGame().getId(), gameRating.getScore());
+        if (flushed == null) {
+            return null;
+        }
+        JHipsterProperties.Rating.Burst burst = jHipsterProperties.getRating().getBurst();
+        if (burst.getDurability() == JHipsterProperties.Rating.Burst.Durability.FLUSHED) {
+            try {
+                flushed.get(burst.getFlushInterval() + burst.getMaxLag(), TimeUnit.MILLISECONDS);
+                return ResponseEntity.ok().body(gameRating);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).
+                    headers(HeaderUtil.createFailureAlert("gameRating","notSaved","The rating could not be saved")).body(null);
+            } catch (TimeoutException e) {
+                log.debug("GameRating of Game {} not flushed yet", gameRating.getGame().getId());
+            }
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(gameRating);
+    }
 
-        if(gameRatingOptional.isPresent()){
-            //Si gameRatingOptional tiene valor, existe la valoracion, entonces actualizamos los datos
-            result = gameRatingOptional.get();
-            result.setScore(gameRating.getScore());
-            //le colocamos como score al objeto result el score del gameRating que pasamos por parametro
-            result.setScoreDateTime(gameRating.getScoreDateTime());
-            //Podriamos colocar result.setScoreDateTime(ZonedDateTime.now()), pero tendria mas coste, asi que aprovechamos que ya
-            //le colocamos a gameRating un ZonedDateTime.now()
-             return updateGameRating(result);
-            //De aqui lo enviamos al PUT, que se encargará de actualizar los datos
-        }else{
-            //si no existe una valoracion, es decir, gameRatingOptional es null, llamamos al repository y guardamos el gameRating
-            //Finalmente regresamos la URL con la ruta del gameRating creado
-            result = gameRatingRepository.save(gameRating);
-            return ResponseEntity.created(new URI("/api/game-ratings/" + result.getId()))
-                .headers(HeaderUtil.createEntityCreationAlert("gameRating", result.getId().toString()))
-                .body(result);
+    /**
+     * POST  /game-ratings/batch : Save a batch of ratings of the current user, such as the ones a mobile client
+     * queued while offline.
+     * <p>
+     * Each rating creates the rating of the user for its game, or replaces it. A rating without date is dated now.
+     * </p>
+     *
+     * @param gameRatings the ratings to save, at most 500
+     * @return the ResponseEntity with status 200 (OK) and with body the outcome of each rating, in the order of the batch,
+     * or with status 400 (Bad Request) if the batch is too large
+     */
+    @PostMapping("/game-ratings/batch")
+    @Timed
+    public ResponseEntity<List<GameRatingBatchResultDTO>> createGameRatings(@RequestBody List<GameRating> gameRatings) {
+        log.debug("REST request to save a batch of {} GameRatings", gameRatings.size());
+        if (gameRatings.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("gameRating", "batchtoolarge", "A batch holds at most " + MAX_BATCH_SIZE + " ratings"))
+                .body(null);
         }
+        //Buscamos el usuario loggeado una sola vez para todo el lote
+        User user = userRepository.findOneByLogin(SecurityUtils.getCurrentUserLogin()).get();
+        ZonedDateTime now = ZonedDateTime.now();
+        for (GameRating gameRating : gameRatings) {
+            if (gameRating.getScoreDateTime() == null) {
+                gameRating.setScoreDateTime(now);
+            }
+        }
+        List<GameRatingBatchResultDTO> results = gameRatingService.saveBatch(user, gameRatings);
+        for (GameRatingBatchResultDTO result : results) {
+            if (result.getStatus() == GameRatingBatchResultDTO.Status.CREATED
+                || result.getStatus() == GameRatingBatchResultDTO.Status.UPDATED) {
+                gameTrendingService.record(result.getGameId());
+            }
+        }
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
     /**
@@ -136,19 +249,81 @@ public class GameRatingResource {
      * GET  /game-ratings : get all the gameRatings.
      *
      * @param pageable the pagination information
+     * @param count false to skip counting the gameRatings: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
      * @return the ResponseEntity with status 200 (OK) and the list of gameRatings in body
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @GetMapping("/game-ratings")
     @Timed
-    public ResponseEntity<List<GameRating>> getAllGameRatings(@ApiParam Pageable pageable)
+    public ResponseEntity<List<GameRating>> getAllGameRatings(@ApiParam Pageable pageable,
+                                                              @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of GameRatings");
+        if (!count) {
+            Slice<GameRating> slice = gameRatingService.findSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, gameRatingService.countApproximately(), "/api/game-ratings");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<GameRating> page = gameRatingService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/game-ratings");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /game-ratings?after= : get a page of the gameRatings with keyset pagination.
+     *
+     * @param after the cursor of the page, from the "next" link of the previous page; empty for the first page
+     * @param pageable the size of the page and, for the first page, the property to sort on
+     * @return the ResponseEntity with status 200 (OK) and the list of gameRatings in body,
+     * or with status 400 (Bad Request) if the cursor or the sort is not valid
+     */
+    @GetMapping(value = "/game-ratings", params = "after")
+    @Timed
+    public ResponseEntity<List<GameRating>> getAllGameRatingsAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of GameRatings after : {}", after);
+        KeysetPage<GameRating> page;
+        try {
+            page = gameRatingService.findAll(KeysetCursor.of(after, pageable.getSort(), GameRatingService.KEYSET_PROPERTIES), pageable.getPageSize());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("gameRating", "invalidcursor", e.getMessage())).body(null);
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/game-ratings");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /game-ratings?fields= : get the requested fields of all the gameRatings.
+     *
+     * @param fields the fields to read, separated by commas: properties of the gameRating, or of its user or game as "game.name"
+     * @param pageable the pagination information
+     * @param count false to skip counting the gameRatings: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
+     * @return the ResponseEntity with status 200 (OK) and the list of the fields of the gameRatings in body,
+     * or with status 400 (Bad Request) if a field is not a property of the gameRating
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @GetMapping(value = "/game-ratings", params = {"fields", "!after"})
+    @Timed
+    public ResponseEntity<List<Map<String, Object>>> getAllGameRatingsFields(@RequestParam String fields, @ApiParam Pageable pageable,
+                                                                @RequestParam(defaultValue = "true") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get the fields {} of a page of GameRatings", fields);
+        String baseUrl = UriComponentsBuilder.fromPath("/api/game-ratings").queryParam("fields", fields).toUriString();
+        try {
+            if (!count) {
+                Slice<Map<String, Object>> slice = gameRatingService.findSlice(Fields.of(fields), pageable);
+                HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, gameRatingService.countApproximately(), baseUrl);
+                return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+            }
+            Page<Map<String, Object>> page = gameRatingService.findAll(Fields.of(fields), pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("gameRating", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+    }
+
     /**
      * GET  /game-ratings/:id : get the "id" gameRating.
      *
@@ -167,6 +342,31 @@ public class GameRatingResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /game-ratings/:id?fields= : get the requested fields of the "id" gameRating.
+     *
+     * @param id the id of the gameRating to retrieve
+     * @param fields the fields to read, separated by commas: properties of the gameRating, or of its user or game as "game.name"
+     * @return the ResponseEntity with status 200 (OK) and with body the fields of the gameRating, or with status 404 (Not Found),
+     * or with status 400 (Bad Request) if a field is not a property of the gameRating
+     */
+    @GetMapping(value = "/game-ratings/{id}", params = "fields")
+    @Timed
+    public ResponseEntity<Map<String, Object>> getGameRatingFields(@PathVariable Long id, @RequestParam String fields) {
+        log.debug("REST request to get the fields {} of GameRating : {}", fields, id);
+        Map<String, Object> gameRating;
+        try {
+            gameRating = gameRatingService.findOne(Fields.of(fields), id);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("gameRating", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+        return Optional.ofNullable(gameRating)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
     @GetMapping("/game-rating/avgGameRating/{id}")
     @Timed
     public ResponseEntity<GameRatingDTO> avgGameRating(@PathVariable Long id){
@@ -179,9 +379,9 @@ public class GameRatingResource {
         }else{
             //si el juego existe, regresamos un objeto GameRatingDTO que contenga
             //1) El juego en si con todos sus datos
-            //2) La consulta donde obtenemos el AVG de todas las valoraciones para ese juego
+            //2) La media de todas las valoraciones para ese juego
 
-            GameRatingDTO gameRatingDTO = new GameRatingDTO(game,gameRatingRepository.avgGameRating(game));
+            GameRatingDTO gameRatingDTO = new GameRatingDTO(game,gameRatingStatsService.findAverage(id));
             return new ResponseEntity<>(gameRatingDTO,HttpStatus.OK);
             //Regresamos el objeto gameRatingDTO con un HttpStatus OK
 
@@ -191,11 +391,10 @@ public class GameRatingResource {
                 Si necesitamos regresar el juego + sus estadisticas, no podemos regresar un objeto gameRating, ya que no existe
                 un atributo media o algo parecido.
 
-                Desde el repository hacemos la consulta
-                @Query ("select avg(gameRating.score) from GameRating gameRating where gameRating.game = :game")
-                Double avgGameRating(@Param("game")Game game);
+                La media no se calcula con un AVG sobre game_rating (que recorre todas las valoraciones del juego):
+                la tabla game_rating_stats guarda la suma y el numero de valoraciones de cada juego, y GameRatingService
+                la actualiza en la misma transaccion que cada valoracion. Leer la media es leer una fila.
 
-                Donde seleccionamos el avg del gameRating (las valoraciones de ese partido) y que el juego sea igual al juego que queremos consultar.
                 De esto regresamos un Double, el cual usaremos para crear un nuevo objeto GameRatingDTO que tendrá:
                     - Todos los datos del Juego
                     - Media del Juego
@@ -204,20 +403,129 @@ public class GameRatingResource {
         }
     }
 
-    @GetMapping("/game-rating/topGames/")
+    /**
+     * GET  /game-rating/averages?ids= : get the average scores of several games, such as the games of a list page.
+     *
+     * @param ids the ids of the games, at most 100
+     * @return the ResponseEntity with status 200 (OK) and with body the average of each game by id (null if the game
+     * has no ratings, or does not exist), or with status 400 (Bad Request) if there are too many ids
+     */
+    @GetMapping("/game-rating/averages")
     @Timed
-    public ResponseEntity<GameRating> topGameRatings(){
-        log.debug("REST request to get topGameRatings : {}");
+    public ResponseEntity<Map<Long, Double>> avgGameRatings(@RequestParam List<Long> ids) {
+        log.debug("REST request to get avgGameRatings : {}", ids);
+        if (ids.size() > MAX_AVERAGES) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("gameRating", "toomanyids", "At most " + MAX_AVERAGES + " games at once"))
+                .body(null);
+        }
+        //Una sola consulta por clave primaria a game_rating_stats para todos los juegos de la pagina,
+        //en vez de una peticion a avgGameRating por cada fila
+        Map<Long, Double> found = gameRatingStatsService.findAverages(ids);
+        Map<Long, Double> averages = new LinkedHashMap<>();
+        for (Long id : ids) {
+            averages.put(id, found.get(id));
+        }
+        return new ResponseEntity<>(averages, HttpStatus.OK);
+    }
 
-        //Add pageable result
+    /**
+     * GET  /game-rating/trending?window= : get the games with the most ratings over the last hour ("1h"),
+     * 6 hours ("6h") or 24 hours ("24h"). The counts are refreshed every minute.
+     *
+     * @param window the window, "1h", "6h" or "24h"
+     * @param size the number of games to return
+     * @return the ResponseEntity with status 200 (OK) and the games with their number of ratings in body, most rated
+     * first, or with status 400 (Bad Request) if the window is unknown
+     */
+    @GetMapping("/game-rating/trending")
+    @Timed
+    public ResponseEntity<List<GameTrendDTO>> trendingGames(@RequestParam(defaultValue = "1h") String window,
+                                                            @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to get the trending games : {}", window);
+        GameTrendingService.Window trendWindow = GameTrendingService.Window.fromCode(window);
+        if (trendWindow == null) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("gameRating", "unknownwindow", "The window must be 1h, 6h or 24h"))
+                .body(null);
+        }
+        //Se sirve desde memoria, sin consultar la base de datos
+        return new ResponseEntity<>(gameTrendingService.findTrending(trendWindow, size), HttpStatus.OK);
+    }
 
-        Pageable topTen = new PageRequest(0, 5);
+    /**
+     * GET  /game-rating/:id/histogram : get the number of ratings of each score, from 1 to 10, of the "id" game.
+     * Scores out of that range are counted with the nearest one.
+     *
+     * @param id the id of the game
+     * @return the ResponseEntity with status 200 (OK) and with body the distribution, or with status 404 (Not Found)
+     */
+    @GetMapping("/game-rating/{id}/histogram")
+    @Timed
+    public ResponseEntity<GameRatingHistogramDTO> gameRatingHistogram(@PathVariable Long id) {
+        log.debug("REST request to get the histogram of Game : {}", id);
+        //Las cuentas de cada puntuacion se guardan en game_rating_stats junto a la media, asi que es leer una fila
+        //y no hace falta un GROUP BY sobre game_rating en cada peticion
+        GameRatingHistogramDTO histogram = gameRatingStatsService.findHistogram(id);
+        if (histogram.getNumRatings() == 0 && !gameRepository.exists(id)) {
+            //Solo si no hay valoraciones comprobamos que el juego exista
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(histogram, HttpStatus.OK);
+    }
 
-        //Se agrega el Pageable, lo cual limita los resultados. Seria como un limit 5 en SQL
-        List<GameRating> topGameList = gameRatingRepository.findAllByOrderByScoreDesc(topTen);
-        //Obtenemos la lista de los juegos y regresamos la lista en el body y el Status OK en el HTTP
-        return new ResponseEntity(topGameList,HttpStatus.OK);
+    /**
+     * GET  /game-rating/topGames/ : get the best rated games.
+     *
+     * @param size the number of games to return
+     * @return the ResponseEntity with status 200 (OK) and the ranked games in body, best first
+     */
+    @GetMapping("/game-rating/topGames/")
+    @Timed
+    public ResponseEntity<List<GameRankDTO>> topGameRatings(@RequestParam(defaultValue = "5") int size){
+        log.debug("REST request to get topGameRatings : {}", size);
+
+        // The ranking by average rating is held in memory (GameLeaderboardService), so the ratings are not sorted
+        // in the database: only the games of the top are read, by id
+        List<RankedIndex.Entry> top = gameLeaderboardService.findTop(0, Math.max(0, Math.min(size, 100)));
+        List<Long> ids = top.stream().map(RankedIndex.Entry::getId).collect(Collectors.toList());
+        Map<Long, Game> games = gameRepository.findAll(ids).stream()
+            .collect(Collectors.toMap(Game::getId, Function.identity()));
+
+        List<GameRankDTO> result = new ArrayList<>();
+        int rank = 0;
+        for (RankedIndex.Entry entry : top) {
+            // The rank in the index, as /game-rating/rank/{id} reports it, even if a game was deleted meanwhile
+            rank++;
+            Game game = games.get(entry.getId());
+            if (game != null) {
+                result.add(new GameRankDTO(game, rank, entry.getScore(), entry.getWeight()));
+            }
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 
+    /**
+     * GET  /game-rating/rank/:id : get the position of the "id" game in the ranking by average rating.
+     *
+     * @param id the id of the game
+     * @return the ResponseEntity with status 200 (OK) and with body the rank (null if the game has no ratings),
+     * or with status 404 (Not Found)
+     */
+    @GetMapping("/game-rating/rank/{id}")
+    @Timed
+    public ResponseEntity<GameRankDTO> gameRank(@PathVariable Long id) {
+        log.debug("REST request to get the rank of Game : {}", id);
+        Game game = gameRepository.findOne(id);
+        if (game == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        RankedIndex.Entry entry = gameLeaderboardService.findEntry(id);
+        int rank = gameLeaderboardService.findRank(id);
+        if (entry == null || rank == 0) {
+            return new ResponseEntity<>(new GameRankDTO(game, null, null, 0L), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(new GameRankDTO(game, rank, entry.getScore(), entry.getWeight()), HttpStatus.OK);
     }
 
     /**
@@ -2,25 +2,45 @@ package com.stucom.basketball.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.service.GameEventService;
+import com.stucom.basketball.service.GameLiveService;
+import com.stucom.basketball.service.GameRatingStatsService;
+import com.stucom.basketball.service.GameScheduleService;
 import com.stucom.basketball.service.GameService;
+import com.stucom.basketball.service.dto.GameEventDTO;
+import com.stucom.basketball.service.dto.GameRatingDTO;
+import com.stucom.basketball.service.dto.GameScheduleDTO;
+import com.stucom.basketball.service.dto.GameScoreDTO;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.KeysetPage;
+import com.stucom.basketball.web.rest.util.ETagUtil;
 import com.stucom.basketball.web.rest.util.HeaderUtil;
 import com.stucom.basketball.web.rest.util.PaginationUtil;
 
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Game.
@@ -30,10 +50,24 @@ import java.util.Optional;
 public class GameResource {
 
     private final Logger log = LoggerFactory.getLogger(GameResource.class);
+
+    private static final int MAX_EVENTS = 500;
         
     @Inject
     private GameService gameService;
 
+    @Inject
+    private GameScheduleService gameScheduleService;
+
+    @Inject
+    private GameRatingStatsService gameRatingStatsService;
+
+    @Inject
+    private GameEventService gameEventService;
+
+    @Inject
+    private GameLiveService gameLiveService;
+
     /**
      * POST  /games : Create a new game.
      *
@@ -59,7 +93,8 @@ public class GameResource {
      *
      * @param game the game to update
      * @return the ResponseEntity with status 200 (OK) and with body the updated game,
-     * or with status 400 (Bad Request) if the game is not valid,
+     * or with status 400 (Bad Request) if the game is not valid or has no version,
+     * or with status 409 (Conflict) if the game was updated since its version was read,
      * or with status 500 (Internal Server Error) if the game couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -70,6 +105,9 @@ public class GameResource {
         if (game.getId() == null) {
             return createGame(game);
         }
+        if (game.getVersion() == null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "versionrequired", "An updated game must have the version it was read at")).body(null);
+        }
         Game result = gameService.save(game);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("game", game.getId().toString()))
@@ -80,24 +118,147 @@ public class GameResource {
      * GET  /games : get all the games.
      *
      * @param pageable the pagination information
+     * @param count false to skip counting the games: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
      * @return the ResponseEntity with status 200 (OK) and the list of games in body
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @GetMapping("/games")
     @Timed
-    public ResponseEntity<List<Game>> getAllGames(@ApiParam Pageable pageable)
+    public ResponseEntity<List<Game>> getAllGames(@ApiParam Pageable pageable,
+                                                  @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of Games");
+        if (!count) {
+            Slice<Game> slice = gameService.findSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, gameService.countApproximately(), "/api/games");
+            headers.setETag(ETagUtil.weakETag(slice.getContent(), ETagUtil::version));
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<Game> page = gameService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/games");
+        headers.setETag(ETagUtil.weakETag(page.getContent(), ETagUtil::version));
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /games?from=&to= : get the schedule of the games starting between two days.
+     *
+     * The other listings of the games do not take a range of days, so the range cannot be combined with their
+     * parameters.
+     *
+     * @param from the first day
+     * @param to the last day, included
+     * @param after not supported with a range of days
+     * @param fields not supported with a range of days
+     * @param withRatings not supported with a range of days
+     * @return the ResponseEntity with status 200 (OK) and the games in body, by day then id, or with status
+     * 400 (Bad Request) if the last day is before the first one, the range is too long, or a parameter of another
+     * listing is given
+     */
+    @GetMapping(value = "/games", params = {"from", "to"})
+    @Timed
+    public ResponseEntity<List<GameScheduleDTO>> getGameSchedule(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                 @RequestParam(required = false) String after,
+                                                                 @RequestParam(required = false) String fields,
+                                                                 @RequestParam(required = false) String withRatings) {
+        log.debug("REST request to get the Games from {} to {}", from, to);
+        if (after != null || fields != null || withRatings != null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "invalidparams",
+                "A range of days cannot be combined with after, fields or withRatings")).body(null);
+        }
+        try {
+            return new ResponseEntity<>(gameScheduleService.findBetween(from, to), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "invalidrange", e.getMessage())).body(null);
+        }
+    }
+
+    /**
+     * GET  /games?after= : get a page of the games with keyset pagination.
+     *
+     * @param after the cursor of the page, from the "next" link of the previous page; empty for the first page
+     * @param pageable the size of the page and, for the first page, the property to sort on
+     * @return the ResponseEntity with status 200 (OK) and the list of games in body,
+     * or with status 400 (Bad Request) if the cursor or the sort is not valid
+     */
+    @GetMapping(value = "/games", params = {"after", "!withRatings", "!from", "!to"})
+    @Timed
+    public ResponseEntity<List<Game>> getAllGamesAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of Games after : {}", after);
+        KeysetPage<Game> page;
+        try {
+            page = gameService.findAll(KeysetCursor.of(after, pageable.getSort(), GameService.KEYSET_PROPERTIES), pageable.getPageSize());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "invalidcursor", e.getMessage())).body(null);
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/games");
+        headers.setETag(ETagUtil.weakETag(page.getContent(), ETagUtil::version));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /games?withRatings=true : get all the games, with their average score.
+     *
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of games with their average score (null if the
+     * game has no ratings) in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @GetMapping(value = "/games", params = {"withRatings=true", "!from", "!to"})
+    @Timed
+    public ResponseEntity<List<GameRatingDTO>> getAllGamesWithRatings(@ApiParam Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Games with their ratings");
+        Page<Game> page = gameService.findAll(pageable);
+        Map<Long, Double> averages = gameRatingStatsService.findAverages(
+            page.getContent().stream().map(Game::getId).collect(Collectors.toList()));
+        List<GameRatingDTO> games = page.getContent().stream()
+            .map(game -> new GameRatingDTO(game, averages.get(game.getId())))
+            .collect(Collectors.toList());
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/games");
+        return new ResponseEntity<>(games, headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /games?fields= : get the requested fields of all the games.
+     *
+     * @param fields the fields to read, separated by commas: properties of the game, or of its teams as "localTeam.name"
+     * @param pageable the pagination information
+     * @param count false to skip counting the games: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
+     * @return the ResponseEntity with status 200 (OK) and the list of the fields of the games in body,
+     * or with status 400 (Bad Request) if a field is not a property of the game
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @GetMapping(value = "/games", params = {"fields", "!after", "!withRatings", "!from", "!to"})
+    @Timed
+    public ResponseEntity<List<Map<String, Object>>> getAllGamesFields(@RequestParam String fields, @ApiParam Pageable pageable,
+                                                                @RequestParam(defaultValue = "true") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get the fields {} of a page of Games", fields);
+        String baseUrl = UriComponentsBuilder.fromPath("/api/games").queryParam("fields", fields).toUriString();
+        try {
+            if (!count) {
+                Slice<Map<String, Object>> slice = gameService.findSlice(Fields.of(fields), pageable);
+                HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, gameService.countApproximately(), baseUrl);
+                return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+            }
+            Page<Map<String, Object>> page = gameService.findAll(Fields.of(fields), pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+    }
+
     /**
      * GET  /games/:id : get the "id" game.
      *
      * @param id the id of the game to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the game, or with status 404 (Not Found)
+     * @return the ResponseEntity with status 200 (OK) and with body the game, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if its ETag matches If-None-Match
      */
     @GetMapping("/games/{id}")
     @Timed
@@ -105,12 +266,128 @@ public class GameResource {
         log.debug("REST request to get Game : {}", id);
         Game game = gameService.findOne(id);
         return Optional.ofNullable(game)
+            .map(result -> ResponseEntity.ok()
+                .eTag(ETagUtil.eTag(ETagUtil.version(result)))
+                .body(result))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /games/:id?fields= : get the requested fields of the "id" game.
+     *
+     * @param id the id of the game to retrieve
+     * @param fields the fields to read, separated by commas: properties of the game, or of its teams as "localTeam.name"
+     * @return the ResponseEntity with status 200 (OK) and with body the fields of the game, or with status 404 (Not Found),
+     * or with status 400 (Bad Request) if a field is not a property of the game
+     */
+    @GetMapping(value = "/games/{id}", params = "fields")
+    @Timed
+    public ResponseEntity<Map<String, Object>> getGameFields(@PathVariable Long id, @RequestParam String fields) {
+        log.debug("REST request to get the fields {} of Game : {}", fields, id);
+        Map<String, Object> game;
+        try {
+            game = gameService.findOne(Fields.of(fields), id);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+        return Optional.ofNullable(game)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * POST  /games/:id/events : Append events to the play-by-play of the "id" game, such as a scorekeeper records them.
+     * <p>
+     * The scores of the game and the stats of the players are derived from the events, in the same transaction. A
+     * basket without points scores 2, an event without time happened now.
+     * </p>
+     *
+     * @param id the id of the game
+     * @param events the events, in the order they happened, at most 500
+     * @return the ResponseEntity with status 201 (Created) and with body the events with their seq,
+     * or with status 400 (Bad Request) if the batch is too large or an event is not valid (no event is then appended),
+     * or with status 404 (Not Found)
+     * @throws URISyntaxException if the Location URI syntax is incorrect
+     */
+    @PostMapping("/games/{id}/events")
+    @Timed
+    public ResponseEntity<List<GameEventDTO>> createGameEvents(@PathVariable Long id, @RequestBody List<GameEventDTO> events)
+        throws URISyntaxException {
+        log.debug("REST request to append {} events to Game : {}", events.size(), id);
+        if (events.size() > MAX_EVENTS) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("game", "batchtoolarge", "A batch holds at most " + MAX_EVENTS + " events"))
+                .body(null);
+        }
+        List<GameEventDTO> result;
+        try {
+            result = gameEventService.append(id, events);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("game", "invalidevent", e.getMessage())).body(null);
+        }
+        if (result == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        // The new events are read from the seq before the first one
+        long since = result.isEmpty() ? 0 : result.get(0).getSeq() - 1;
+        return ResponseEntity.created(new URI("/api/games/" + id + "/events?since=" + since))
+            .headers(HeaderUtil.createEntityUpdateAlert("game", id.toString()))
+            .body(result);
+    }
+
+    /**
+     * GET  /games/:id/events?since= : get the events of the "id" game after a seq, to tail its play-by-play.
+     *
+     * @param id the id of the game
+     * @param since the seq of the last event already read, 0 (the default) to read from the first one
+     * @param size the maximum number of events to return, at most 500
+     * @return the ResponseEntity with status 200 (OK) and the list of events in body, in seq order,
+     * or with status 404 (Not Found)
+     */
+    @GetMapping("/games/{id}/events")
+    @Timed
+    public ResponseEntity<List<GameEventDTO>> getGameEvents(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "0") long since,
+                                                            @RequestParam(defaultValue = "100") int size) {
+        log.debug("REST request to get the events of Game {} since : {}", id, since);
+        return Optional.ofNullable(gameEventService.findSince(id, since, Math.max(1, Math.min(size, MAX_EVENTS))))
             .map(result -> new ResponseEntity<>(
                 result,
                 HttpStatus.OK))
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /games/:id/live : stream the score of the "id" game as Server-Sent Events, instead of polling the game.
+     * <p>
+     * The first "score" event holds the current score, the next ones are pushed as the score changes. The id of an
+     * event is the version of the game.
+     * </p>
+     *
+     * @param id the id of the game
+     * @return the ResponseEntity with status 200 (OK) and the stream of the scores of the game,
+     * or with status 404 (Not Found),
+     * or with status 503 (Service Unavailable) if this node has as many viewers as it accepts
+     */
+    @GetMapping(value = "/games/{id}/live", produces = "text/event-stream")
+    @Timed
+    public ResponseEntity<SseEmitter> getGameLive(@PathVariable Long id) {
+        log.debug("REST request to stream the score of Game : {}", id);
+        GameScoreDTO score = gameService.findScore(id);
+        if (score == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        SseEmitter emitter = gameLiveService.subscribe(score);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .headers(HeaderUtil.createFailureAlert("game", "toomanyviewers", "Too many live viewers, try again later"))
+                .body(null);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * DELETE  /games/:id : delete the "id" game.
      *
@@ -3,23 +3,34 @@ package com.stucom.basketball.web.rest;
 import com.codahale.metrics.annotation.Timed;
 import com.stucom.basketball.domain.Player;
 import com.stucom.basketball.service.PlayerService;
+import com.stucom.basketball.service.PlayerSimilarityService;
+import com.stucom.basketball.service.dto.PlayerStatsDTO;
+import com.stucom.basketball.service.dto.SimilarPlayerDTO;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.KeysetPage;
+import com.stucom.basketball.web.rest.util.ETagUtil;
 import com.stucom.basketball.web.rest.util.HeaderUtil;
 import com.stucom.basketball.web.rest.util.PaginationUtil;
 
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -30,10 +41,15 @@ import java.util.Optional;
 public class PlayerResource {
 
     private final Logger log = LoggerFactory.getLogger(PlayerResource.class);
+
+    private static final int MAX_BATCH_SIZE = 500;
         
     @Inject
     private PlayerService playerService;
 
+    @Inject
+    private PlayerSimilarityService playerSimilarityService;
+
     /**
      * POST  /players : Create a new player.
      *
@@ -59,7 +75,8 @@ public class PlayerResource {
      *
      * @param player the player to update
      * @return the ResponseEntity with status 200 (OK) and with body the updated player,
-     * or with status 400 (Bad Request) if the player is not valid,
+     * or with status 400 (Bad Request) if the player is not valid or has no version,
+     * or with status 409 (Conflict) if the player was updated since its version was read,
      * or with status 500 (Internal Server Error) if the player couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -70,6 +87,9 @@ public class PlayerResource {
         if (player.getId() == null) {
             return createPlayer(player);
         }
+        if (player.getVersion() == null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("player", "versionrequired", "An updated player must have the version it was read at")).body(null);
+        }
         Player result = playerService.save(player);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("player", player.getId().toString()))
@@ -80,30 +100,121 @@ public class PlayerResource {
      * GET  /players : get all the players.
      *
      * @param pageable the pagination information
+     * @param count false to skip counting the players: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
      * @return the ResponseEntity with status 200 (OK) and the list of players in body
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @GetMapping("/players")
     @Timed
-    public ResponseEntity<List<Player>> getAllPlayers(@ApiParam Pageable pageable)
+    public ResponseEntity<List<Player>> getAllPlayers(@ApiParam Pageable pageable,
+                                                      @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of Players");
+        if (!count) {
+            Slice<Player> slice = playerService.findSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, playerService.countApproximately(), "/api/players");
+            headers.setETag(ETagUtil.weakETag(slice.getContent(), ETagUtil::version));
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<Player> page = playerService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/players");
+        headers.setETag(ETagUtil.weakETag(page.getContent(), ETagUtil::version));
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /players?after= : get a page of the players with keyset pagination.
+     *
+     * @param after the cursor of the page, from the "next" link of the previous page; empty for the first page
+     * @param pageable the size of the page and, for the first page, the property to sort on
+     * @return the ResponseEntity with status 200 (OK) and the list of players in body,
+     * or with status 400 (Bad Request) if the cursor or the sort is not valid
+     */
+    @GetMapping(value = "/players", params = "after")
+    @Timed
+    public ResponseEntity<List<Player>> getAllPlayersAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of Players after : {}", after);
+        KeysetPage<Player> page;
+        try {
+            page = playerService.findAll(KeysetCursor.of(after, pageable.getSort(), PlayerService.KEYSET_PROPERTIES), pageable.getPageSize());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("player", "invalidcursor", e.getMessage())).body(null);
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/players");
+        headers.setETag(ETagUtil.weakETag(page.getContent(), ETagUtil::version));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /players?fields= : get the requested fields of all the players.
+     *
+     * @param fields the fields to read, separated by commas: properties of the player, or of its team as "team.name"
+     * @param pageable the pagination information
+     * @param count false to skip counting the players: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
+     * @return the ResponseEntity with status 200 (OK) and the list of the fields of the players in body,
+     * or with status 400 (Bad Request) if a field is not a property of the player
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @GetMapping(value = "/players", params = {"fields", "!after"})
+    @Timed
+    public ResponseEntity<List<Map<String, Object>>> getAllPlayersFields(@RequestParam String fields, @ApiParam Pageable pageable,
+                                                                @RequestParam(defaultValue = "true") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get the fields {} of a page of Players", fields);
+        String baseUrl = UriComponentsBuilder.fromPath("/api/players").queryParam("fields", fields).toUriString();
+        try {
+            if (!count) {
+                Slice<Map<String, Object>> slice = playerService.findSlice(Fields.of(fields), pageable);
+                HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, playerService.countApproximately(), baseUrl);
+                return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+            }
+            Page<Map<String, Object>> page = playerService.findAll(Fields.of(fields), pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("player", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+    }
+
     /**
      * GET  /players/:id : get the "id" player.
      *
      * @param id the id of the player to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the player, or with status 404 (Not Found)
+     * @return the ResponseEntity with status 200 (OK) and with body the player, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if its ETag matches If-None-Match
      */
     @GetMapping("/players/{id}")
     @Timed
     public ResponseEntity<Player> getPlayer(@PathVariable Long id) {
         log.debug("REST request to get Player : {}", id);
         Player player = playerService.findOne(id);
+        return Optional.ofNullable(player)
+            .map(result -> ResponseEntity.ok()
+                .eTag(ETagUtil.eTag(ETagUtil.version(result)))
+                .body(result))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /players/:id?fields= : get the requested fields of the "id" player.
+     *
+     * @param id the id of the player to retrieve
+     * @param fields the fields to read, separated by commas: properties of the player, or of its team as "team.name"
+     * @return the ResponseEntity with status 200 (OK) and with body the fields of the player, or with status 404 (Not Found),
+     * or with status 400 (Bad Request) if a field is not a property of the player
+     */
+    @GetMapping(value = "/players/{id}", params = "fields")
+    @Timed
+    public ResponseEntity<Map<String, Object>> getPlayerFields(@PathVariable Long id, @RequestParam String fields) {
+        log.debug("REST request to get the fields {} of Player : {}", fields, id);
+        Map<String, Object> player;
+        try {
+            player = playerService.findOne(Fields.of(fields), id);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("player", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
         return Optional.ofNullable(player)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -111,6 +222,86 @@ public class PlayerResource {
             .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * GET  /players/:id/similar : get the players most often favourited by the users having the "id" player as favourite.
+     *
+     * @param id the id of the player
+     * @param size the maximum number of players to return, at most 20
+     * @return the ResponseEntity with status 200 (OK) and with body the similar players, most similar first,
+     * or with status 404 (Not Found)
+     */
+    @GetMapping("/players/{id}/similar")
+    @Timed
+    public ResponseEntity<List<SimilarPlayerDTO>> getSimilarPlayers(@PathVariable Long id,
+                                                                    @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to get the similar Players of Player : {}", id);
+
+        // Los jugadores similares se precalculan a partir de la co-ocurrencia de favoritos (player_similarity):
+        // no se hace el self-join de favourite_player en cada peticion
+        List<SimilarPlayerDTO> result = playerSimilarityService.findSimilar(id, Math.max(0, Math.min(size, PlayerSimilarityService.TOP_K)));
+        if (result.isEmpty() && playerService.findOne(id) == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    /**
+     * PATCH  /players/:id/stats : Add to the stats of the "id" player, such as a scorekeeper does during a game.
+     * <p>
+     * The deltas are added in the database in one statement, instead of a GET and a PUT of the whole player: the
+     * updates of concurrent scorekeepers are all counted. A negative delta corrects a stat. The plays of a game are
+     * recorded instead as events of the game (POST /games/:id/events), which add to the stats of their players.
+     * </p>
+     *
+     * @param id the id of the player
+     * @param deltas the numbers to add to numBaskets, numAssists and numRebounds, a missing one adds nothing
+     * @return the ResponseEntity with status 200 (OK) and with body the new totals of the player,
+     * or with status 404 (Not Found)
+     */
+    @PatchMapping("/players/{id}/stats")
+    @Timed
+    public ResponseEntity<PlayerStatsDTO> addToPlayerStats(@PathVariable Long id, @RequestBody PlayerStatsDTO deltas) {
+        log.debug("REST request to add to the stats of Player {} : {}", id, deltas);
+        return Optional.ofNullable(playerService.addToStats(id, deltas))
+            .map(result -> ResponseEntity.ok()
+                .headers(HeaderUtil.createEntityUpdateAlert("player", id.toString()))
+                .body(result))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * PATCH  /players/stats : Add to the stats of several players, all or none.
+     *
+     * @param deltas the numbers to add to the stats of each player, at most 500
+     * @return the ResponseEntity with status 200 (OK) and with body the new totals of the player of each delta,
+     * in the order of the deltas, or with status 400 (Bad Request) if the batch is too large, a delta has no player
+     * or a player does not exist
+     */
+    @PatchMapping("/players/stats")
+    @Timed
+    public ResponseEntity<List<PlayerStatsDTO>> addToPlayersStats(@RequestBody List<PlayerStatsDTO> deltas) {
+        log.debug("REST request to add to the stats of {} Players", deltas.size());
+        if (deltas.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("player", "batchtoolarge", "A batch holds at most " + MAX_BATCH_SIZE + " deltas"))
+                .body(null);
+        }
+        if (deltas.stream().anyMatch(delta -> delta.getPlayerId() == null)) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("player", "idnull", "Each delta needs a playerId"))
+                .body(null);
+        }
+        List<PlayerStatsDTO> result = playerService.addToStats(deltas);
+        if (result == null) {
+            // No player was changed
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert("player", "playernotfound", "A player of the batch does not exist"))
+                .body(null);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     /**
      * DELETE  /players/:id : delete the "id" player.
      *
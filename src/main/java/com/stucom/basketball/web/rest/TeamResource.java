@@ -2,24 +2,40 @@ package com.stucom.basketball.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.service.HeadToHeadService;
+import com.stucom.basketball.service.TeamRatingService;
+import com.stucom.basketball.service.TeamRosterService;
 import com.stucom.basketball.service.TeamService;
+import com.stucom.basketball.service.TeamStandingService;
+import com.stucom.basketball.service.dto.HeadToHeadDTO;
+import com.stucom.basketball.service.dto.TeamRatingDTO;
+import com.stucom.basketball.service.dto.TeamRosterDTO;
+import com.stucom.basketball.service.dto.TeamStandingDTO;
+import com.stucom.basketball.service.util.Fields;
+import com.stucom.basketball.service.util.KeysetCursor;
+import com.stucom.basketball.service.util.KeysetPage;
+import com.stucom.basketball.web.rest.util.ETagUtil;
 import com.stucom.basketball.web.rest.util.HeaderUtil;
 import com.stucom.basketball.web.rest.util.PaginationUtil;
 
 import io.swagger.annotations.ApiParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -34,6 +50,18 @@ public class TeamResource {
     @Inject
     private TeamService teamService;
 
+    @Inject
+    private TeamStandingService teamStandingService;
+
+    @Inject
+    private TeamRatingService teamRatingService;
+
+    @Inject
+    private HeadToHeadService headToHeadService;
+
+    @Inject
+    private TeamRosterService teamRosterService;
+
     /**
      * POST  /teams : Create a new team.
      *
@@ -59,7 +87,8 @@ public class TeamResource {
      *
      * @param team the team to update
      * @return the ResponseEntity with status 200 (OK) and with body the updated team,
-     * or with status 400 (Bad Request) if the team is not valid,
+     * or with status 400 (Bad Request) if the team is not valid or has no version,
+     * or with status 409 (Conflict) if the team was updated since its version was read,
      * or with status 500 (Internal Server Error) if the team couldnt be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
@@ -70,6 +99,9 @@ public class TeamResource {
         if (team.getId() == null) {
             return createTeam(team);
         }
+        if (team.getVersion() == null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("team", "versionrequired", "An updated team must have the version it was read at")).body(null);
+        }
         Team result = teamService.save(team);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("team", team.getId().toString()))
@@ -80,24 +112,90 @@ public class TeamResource {
      * GET  /teams : get all the teams.
      *
      * @param pageable the pagination information
+     * @param count false to skip counting the teams: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
      * @return the ResponseEntity with status 200 (OK) and the list of teams in body
      * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @GetMapping("/teams")
     @Timed
-    public ResponseEntity<List<Team>> getAllTeams(@ApiParam Pageable pageable)
+    public ResponseEntity<List<Team>> getAllTeams(@ApiParam Pageable pageable,
+                                                  @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of Teams");
+        if (!count) {
+            Slice<Team> slice = teamService.findSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, teamService.countApproximately(), "/api/teams");
+            headers.setETag(ETagUtil.weakETag(slice.getContent(), ETagUtil::version));
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<Team> page = teamService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/teams");
+        headers.setETag(ETagUtil.weakETag(page.getContent(), ETagUtil::version));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /teams?after= : get a page of the teams with keyset pagination.
+     *
+     * @param after the cursor of the page, from the "next" link of the previous page; empty for the first page
+     * @param pageable the size of the page and, for the first page, the property to sort on
+     * @return the ResponseEntity with status 200 (OK) and the list of teams in body,
+     * or with status 400 (Bad Request) if the cursor or the sort is not valid
+     */
+    @GetMapping(value = "/teams", params = "after")
+    @Timed
+    public ResponseEntity<List<Team>> getAllTeamsAfter(@RequestParam String after, @ApiParam Pageable pageable) {
+        log.debug("REST request to get a page of Teams after : {}", after);
+        KeysetPage<Team> page;
+        try {
+            page = teamService.findAll(KeysetCursor.of(after, pageable.getSort(), TeamService.KEYSET_PROPERTIES), pageable.getPageSize());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("team", "invalidcursor", e.getMessage())).body(null);
+        }
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/teams");
+        headers.setETag(ETagUtil.weakETag(page.getContent(), ETagUtil::version));
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /teams?fields= : get the requested fields of all the teams.
+     *
+     * @param fields the fields to read, separated by commas: properties of the team
+     * @param pageable the pagination information
+     * @param count false to skip counting the teams: the total is then approximate (X-Total-Count-Approximate)
+     * and there is no "last" link
+     * @return the ResponseEntity with status 200 (OK) and the list of the fields of the teams in body,
+     * or with status 400 (Bad Request) if a field is not a property of the team
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @GetMapping(value = "/teams", params = {"fields", "!after"})
+    @Timed
+    public ResponseEntity<List<Map<String, Object>>> getAllTeamsFields(@RequestParam String fields, @ApiParam Pageable pageable,
+                                                                @RequestParam(defaultValue = "true") boolean count)
+        throws URISyntaxException {
+        log.debug("REST request to get the fields {} of a page of Teams", fields);
+        String baseUrl = UriComponentsBuilder.fromPath("/api/teams").queryParam("fields", fields).toUriString();
+        try {
+            if (!count) {
+                Slice<Map<String, Object>> slice = teamService.findSlice(Fields.of(fields), pageable);
+                HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, teamService.countApproximately(), baseUrl);
+                return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+            }
+            Page<Map<String, Object>> page = teamService.findAll(Fields.of(fields), pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, baseUrl);
+            return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("team", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+    }
+
     /**
      * GET  /teams/:id : get the "id" team.
      *
      * @param id the id of the team to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the team, or with status 404 (Not Found)
+     * @return the ResponseEntity with status 200 (OK) and with body the team, or with status 404 (Not Found),
+     * or with status 304 (Not Modified) if its ETag matches If-None-Match
      */
     @GetMapping("/teams/{id}")
     @Timed
@@ -105,6 +203,96 @@ public class TeamResource {
         log.debug("REST request to get Team : {}", id);
         Team team = teamService.findOne(id);
         return Optional.ofNullable(team)
+            .map(result -> ResponseEntity.ok()
+                .eTag(ETagUtil.eTag(ETagUtil.version(result)))
+                .body(result))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /teams/:id?fields= : get the requested fields of the "id" team.
+     *
+     * @param id the id of the team to retrieve
+     * @param fields the fields to read, separated by commas: properties of the team
+     * @return the ResponseEntity with status 200 (OK) and with body the fields of the team, or with status 404 (Not Found),
+     * or with status 400 (Bad Request) if a field is not a property of the team
+     */
+    @GetMapping(value = "/teams/{id}", params = "fields")
+    @Timed
+    public ResponseEntity<Map<String, Object>> getTeamFields(@PathVariable Long id, @RequestParam String fields) {
+        log.debug("REST request to get the fields {} of Team : {}", fields, id);
+        Map<String, Object> team;
+        try {
+            team = teamService.findOne(Fields.of(fields), id);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("team", "invalidfields", "Invalid fields " + fields)).body(null);
+        }
+        return Optional.ofNullable(team)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /standings : get the standings of the teams.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the records of the teams in body, most wins first, then
+     * best point difference
+     */
+    @GetMapping("/standings")
+    @Timed
+    public List<TeamStandingDTO> getStandings() {
+        log.debug("REST request to get the standings");
+        return teamStandingService.findAll();
+    }
+
+    /**
+     * GET  /teams/ratings : get the power ranking of the teams.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the Elo ratings of the teams in body, best first
+     */
+    @GetMapping("/teams/ratings")
+    @Timed
+    public List<TeamRatingDTO> getTeamRatings() {
+        log.debug("REST request to get the team ratings");
+        return teamRatingService.findAll();
+    }
+
+    /**
+     * GET  /teams/:id/roster : get the "id" team with its players.
+     *
+     * @param id the id of the team
+     * @return the ResponseEntity with status 200 (OK) and with body the team and its players, each with its number
+     * of favourites, or with status 404 (Not Found)
+     */
+    @GetMapping("/teams/{id}/roster")
+    @Timed
+    public ResponseEntity<TeamRosterDTO> getTeamRoster(@PathVariable Long id) {
+        log.debug("REST request to get the roster of Team : {}", id);
+        return Optional.ofNullable(teamRosterService.findRoster(id))
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /teams/:id/vs/:opponentId : get the all-time record of the "id" team against the "opponentId" team.
+     *
+     * @param id the id of the team
+     * @param opponentId the id of the opponent
+     * @return the ResponseEntity with status 200 (OK) and with body the record, or with status 404 (Not Found),
+     * or with status 400 (Bad Request) if both ids are the same
+     */
+    @GetMapping("/teams/{id}/vs/{opponentId}")
+    @Timed
+    public ResponseEntity<HeadToHeadDTO> getHeadToHead(@PathVariable Long id, @PathVariable Long opponentId) {
+        log.debug("REST request to get the record of Team {} against Team : {}", id, opponentId);
+        if (id.equals(opponentId)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("team", "sameteam", "A team does not play against itself")).body(null);
+        }
+        return Optional.ofNullable(headToHeadService.findRecord(id, opponentId))
             .map(result -> new ResponseEntity<>(
                 result,
                 HttpStatus.OK))
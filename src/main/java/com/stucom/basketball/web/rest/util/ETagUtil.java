@@ -0,0 +1,62 @@
+package com.stucom.basketball.web.rest.util;
+
+import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.Team;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Utility class for the ETags of the versioned entities.
+ *
+ * <p>
+ * The ETag of a game, player or team is derived from its id and version, and from those of the teams written in
+ * its JSON: it changes whenever the JSON does. A list gets a weak ETag, derived from the ETags of its rows.
+ * A GET whose If-None-Match matches the ETag of the ResponseEntity is answered with 304 (Not Modified) by Spring
+ * MVC, before the body is serialized.
+ * </p>
+ */
+public final class ETagUtil {
+
+    private ETagUtil() {
+    }
+
+    public static String version(Team team) {
+        return team == null ? "-" : team.getId() + "." + team.getVersion();
+    }
+
+    public static String version(Player player) {
+        return player.getId() + "." + player.getVersion() + "_" + version(player.getTeam());
+    }
+
+    public static String version(Game game) {
+        return game.getId() + "." + game.getVersion() + "_" + version(game.getLocalTeam()) + "_" +
+            version(game.getVisitorTeam());
+    }
+
+    /**
+     * @param version the version of an entity, from one of the version methods
+     * @return the strong ETag of the entity
+     */
+    public static String eTag(String version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param rows the entities of a list
+     * @param version the version of an entity, one of the version methods
+     * @param <T> the entity type
+     * @return the weak ETag of the list
+     */
+    public static <T> String weakETag(List<T> rows, Function<T, String> version) {
+        StringBuilder versions = new StringBuilder();
+        for (T row : rows) {
+            versions.append(version.apply(row)).append(',');
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -1,6 +1,9 @@
 package com.stucom.basketball.web.rest.util;
 
+import com.stucom.basketball.service.util.KeysetPage;
+
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -42,6 +45,63 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Headers of a page read without counting the rows: "next", "prev" and "first" links that keep count=false,
+     * and the approximate total in X-Total-Count-Approximate. There is no "last" link.
+     * <p>
+     * A Slice reads one row more than the page size to tell whether there is a next page, so listing a large
+     * table no longer runs a COUNT(*) over all of its rows on every page.
+     * </p>
+     *
+     * @param slice the page
+     * @param approximateTotal the number of rows, as counted a little while ago
+     * @param baseUrl the URL of the list
+     * @return the headers
+     * @throws URISyntaxException if the URL is invalid
+     */
+    public static HttpHeaders generateSliceHttpHeaders(Slice<?> slice, long approximateTotal, String baseUrl)
+        throws URISyntaxException {
+
+        String sliceUrl = UriComponentsBuilder.fromUriString(baseUrl).queryParam("count", false).toUriString();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count-Approximate", "" + approximateTotal);
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateUri(sliceUrl, slice.getNumber() + 1, slice.getSize()) + ">; rel=\"next\",";
+        }
+        if (slice.hasPrevious()) {
+            link += "<" + generateUri(sliceUrl, slice.getNumber() - 1, slice.getSize()) + ">; rel=\"prev\",";
+        }
+        link += "<" + generateUri(sliceUrl, 0, slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * Headers of a page read with keyset pagination: a "next" link carrying the cursor of the next page, if there
+     * is one, and a "first" link. There is no total count nor "last" link, which would need counting the rows.
+     *
+     * @param page the page
+     * @param baseUrl the URL of the list
+     * @return the headers
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(KeysetPage<?> page, String baseUrl) {
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (page.hasNext()) {
+            link = "<" + UriComponentsBuilder.fromUriString(baseUrl)
+                .queryParam("after", page.getNext().encode())
+                .queryParam("size", page.getSize()).toUriString() + ">; rel=\"next\",";
+        }
+        link += "<" + UriComponentsBuilder.fromUriString(baseUrl)
+            .queryParam("after", "")
+            .queryParam("size", page.getSize())
+            .queryParam("sort", page.getCursor().getProperty() + "," + page.getCursor().getDirection().name().toLowerCase())
+            .toUriString() + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
     private static String generateUri(String baseUrl, int page, int size) throws URISyntaxException {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
@@ -0,0 +1,79 @@
+package com.stucom.basketball.service;
+
+import com.stucom.basketball.service.dto.GameTrendDTO;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the GameTrendingService.
+ *
+ * @see GameTrendingService
+ */
+public class GameTrendingServiceUnitTest {
+
+    private static final long START = 1485000000000L;
+
+    private GameTrendingService gameTrendingService;
+
+    @Before
+    public void setup() {
+        gameTrendingService = new GameTrendingService();
+        at(0);
+    }
+
+    @Test
+    public void testRanksGamesByRatingsInEachWindow() {
+        gameTrendingService.record(1L);
+        at(31);
+        gameTrendingService.record(2L);
+        gameTrendingService.record(2L);
+        at(90);
+        gameTrendingService.record(3L);
+        gameTrendingService.refresh();
+
+        // Game 1 was rated 90 minutes ago, out of the last hour
+        assertThat(ids(gameTrendingService.findTrending(GameTrendingService.Window.HOUR, 10))).containsExactly(2L, 3L);
+        assertThat(ids(gameTrendingService.findTrending(GameTrendingService.Window.DAY, 10))).containsExactly(2L, 1L, 3L);
+        assertThat(gameTrendingService.findTrending(GameTrendingService.Window.DAY, 10).get(0).getRatings()).isEqualTo(2L);
+        assertThat(ids(gameTrendingService.findTrending(GameTrendingService.Window.DAY, 1))).containsExactly(2L);
+    }
+
+    @Test
+    public void testExpiresOldRatings() {
+        gameTrendingService.record(1L);
+        at(6 * 60 + 1);
+        gameTrendingService.record(2L);
+        gameTrendingService.refresh();
+
+        assertThat(ids(gameTrendingService.findTrending(GameTrendingService.Window.SIX_HOURS, 10))).containsExactly(2L);
+        assertThat(ids(gameTrendingService.findTrending(GameTrendingService.Window.DAY, 10))).containsExactly(1L, 2L);
+
+        // A day later, both games are dropped
+        at(6 * 60 + 1 + 24 * 60);
+        gameTrendingService.refresh();
+        assertThat(gameTrendingService.findTrending(GameTrendingService.Window.DAY, 10)).isEmpty();
+
+        // Rated again, a game starts over from zero
+        gameTrendingService.record(1L);
+        gameTrendingService.refresh();
+        assertThat(gameTrendingService.findTrending(GameTrendingService.Window.HOUR, 10).get(0).getRatings()).isEqualTo(1L);
+    }
+
+    private void at(long minutes) {
+        ReflectionTestUtils.setField(gameTrendingService, "clock",
+            Clock.fixed(Instant.ofEpochMilli(START + minutes * 60000), ZoneOffset.UTC));
+    }
+
+    private List<Long> ids(List<GameTrendDTO> trends) {
+        return trends.stream().map(GameTrendDTO::getGameId).collect(Collectors.toList());
+    }
+}
@@ -8,6 +8,8 @@ import com.stucom.basketball.repository.UserRepository;
 import java.time.ZonedDateTime;
 import com.stucom.basketball.service.util.RandomUtil;
 import java.time.LocalDate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -15,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import java.util.Optional;
 import java.util.List;
 
@@ -39,6 +42,9 @@ public class UserServiceIntTest {
     @Inject
     private UserService userService;
 
+    @Inject
+    private EntityManager em;
+
     @Test
     public void testRemoveOldPersistentTokens() {
         User admin = userRepository.findOneByLogin("admin").get();
@@ -51,6 +57,20 @@ public class UserServiceIntTest {
         assertThat(persistentTokenRepository.findByUser(admin)).hasSize(existingCount + 1);
     }
 
+    @Test
+    public void assertThatAuthoritiesAreReadFromTheSecondLevelCache() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        userService.getUserWithAuthoritiesByLogin("admin");
+        em.clear();
+
+        // Only the user is read from the database: its authorities come from the cache
+        statistics.clear();
+        User admin = userService.getUserWithAuthoritiesByLogin("admin").get();
+        assertThat(admin.getAuthorities()).isNotEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1 + admin.getAuthorities().size());
+    }
+
     @Test
     public void assertThatUserMustExistToResetPassword() {
         Optional<User> maybeUser = userService.requestPasswordReset("john.doe@localhost");
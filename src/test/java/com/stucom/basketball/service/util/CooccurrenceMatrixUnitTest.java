@@ -0,0 +1,100 @@
+package com.stucom.basketball.service.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CooccurrenceMatrix utility class.
+ *
+ * @see CooccurrenceMatrix
+ */
+public class CooccurrenceMatrixUnitTest {
+
+    @Test
+    public void testCountsPairsOfSets() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        matrix.addSet(new long[]{1L, 2L, 3L});
+        matrix.addSet(new long[]{1L, 2L});
+        matrix.addSet(new long[]{2L, 4L});
+
+        assertThat(matrix.get(1L, 2L)).isEqualTo(2);
+        assertThat(matrix.get(2L, 1L)).isEqualTo(2);
+        assertThat(matrix.get(1L, 4L)).isEqualTo(0);
+        assertThat(ids(matrix.top(2L, 10))).containsExactly(1L, 3L, 4L);
+        assertThat(ids(matrix.top(2L, 1))).containsExactly(1L);
+
+        // 3 leaves the first set, 4 joins the second one
+        matrix.add(3L, new long[]{1L, 2L}, -1);
+        matrix.add(4L, new long[]{1L, 2L}, 1);
+
+        assertThat(matrix.get(3L, 1L)).isEqualTo(0);
+        assertThat(matrix.size()).isEqualTo(3);
+        assertThat(ids(matrix.top(2L, 10))).containsExactly(1L, 4L);
+        assertThat(matrix.top(2L, 10).getCount(0)).isEqualTo(2);
+
+        assertThat(matrix.remove(4L)).containsOnly(1L, 2L);
+        assertThat(ids(matrix.top(2L, 10))).containsExactly(1L);
+        assertThat(matrix.top(3L, 10).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMatchesPairsCountedFromSets() {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix();
+        List<Set<Long>> sets = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            Set<Long> set = new HashSet<>();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                set.add((long) random.nextInt(50));
+            }
+            sets.add(set);
+            matrix.addSet(set.stream().mapToLong(Long::longValue).toArray());
+        }
+        // Move ids in and out of the sets
+        for (int i = 0; i < 2000; i++) {
+            Set<Long> set = sets.get(random.nextInt(sets.size()));
+            long id = random.nextInt(50);
+            boolean leaving = set.remove(id);
+            matrix.add(id, set.stream().mapToLong(Long::longValue).toArray(), leaving ? -1 : 1);
+            if (!leaving) {
+                set.add(id);
+            }
+        }
+
+        for (long id = 0; id < 50; id++) {
+            Map<Long, Integer> expected = new HashMap<>();
+            for (Set<Long> set : sets) {
+                if (set.contains(id)) {
+                    for (Long other : set) {
+                        if (other != id) {
+                            expected.merge(other, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+            List<Long> expectedTop = new ArrayList<>(expected.keySet());
+            expectedTop.sort((a, b) -> expected.get(a).equals(expected.get(b)) ? Long.compare(a, b) : expected.get(b) - expected.get(a));
+            assertThat(ids(matrix.top(id, 5))).containsExactlyElementsOf(expectedTop.subList(0, Math.min(5, expectedTop.size())));
+            for (long other = 0; other < 50; other++) {
+                assertThat(matrix.get(id, other)).isEqualTo(expected.getOrDefault(other, 0));
+            }
+        }
+    }
+
+    private List<Long> ids(CooccurrenceMatrix.Neighbours neighbours) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < neighbours.size(); i++) {
+            ids.add(neighbours.getId(i));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,74 @@
+package com.stucom.basketball.service.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RankedIndex utility class.
+ *
+ * @see RankedIndex
+ */
+public class RankedIndexUnitTest {
+
+    @Test
+    public void testRanksByScoreThenWeightThenId() {
+        RankedIndex index = new RankedIndex();
+        index.put(1L, 7.5, 2);
+        index.put(2L, 9.0, 1);
+        index.put(3L, 7.5, 10);
+        index.put(4L, 7.5, 2);
+
+        assertThat(ids(index.top(0, 10))).containsExactly(2L, 3L, 1L, 4L);
+        assertThat(index.rank(1L)).isEqualTo(3);
+        assertThat(index.rank(5L)).isEqualTo(0);
+
+        index.put(2L, 1.0, 1);
+        index.remove(3L);
+
+        assertThat(ids(index.top(0, 10))).containsExactly(1L, 4L, 2L);
+        assertThat(ids(index.top(1, 1))).containsExactly(4L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testMatchesASortedListUnderRandomUpdates() {
+        RankedIndex index = new RankedIndex();
+        Map<Long, double[]> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long id = random.nextInt(500);
+            if (random.nextInt(5) == 0) {
+                index.remove(id);
+                expected.remove(id);
+            } else {
+                double score = random.nextInt(40) / 4.0;
+                long weight = random.nextInt(3);
+                index.put(id, score, weight);
+                expected.put(id, new double[] {score, weight});
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(expected.keySet());
+        sorted.sort(Comparator.<Long>comparingDouble(id -> -expected.get(id)[0])
+            .thenComparingDouble(id -> -expected.get(id)[1])
+            .thenComparingLong(id -> id));
+        assertThat(ids(index.top(0, sorted.size()))).isEqualTo(sorted);
+        assertThat(ids(index.top(100, 25))).isEqualTo(sorted.subList(100, 125));
+        for (int rank = 0; rank < sorted.size(); rank++) {
+            assertThat(index.rank(sorted.get(rank))).isEqualTo(rank + 1);
+        }
+    }
+
+    private List<Long> ids(List<RankedIndex.Entry> entries) {
+        return entries.stream().map(RankedIndex.Entry::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+package com.stucom.basketball.service.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the TeamRatingEngine utility class.
+ *
+ * @see TeamRatingEngine
+ */
+public class TeamRatingEngineUnitTest {
+
+    @Test
+    public void testExchangesRatingPoints() {
+        TeamRatingEngine engine = new TeamRatingEngine();
+        assertThat(engine.put(1L, 10L, 1L, 2L, 80, 70)).isEqualTo(1);
+
+        assertThat(engine.getRating(1L)).isEqualTo(TeamRatingEngine.INITIAL_RATING + TeamRatingEngine.K_FACTOR / 2);
+        assertThat(engine.getRating(2L)).isEqualTo(TeamRatingEngine.INITIAL_RATING - TeamRatingEngine.K_FACTOR / 2);
+        assertThat(engine.getRating(3L)).isEqualTo(TeamRatingEngine.INITIAL_RATING);
+
+        // A correction of the result replaces it
+        engine.put(1L, 10L, 1L, 2L, 70, 70);
+        assertThat(engine.getRating(1L)).isEqualTo(TeamRatingEngine.INITIAL_RATING);
+
+        assertThat(engine.remove(1L, 11L)).isEqualTo(-1);
+        assertThat(engine.remove(1L, 10L)).isEqualTo(0);
+        assertThat(engine.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCorrectionsMatchAFullRecompute() {
+        Random random = new Random(42);
+        TeamRatingEngine engine = new TeamRatingEngine(64);
+        List<long[]> games = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            games.add(randomGame(random, i, 20));
+        }
+        // Out of order, with corrections and removals on the way
+        List<long[]> arrivals = new ArrayList<>(games);
+        Collections.shuffle(arrivals, random);
+        for (long[] game : arrivals) {
+            put(engine, game);
+            if (random.nextInt(10) == 0) {
+                long[] corrected = randomGame(random, (int) game[0], 20);
+                engine.remove(game[0], game[1]);
+                put(engine, corrected);
+                games.set((int) game[0], corrected);
+            }
+        }
+        for (int i = 0; i < 5000; i += 7) {
+            long[] game = games.get(i);
+            engine.remove(game[0], game[1]);
+            games.set(i, null);
+        }
+
+        assertThat(engine.getRatings()).isEqualTo(inOrder(games, 64).getRatings());
+    }
+
+    @Test
+    public void testAMillionGames() {
+        Random random = new Random(7);
+        int interval = TeamRatingEngine.DEFAULT_CHECKPOINT_INTERVAL;
+        List<long[]> games = new ArrayList<>();
+        for (int i = 0; i < 1000000; i++) {
+            games.add(randomGame(random, i, 30));
+        }
+        games.sort((a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[0], b[0]));
+
+        // Each game after the last one is applied on its own
+        TeamRatingEngine engine = new TeamRatingEngine();
+        for (long[] game : games) {
+            assertThat(put(engine, game)).isEqualTo(1);
+        }
+        assertThat(engine.size()).isEqualTo(1000000);
+
+        // A correction only replays the games from the last checkpoint before it
+        int position = 999000;
+        long[] game = games.get(position);
+        long[] corrected = {game[0], game[1], game[2], game[3], game[5], game[4]};
+        games.set(position, corrected);
+        assertThat(put(engine, corrected)).isEqualTo(1000000 - position / interval * interval);
+
+        assertThat(engine.getRatings()).isEqualTo(inOrder(games, interval).getRatings());
+    }
+
+    /**
+     * @return a game as [id, day, localTeamId, visitorTeamId, localScore, visitorScore], over about ten seasons
+     */
+    private long[] randomGame(Random random, int id, int teams) {
+        long local = random.nextInt(teams);
+        long visitor = (local + 1 + random.nextInt(teams - 1)) % teams;
+        return new long[] {id, random.nextInt(3650), local, visitor, 60 + random.nextInt(50), 60 + random.nextInt(50)};
+    }
+
+    private int put(TeamRatingEngine engine, long[] game) {
+        return engine.put(game[0], game[1], game[2], game[3], (int) game[4], (int) game[5]);
+    }
+
+    private TeamRatingEngine inOrder(List<long[]> games, int interval) {
+        List<long[]> sorted = new ArrayList<>();
+        for (long[] game : games) {
+            if (game != null) {
+                sorted.add(game);
+            }
+        }
+        sorted.sort((a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[0], b[0]));
+        TeamRatingEngine engine = new TeamRatingEngine(interval);
+        for (long[] game : sorted) {
+            put(engine, game);
+        }
+        return engine;
+    }
+}
@@ -3,8 +3,14 @@ package com.stucom.basketball.web.rest;
 import com.stucom.basketball.BasketballApp;
 
 import com.stucom.basketball.domain.FavouritePlayer;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.User;
 import com.stucom.basketball.repository.FavouritePlayerRepository;
+import com.stucom.basketball.repository.UserRepository;
+import com.stucom.basketball.service.FavouritePlayerMembershipService;
 import com.stucom.basketball.service.FavouritePlayerService;
+import com.stucom.basketball.service.PlayerFavouriteCountService;
+import com.stucom.basketball.service.PlayerService;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +20,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -30,6 +39,7 @@ import java.util.List;
 
 import static com.stucom.basketball.web.rest.TestUtil.sameInstant;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -52,6 +62,18 @@ public class FavouritePlayerResourceIntTest {
     @Inject
     private FavouritePlayerService favouritePlayerService;
 
+    @Inject
+    private PlayerFavouriteCountService playerFavouriteCountService;
+
+    @Inject
+    private PlayerService playerService;
+
+    @Inject
+    private FavouritePlayerMembershipService favouritePlayerMembershipService;
+
+    @Inject
+    private UserRepository userRepository;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -70,6 +92,9 @@ public class FavouritePlayerResourceIntTest {
         MockitoAnnotations.initMocks(this);
         FavouritePlayerResource favouritePlayerResource = new FavouritePlayerResource();
         ReflectionTestUtils.setField(favouritePlayerResource, "favouritePlayerService", favouritePlayerService);
+        ReflectionTestUtils.setField(favouritePlayerResource, "playerFavouriteCountService", playerFavouriteCountService);
+        ReflectionTestUtils.setField(favouritePlayerResource, "favouritePlayerMembershipService", favouritePlayerMembershipService);
+        ReflectionTestUtils.setField(favouritePlayerResource, "userRepository", userRepository);
         this.restFavouritePlayerMockMvc = MockMvcBuilders.standaloneSetup(favouritePlayerResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -227,4 +252,88 @@ public class FavouritePlayerResourceIntTest {
         List<FavouritePlayer> favouritePlayerList = favouritePlayerRepository.findAll();
         assertThat(favouritePlayerList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    public void getTopPlayers() throws Exception {
+        // Initialize the database: one player created with its count, one inserted behind the service's back
+        Player first = playerService.save(PlayerResourceIntTest.createEntity(em));
+        Player second = PlayerResourceIntTest.createEntity(em);
+        em.persist(second);
+        em.flush();
+        favouritePlayerService.save(new FavouritePlayer().player(first));
+        favouritePlayerService.save(new FavouritePlayer().player(first));
+        FavouritePlayer removed = favouritePlayerService.save(new FavouritePlayer().player(first));
+        favouritePlayerService.save(new FavouritePlayer().player(second));
+        favouritePlayerService.delete(removed.getId());
+
+        restFavouritePlayerMockMvc.perform(get("/api/top-players?limit=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].player.id").value(first.getId().intValue()))
+            .andExpect(jsonPath("$.[0].numFavs").value(2));
+        restFavouritePlayerMockMvc.perform(get("/api/top-players?limit=1&offset=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].player.id").value(second.getId().intValue()))
+            .andExpect(jsonPath("$.[0].numFavs").value(1));
+        // An offset that is not a multiple of the limit
+        restFavouritePlayerMockMvc.perform(get("/api/top-players?limit=2&offset=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].player.id").value(contains(second.getId().intValue())));
+        restFavouritePlayerMockMvc.perform(get("/api/top-players?offset={offset}", FavouritePlayerResource.MAX_TOP_OFFSET + 1))
+            .andExpect(status().isBadRequest());
+
+        // A favourite written behind the service's back is counted by the verification job
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().player(second));
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().player(second));
+        playerFavouriteCountService.verify();
+        em.flush();
+
+        restFavouritePlayerMockMvc.perform(get("/api/top-players?limit=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].player.id").value(second.getId().intValue()))
+            .andExpect(jsonPath("$.[0].numFavs").value(3));
+    }
+
+    @Test
+    @Transactional
+    public void createFavouritePlayerTwice() throws Exception {
+        // Initialize the database: "user" already has the first player as a favourite
+        Player first = playerService.save(PlayerResourceIntTest.createEntity(em));
+        Player second = playerService.save(PlayerResourceIntTest.createEntity(em));
+        User user = userRepository.findOneByLogin("user").get();
+        FavouritePlayer existing = favouritePlayerRepository.saveAndFlush(new FavouritePlayer().user(user).player(first));
+        // The favourites of the user are loaded again, the test transaction never commits to update them
+        favouritePlayerMembershipService.evict("user");
+
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(new UsernamePasswordAuthenticationToken("user", "user"));
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            restFavouritePlayerMockMvc.perform(get("/api/favourite-players/membership?playerIds={first},{second}",
+                first.getId(), second.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$." + first.getId()).value(true))
+                .andExpect(jsonPath("$." + second.getId()).value(false));
+
+            // Adding the same player again returns the existing favourite
+            restFavouritePlayerMockMvc.perform(post("/api/favourite-players")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(new FavouritePlayer().player(first))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(existing.getId().intValue()));
+
+            restFavouritePlayerMockMvc.perform(post("/api/favourite-players")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(new FavouritePlayer().player(second))))
+                .andExpect(status().isCreated());
+        } finally {
+            SecurityContextHolder.clearContext();
+            favouritePlayerMembershipService.evict("user");
+        }
+
+        assertThat(favouritePlayerRepository.findAll())
+            .filteredOn(favourite -> favourite.getUser() != null && favourite.getUser().getId().equals(user.getId()))
+            .extracting(favourite -> favourite.getPlayer().getId())
+            .containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
 }
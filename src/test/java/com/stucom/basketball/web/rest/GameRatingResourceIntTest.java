@@ -1,19 +1,39 @@
 package com.stucom.basketball.web.rest;
 
+import com.codahale.metrics.MetricRegistry;
 import com.stucom.basketball.BasketballApp;
 
+import com.stucom.basketball.config.JHipsterProperties;
+
+import com.stucom.basketball.domain.Game;
 import com.stucom.basketball.domain.GameRating;
+import com.stucom.basketball.domain.GameRatingStats;
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.domain.User;
 import com.stucom.basketball.repository.GameRatingRepository;
+import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.repository.UserRepository;
+import com.stucom.basketball.service.GameLeaderboardService;
+import com.stucom.basketball.service.GameRatingBurstBuffer;
 import com.stucom.basketball.service.GameRatingService;
+import com.stucom.basketball.service.GameRatingStatsService;
+import com.stucom.basketball.service.GameTrendingService;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,11 +46,18 @@ import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.ZoneOffset;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.stucom.basketball.web.rest.TestUtil.sameInstant;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -55,6 +82,27 @@ public class GameRatingResourceIntTest {
     @Inject
     private GameRatingService gameRatingService;
 
+    @Inject
+    private GameRatingStatsService gameRatingStatsService;
+
+    @Inject
+    private GameRepository gameRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private GameLeaderboardService gameLeaderboardService;
+
+    @Inject
+    private GameRatingBurstBuffer gameRatingBurstBuffer;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private GameTrendingService gameTrendingService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -73,6 +121,13 @@ public class GameRatingResourceIntTest {
         MockitoAnnotations.initMocks(this);
         GameRatingResource gameRatingResource = new GameRatingResource();
         ReflectionTestUtils.setField(gameRatingResource, "gameRatingService", gameRatingService);
+        ReflectionTestUtils.setField(gameRatingResource, "gameRatingStatsService", gameRatingStatsService);
+        ReflectionTestUtils.setField(gameRatingResource, "gameRepository", gameRepository);
+        ReflectionTestUtils.setField(gameRatingResource, "userRepository", userRepository);
+        ReflectionTestUtils.setField(gameRatingResource, "gameLeaderboardService", gameLeaderboardService);
+        ReflectionTestUtils.setField(gameRatingResource, "gameRatingBurstBuffer", gameRatingBurstBuffer);
+        ReflectionTestUtils.setField(gameRatingResource, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(gameRatingResource, "gameTrendingService", gameTrendingService);
         this.restGameRatingMockMvc = MockMvcBuilders.standaloneSetup(gameRatingResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -236,4 +291,452 @@ public class GameRatingResourceIntTest {
         List<GameRating> gameRatingList = gameRatingRepository.findAll();
         assertThat(gameRatingList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    public void getAvgGameRating() throws Exception {
+        // Initialize the database
+        Game game = GameResourceIntTest.createEntity(em);
+        em.persist(game);
+        em.flush();
+        GameRating first = gameRatingService.save(new GameRating().score(4).game(game));
+        GameRating second = gameRatingService.save(new GameRating().score(8).game(game));
+
+        restGameRatingMockMvc.perform(get("/api/game-rating/avgGameRating/{id}", game.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.game.id").value(game.getId().intValue()))
+            .andExpect(jsonPath("$.avgScore").value(6.0));
+
+        // Update the second rating, from a detached copy like the REST layer does
+        GameRating updatedSecond = new GameRating().score(2).game(game);
+        updatedSecond.setId(second.getId());
+        gameRatingService.save(updatedSecond);
+
+        GameRatingStats stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(2L);
+        assertThat(stats.getSumScore()).isEqualTo(6L);
+        assertThat(stats.getMinScore()).isEqualTo(2);
+        assertThat(stats.getMaxScore()).isEqualTo(4);
+
+        // Deleting the highest rating recomputes the maximum
+        gameRatingService.delete(first.getId());
+
+        stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(1L);
+        assertThat(stats.getMinScore()).isEqualTo(2);
+        assertThat(stats.getMaxScore()).isEqualTo(2);
+        restGameRatingMockMvc.perform(get("/api/game-rating/avgGameRating/{id}", game.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.avgScore").value(2.0));
+    }
+
+    @Test
+    @Transactional
+    public void reconcileGameRatingStats() throws Exception {
+        // Initialize the database
+        Game game = GameResourceIntTest.createEntity(em);
+        em.persist(game);
+        em.flush();
+        gameRatingService.save(new GameRating().score(3).game(game));
+        // A rating written behind the service's back leaves the aggregate stale
+        gameRatingRepository.saveAndFlush(new GameRating().score(7).game(game));
+
+        gameRatingStatsService.reconcile();
+
+        GameRatingStats stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(2L);
+        assertThat(stats.getSumScore()).isEqualTo(10L);
+        assertThat(stats.getMaxScore()).isEqualTo(7);
+    }
+
+    @Test
+    @Transactional
+    public void getTopGamesAndRank() throws Exception {
+        // Initialize the database
+        Game average = GameResourceIntTest.createEntity(em);
+        Game best = GameResourceIntTest.createEntity(em);
+        Game unrated = GameResourceIntTest.createEntity(em);
+        em.persist(average);
+        em.persist(best);
+        em.persist(unrated);
+        em.flush();
+        gameRatingService.save(new GameRating().score(5).game(average));
+        gameRatingService.save(new GameRating().score(9).game(best));
+        gameRatingService.save(new GameRating().score(10).game(best));
+        // The test transaction never commits, so rebuild the ranking from the aggregates it can see
+        gameLeaderboardService.rebuild();
+
+        restGameRatingMockMvc.perform(get("/api/game-rating/topGames/?size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].game.id").value(best.getId().intValue()))
+            .andExpect(jsonPath("$.[0].rank").value(1))
+            .andExpect(jsonPath("$.[0].avgScore").value(9.5))
+            .andExpect(jsonPath("$.[0].numRatings").value(2));
+
+        restGameRatingMockMvc.perform(get("/api/game-rating/rank/{id}", best.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rank").value(1));
+        restGameRatingMockMvc.perform(get("/api/game-rating/rank/{id}", unrated.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.numRatings").value(0));
+        restGameRatingMockMvc.perform(get("/api/game-rating/rank/{id}", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void ignoreLeaderboardUpdatesOfDeletedGames() throws Exception {
+        // Outside of a transaction, the updates and removals are applied right away
+        GameLeaderboardService leaderboard = new GameLeaderboardService();
+        GameRatingStats stats = new GameRatingStats(1L);
+        stats.setSumScore(8L);
+        stats.setNumRatings(1L);
+        stats.setVersion(3L);
+        leaderboard.updateAfterCommit(stats);
+        assertThat(leaderboard.findRank(1L)).isEqualTo(1);
+
+        leaderboard.removeAfterCommit(1L);
+        // A rating committed before the deletion of the game, published after it
+        stats.setVersion(4L);
+        leaderboard.updateAfterCommit(stats);
+        assertThat(leaderboard.findRank(1L)).isEqualTo(0);
+        assertThat(leaderboard.contains(1L)).isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void flushBufferedGameRatings() throws Exception {
+        // Initialize the database
+        Game game = GameResourceIntTest.createEntity(em);
+        em.persist(game);
+        em.flush();
+
+        // A buffer of its own, enabled, and not flushed by the scheduler behind the test's back
+        JHipsterProperties properties = new JHipsterProperties();
+        properties.getRating().getBurst().setEnabled(true);
+        GameRatingBurstBuffer buffer = new GameRatingBurstBuffer();
+        ReflectionTestUtils.setField(buffer, "jHipsterProperties", properties);
+        ReflectionTestUtils.setField(buffer, "gameRatingService", gameRatingService);
+        ReflectionTestUtils.setField(buffer, "gameLeaderboardService", gameLeaderboardService);
+        ReflectionTestUtils.setField(buffer, "gameRepository", gameRepository);
+        ReflectionTestUtils.setField(buffer, "metricRegistry", new MetricRegistry());
+        buffer.init();
+
+        // The ratings of unknown games are left to the caller, which rejects them
+        assertThat(buffer.offer("user", Long.MAX_VALUE, 3)).isNull();
+
+        buffer.offer("user", game.getId(), 3);
+        CompletableFuture<Void> flushed = buffer.offer("user", game.getId(), 6);
+        CompletableFuture<Void> dropped = buffer.offer("unknown-user", game.getId(), 1);
+        assertThat(buffer.getQueueDepth()).isEqualTo(3);
+        buffer.flush();
+
+        assertThat(buffer.getQueueDepth()).isEqualTo(0);
+        assertThat(flushed).isCompleted();
+        // Not stored, so not reported as flushed
+        assertThat(dropped).isCompletedExceptionally();
+        // The last rating of a user for a game wins
+        List<GameRating> ratings = gameRatingRepository.findAll();
+        assertThat(ratings).filteredOn(rating -> game.equals(rating.getGame())).hasSize(1)
+            .extracting(GameRating::getScore).containsExactly(6);
+        GameRatingStats stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(1L);
+        assertThat(stats.getSumScore()).isEqualTo(6L);
+
+        // Buffered again, the rating replaces the one now in the database
+        buffer.offer("user", game.getId(), 8);
+        buffer.offer("admin", game.getId(), 4);
+        buffer.flush();
+        stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(2L);
+        assertThat(stats.getSumScore()).isEqualTo(12L);
+        assertThat(stats.getMinScore()).isEqualTo(4);
+        assertThat(stats.getMaxScore()).isEqualTo(8);
+        assertThat(stats.getHistogram()[GameRatingStats.bucketOf(6)]).isEqualTo(0);
+        assertThat(stats.getHistogram()[GameRatingStats.bucketOf(8)]).isEqualTo(1);
+
+        // A rating written synchronously after one still buffered is not overwritten by it
+        CompletableFuture<Void> older = buffer.offer("user", game.getId(), 2);
+        GameRating newer = new GameRating().score(9).scoreDateTime(ZonedDateTime.now().plusSeconds(1))
+            .user(userRepository.findOneByLogin("user").get()).game(game);
+        gameRatingService.saveScore(newer);
+        buffer.flush();
+        assertThat(older).isCompleted();
+        assertThat(gameRatingRepository.findIdAndScore(newer.getUser().getId(), game.getId()))
+            .extracting(row -> row[1]).containsExactly(9);
+        stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(2L);
+        assertThat(stats.getSumScore()).isEqualTo(13L);
+
+        // Disabled, the buffer refuses the ratings and the caller writes them itself
+        properties.getRating().getBurst().setEnabled(false);
+        assertThat(buffer.offer("user", game.getId(), 2)).isNull();
+    }
+
+    @Test
+    public void retryFailedBufferedGameRatings() throws Exception {
+        // A buffer writing through a service that fails on every batch holding a rating of "poison"
+        JHipsterProperties properties = new JHipsterProperties();
+        properties.getRating().getBurst().setEnabled(true);
+        properties.getRating().getBurst().setStripes(1);
+        properties.getRating().getBurst().setMaxAttempts(2);
+        GameRatingService failingService = Mockito.mock(GameRatingService.class);
+        Mockito.when(failingService.saveScores(Mockito.anyListOf(GameRating.class))).thenAnswer(invocation -> {
+            List<GameRating> ratings = invocation.getArgumentAt(0, List.class);
+            if (ratings.stream().anyMatch(rating -> "poison".equals(rating.getUser().getLogin()))) {
+                throw new IllegalStateException("Poisoned batch");
+            }
+            return Collections.emptyList();
+        });
+        GameLeaderboardService leaderboard = Mockito.mock(GameLeaderboardService.class);
+        Mockito.when(leaderboard.contains(Mockito.anyLong())).thenReturn(true);
+        GameRatingBurstBuffer buffer = new GameRatingBurstBuffer();
+        ReflectionTestUtils.setField(buffer, "jHipsterProperties", properties);
+        ReflectionTestUtils.setField(buffer, "gameRatingService", failingService);
+        ReflectionTestUtils.setField(buffer, "gameLeaderboardService", leaderboard);
+        ReflectionTestUtils.setField(buffer, "gameRepository", gameRepository);
+        ReflectionTestUtils.setField(buffer, "metricRegistry", new MetricRegistry());
+        buffer.init();
+
+        CompletableFuture<Void> first = buffer.offer("user", 1L, 3);
+        CompletableFuture<Void> poisoned = buffer.offer("poison", 1L, 4);
+        CompletableFuture<Void> last = buffer.offer("admin", 1L, 5);
+        buffer.flush();
+        // Nothing is dropped: the batch waits to be written again
+        assertThat(buffer.getQueueDepth()).isEqualTo(3);
+        CompletableFuture<Void> newer = buffer.offer("user", 1L, 6);
+        buffer.flush();
+        // The newer rating waits behind the failed batch, so it cannot be overwritten by the older rating of the same user
+        assertThat(newer).isNotDone();
+
+        // Split in halves until the poisoned rating is alone, then dead-lettered after its attempts
+        for (int i = 0; i < 5 && !poisoned.isDone(); i++) {
+            buffer.flush();
+        }
+        assertThat(first).isCompleted();
+        assertThat(last).isCompleted();
+        assertThat(poisoned).isCompletedExceptionally();
+        assertThat(newer).isCompleted();
+        assertThat(buffer.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    @Transactional
+    public void upsertGameRating() throws Exception {
+        // Initialize the database
+        Game game = GameResourceIntTest.createEntity(em);
+        em.persist(game);
+        em.flush();
+        User user = userRepository.findOneByLogin("user").get();
+
+        GameRating first = new GameRating().score(4).scoreDateTime(DEFAULT_SCORE_DATE_TIME).user(user).game(game);
+        assertThat(gameRatingService.saveScore(first)).isTrue();
+        assertThat(first.getId()).isNotNull();
+
+        // The second rating of the user replaces the first one
+        GameRating second = new GameRating().score(9).scoreDateTime(UPDATED_SCORE_DATE_TIME).user(user).game(game);
+        assertThat(gameRatingService.saveScore(second)).isFalse();
+        assertThat(second.getId()).isEqualTo(first.getId());
+
+        assertThat(gameRatingRepository.findIdAndScore(user.getId(), game.getId()))
+            .hasSize(1)
+            .extracting(row -> row[1]).containsExactly(9);
+        GameRatingStats stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(1L);
+        assertThat(stats.getSumScore()).isEqualTo(9L);
+    }
+
+    @Test
+    @Transactional
+    public void createGameRatingsBatch() throws Exception {
+        // Initialize the database
+        Game rated = GameResourceIntTest.createEntity(em);
+        Game unrated = GameResourceIntTest.createEntity(em);
+        em.persist(rated);
+        em.persist(unrated);
+        em.flush();
+        User user = userRepository.findOneByLogin("user").get();
+        gameRatingService.saveScore(new GameRating().score(2).scoreDateTime(DEFAULT_SCORE_DATE_TIME).user(user).game(rated));
+
+        Game missing = new Game();
+        missing.setId(Long.MAX_VALUE);
+        List<GameRating> batch = Arrays.asList(
+            new GameRating().score(5).game(unrated),
+            new GameRating().score(7).game(rated),
+            new GameRating().score(6).game(unrated),
+            new GameRating().score(3).game(missing),
+            new GameRating().game(rated));
+
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(new UsernamePasswordAuthenticationToken("user", "user"));
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            restGameRatingMockMvc.perform(post("/api/game-ratings/batch")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value("SUPERSEDED"))
+                .andExpect(jsonPath("$.[1].status").value("UPDATED"))
+                .andExpect(jsonPath("$.[2].status").value("CREATED"))
+                .andExpect(jsonPath("$.[3].status").value("GAME_NOT_FOUND"))
+                .andExpect(jsonPath("$.[4].status").value("INVALID"));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        // The saved ratings count for the trending games
+        gameTrendingService.refresh();
+        restGameRatingMockMvc.perform(get("/api/game-rating/trending?window=1h&size=100"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].gameId").value(hasItem(unrated.getId().intValue())));
+        restGameRatingMockMvc.perform(get("/api/game-rating/trending?window=2h"))
+            .andExpect(status().isBadRequest());
+
+        assertThat(gameRatingRepository.findIdAndScore(user.getId(), rated.getId()))
+            .extracting(row -> row[1]).containsExactly(7);
+        assertThat(gameRatingRepository.findIdAndScore(user.getId(), unrated.getId()))
+            .extracting(row -> row[1]).containsExactly(6);
+        assertThat(gameRatingStatsService.findOne(rated.getId()).getSumScore()).isEqualTo(7L);
+        assertThat(gameRatingStatsService.findOne(unrated.getId()).getNumRatings()).isEqualTo(1L);
+    }
+
+    @Test
+    @Transactional
+    public void getGameRatingHistogram() throws Exception {
+        // Initialize the database
+        Game game = GameResourceIntTest.createEntity(em);
+        em.persist(game);
+        em.flush();
+        gameRatingService.save(new GameRating().score(3).game(game));
+        gameRatingService.save(new GameRating().score(3).game(game));
+        GameRating highest = gameRatingService.save(new GameRating().score(10).game(game));
+        gameRatingService.save(new GameRating().score(7).game(game));
+
+        restGameRatingMockMvc.perform(get("/api/game-rating/{id}/histogram", game.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.numRatings").value(4))
+            .andExpect(jsonPath("$.counts.1").value(0))
+            .andExpect(jsonPath("$.counts.3").value(2))
+            .andExpect(jsonPath("$.counts.10").value(1));
+
+        // Removing the highest score takes the new maximum from the histogram
+        gameRatingService.delete(highest.getId());
+        GameRatingStats stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getMaxScore()).isEqualTo(7);
+        assertThat(stats.getHistogram()).containsExactly(0, 0, 2, 0, 0, 0, 1, 0, 0, 0);
+
+        // An aggregate without histogram gets it from the ratings on its next write
+        stats.setHistogram(null);
+        em.flush();
+        gameRatingService.save(new GameRating().score(1).game(game));
+        stats = gameRatingStatsService.findOne(game.getId());
+        assertThat(stats.getNumRatings()).isEqualTo(4L);
+        assertThat(stats.getHistogram()).containsExactly(1, 0, 2, 0, 0, 0, 1, 0, 0, 0);
+
+        restGameRatingMockMvc.perform(get("/api/game-rating/{id}/histogram", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getAvgGameRatings() throws Exception {
+        // Initialize the database
+        Game rated = GameResourceIntTest.createEntity(em);
+        Game unrated = GameResourceIntTest.createEntity(em);
+        em.persist(rated);
+        em.persist(unrated);
+        em.flush();
+        gameRatingService.save(new GameRating().score(3).game(rated));
+        gameRatingService.save(new GameRating().score(6).game(rated));
+
+        restGameRatingMockMvc.perform(get("/api/game-rating/averages?ids={rated},{unrated}", rated.getId(), unrated.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$." + rated.getId()).value(4.5))
+            .andExpect(jsonPath("$." + unrated.getId()).isEmpty());
+    }
+
+    @Test
+    @Transactional
+    public void getAllGameRatingsAfterCursor() throws Exception {
+        // Initialize the database: the two latest ratings share their date, the id breaks the tie
+        GameRating oldest = gameRatingRepository.saveAndFlush(createEntity(em));
+        GameRating latest = gameRatingRepository.saveAndFlush(createEntity(em).scoreDateTime(UPDATED_SCORE_DATE_TIME));
+        GameRating latestToo = gameRatingRepository.saveAndFlush(createEntity(em).scoreDateTime(UPDATED_SCORE_DATE_TIME));
+
+        String link = restGameRatingMockMvc.perform(get("/api/game-ratings?after=&size=2&sort=scoreDateTime,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(latestToo.getId().intValue(), latest.getId().intValue())))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf(">; rel=\"next\""));
+
+        restGameRatingMockMvc.perform(get(next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(oldest.getId().intValue())))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getAllGameRatingsWithoutCount() throws Exception {
+        // Initialize the database
+        GameRating first = gameRatingRepository.saveAndFlush(createEntity(em));
+        GameRating second = gameRatingRepository.saveAndFlush(createEntity(em));
+        GameRating third = gameRatingRepository.saveAndFlush(createEntity(em));
+
+        restGameRatingMockMvc.perform(get("/api/game-ratings?count=false&size=2&sort=id,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Total-Count-Approximate", notNullValue()))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("</api/game-ratings?count=false&page=1&size=2>; rel=\"next\"")))
+            .andExpect(jsonPath("$.[*].id").value(contains(first.getId().intValue(), second.getId().intValue())));
+
+        restGameRatingMockMvc.perform(get("/api/game-ratings?count=false&page=1&size=2&sort=id,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))))
+            .andExpect(jsonPath("$.[*].id").value(contains(third.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllGameRatingsInBoundedStatements() throws Exception {
+        // Initialize the database: ratings of different games, users and teams, none of them loaded
+        User user = userRepository.findOneByLogin("user").get();
+        User admin = userRepository.findOneByLogin("admin").get();
+        for (int i = 0; i < 4; i++) {
+            Team local = TeamResourceIntTest.createEntity(em);
+            Team visitor = TeamResourceIntTest.createEntity(em);
+            em.persist(local);
+            em.persist(visitor);
+            Game game = GameResourceIntTest.createEntity(em).localTeam(local).visitorTeam(visitor);
+            em.persist(game);
+            em.persist(createEntity(em).game(game).user(i % 2 == 0 ? user : admin));
+        }
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        // A page and its count, whatever the number of ratings, games, teams and users on it
+        statistics.clear();
+        restGameRatingMockMvc.perform(get("/api/game-ratings?size=4&sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].user.login").value(hasItem("admin")))
+            .andExpect(jsonPath("$.[0].game.localTeam.name").value(notNullValue()))
+            .andExpect(jsonPath("$.[0].game.visitorTeam.name").value(notNullValue()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        // One statement without the count, by page or by cursor (once the approximate total is cached)
+        restGameRatingMockMvc.perform(get("/api/game-ratings?count=false&size=4&sort=id,desc"));
+        em.clear();
+        statistics.clear();
+        restGameRatingMockMvc.perform(get("/api/game-ratings?count=false&size=4&sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].game.localTeam.name").value(notNullValue()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        em.clear();
+        statistics.clear();
+        restGameRatingMockMvc.perform(get("/api/game-ratings?after=&size=4&sort=scoreDateTime,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].game.localTeam.name").value(notNullValue()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
 }
@@ -2,21 +2,36 @@ package com.stucom.basketball.web.rest;
 
 import com.stucom.basketball.BasketballApp;
 
+import com.stucom.basketball.config.JHipsterProperties;
 import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.domain.GameRating;
+import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.domain.enumeration.GameEventType;
 import com.stucom.basketball.repository.GameRepository;
+import com.stucom.basketball.service.GameEventService;
+import com.stucom.basketball.service.GameLiveService;
+import com.stucom.basketball.service.GameRatingService;
+import com.stucom.basketball.service.GameRatingStatsService;
+import com.stucom.basketball.service.GameScheduleService;
 import com.stucom.basketball.service.GameService;
+import com.stucom.basketball.service.dto.GameEventDTO;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,10 +39,15 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -61,6 +81,27 @@ public class GameResourceIntTest {
     @Inject
     private GameService gameService;
 
+    @Inject
+    private GameScheduleService gameScheduleService;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private GameRatingService gameRatingService;
+
+    @Inject
+    private GameRatingStatsService gameRatingStatsService;
+
+    @Inject
+    private GameEventService gameEventService;
+
+    @Inject
+    private GameLiveService gameLiveService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -79,9 +120,13 @@ public class GameResourceIntTest {
         MockitoAnnotations.initMocks(this);
         GameResource gameResource = new GameResource();
         ReflectionTestUtils.setField(gameResource, "gameService", gameService);
+        ReflectionTestUtils.setField(gameResource, "gameRatingStatsService", gameRatingStatsService);
+        ReflectionTestUtils.setField(gameResource, "gameEventService", gameEventService);
+        ReflectionTestUtils.setField(gameResource, "gameLiveService", gameLiveService);
+        ReflectionTestUtils.setField(gameResource, "gameScheduleService", gameScheduleService);
         this.restGameMockMvc = MockMvcBuilders.standaloneSetup(gameResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
-            .setMessageConverters(jacksonMessageConverter).build();
+            .setMessageConverters(new StringHttpMessageConverter(), jacksonMessageConverter).build();
     }
 
     /**
@@ -166,6 +211,22 @@ public class GameResourceIntTest {
             .andExpect(jsonPath("$.[*].finishTime").value(hasItem(DEFAULT_FINISH_TIME.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getAllGamesWithRatings() throws Exception {
+        // Initialize the database
+        gameRepository.saveAndFlush(game);
+        gameRatingService.save(new GameRating().score(4).game(game));
+        gameRatingService.save(new GameRating().score(5).game(game));
+
+        // Get all the gameList, with the average score of each game
+        restGameMockMvc.perform(get("/api/games?sort=id,desc&withRatings=true"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[0].game.id").value(game.getId().intValue()))
+            .andExpect(jsonPath("$.[0].avgScore").value(4.5));
+    }
+
     @Test
     @Transactional
     public void getGame() throws Exception {
@@ -184,6 +245,38 @@ public class GameResourceIntTest {
             .andExpect(jsonPath("$.finishTime").value(DEFAULT_FINISH_TIME.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getGameNotModified() throws Exception {
+        // Initialize the database
+        gameRepository.saveAndFlush(game);
+
+        // The game is not sent again while it does not change
+        String eTag = restGameMockMvc.perform(get("/api/games/{id}", game.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restGameMockMvc.perform(get("/api/games/{id}", game.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        String listETag = restGameMockMvc.perform(get("/api/games?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("W/")))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        restGameMockMvc.perform(get("/api/games?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, listETag))
+            .andExpect(status().isNotModified());
+
+        // Once updated, its version and ETag change
+        gameRepository.saveAndFlush(game.name(UPDATED_NAME));
+        restGameMockMvc.perform(get("/api/games/{id}", game.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.name").value(UPDATED_NAME))
+            .andExpect(jsonPath("$.version").value(1));
+        restGameMockMvc.perform(get("/api/games?sort=id,desc").header(HttpHeaders.IF_NONE_MATCH, listETag))
+            .andExpect(status().isOk());
+    }
+
     @Test
     @Transactional
     public void getNonExistingGame() throws Exception {
@@ -225,6 +318,24 @@ public class GameResourceIntTest {
         assertThat(testGame.getFinishTime()).isEqualTo(UPDATED_FINISH_TIME);
     }
 
+    @Test
+    @Transactional
+    public void updateGameWithoutVersion() throws Exception {
+        // Initialize the database
+        gameService.save(game);
+
+        // An update that does not say which version it was read at could overwrite a concurrent one
+        Game updatedGame = new Game().name(UPDATED_NAME);
+        updatedGame.setId(game.getId());
+
+        restGameMockMvc.perform(put("/api/games")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(updatedGame)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(gameRepository.findOne(game.getId()).getName()).isEqualTo(DEFAULT_NAME);
+    }
+
     @Test
     @Transactional
     public void updateNonExistingGame() throws Exception {
@@ -260,4 +371,185 @@ public class GameResourceIntTest {
         List<Game> gameList = gameRepository.findAll();
         assertThat(gameList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    public void createGameEvents() throws Exception {
+        // Initialize the database: a game between two teams, a player of each team
+        Team local = TeamResourceIntTest.createEntity(em);
+        Team visitor = TeamResourceIntTest.createEntity(em);
+        em.persist(local);
+        em.persist(visitor);
+        Player localPlayer = PlayerResourceIntTest.createEntity(em).team(local);
+        Player visitorPlayer = PlayerResourceIntTest.createEntity(em).team(visitor);
+        em.persist(localPlayer);
+        em.persist(visitorPlayer);
+        gameService.save(game.localTeam(local).visitorTeam(visitor));
+        em.flush();
+        long version = game.getVersion();
+
+        // A basket without points scores 2
+        restGameMockMvc.perform(post("/api/games/{id}/events", game.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(
+                new GameEventDTO(null, GameEventType.BASKET, localPlayer.getId(), local.getId(), 3, null),
+                new GameEventDTO(null, GameEventType.ASSIST, visitorPlayer.getId(), visitor.getId(), null, null),
+                new GameEventDTO(null, GameEventType.BASKET, visitorPlayer.getId(), visitor.getId(), null, null)))))
+            .andExpect(status().isCreated())
+            .andExpect(header().string(HttpHeaders.LOCATION, "/api/games/" + game.getId() + "/events?since=0"))
+            .andExpect(jsonPath("$.[*].seq").value(contains(1, 2, 3)))
+            .andExpect(jsonPath("$.[2].points").value(GameEventService.DEFAULT_BASKET_POINTS));
+        restGameMockMvc.perform(post("/api/games/{id}/events", game.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(
+                new GameEventDTO(null, GameEventType.REBOUND, localPlayer.getId(), local.getId(), null, null)))))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.[*].seq").value(contains(4)));
+
+        // The events are tailed by seq
+        restGameMockMvc.perform(get("/api/games/{id}/events?since=2", game.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].seq").value(contains(3, 4)))
+            .andExpect(jsonPath("$.[1].type").value(GameEventType.REBOUND.toString()))
+            .andExpect(jsonPath("$.[1].playerId").value(localPlayer.getId().intValue()));
+        restGameMockMvc.perform(get("/api/games/{id}/events?size=1", game.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].seq").value(contains(1)));
+        restGameMockMvc.perform(get("/api/games/{id}/events?since=4", game.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+        restGameMockMvc.perform(get("/api/games/{id}/events", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+
+        // The scores and the stats are derived from the events
+        em.clear();
+        Game scored = gameRepository.findOne(game.getId());
+        assertThat(scored.getLocalScore()).isEqualTo(DEFAULT_LOCAL_SCORE + 3);
+        assertThat(scored.getVisitorScore()).isEqualTo(DEFAULT_VISITOR_SCORE + GameEventService.DEFAULT_BASKET_POINTS);
+        assertThat(scored.getVersion()).isEqualTo(version + 2);
+        Player localStats = em.find(Player.class, localPlayer.getId());
+        assertThat(localStats.getNumBaskets()).isEqualTo(localPlayer.getNumBaskets() + 1);
+        assertThat(localStats.getNumRebounds()).isEqualTo(localPlayer.getNumRebounds() + 1);
+        Player visitorStats = em.find(Player.class, visitorPlayer.getId());
+        assertThat(visitorStats.getNumBaskets()).isEqualTo(visitorPlayer.getNumBaskets() + 1);
+        assertThat(visitorStats.getNumAssists()).isEqualTo(visitorPlayer.getNumAssists() + 1);
+
+        // Invalid events are not appended
+        restGameMockMvc.perform(post("/api/games/{id}/events", game.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(
+                new GameEventDTO(null, GameEventType.BASKET, localPlayer.getId(), visitor.getId(), 4, null)))))
+            .andExpect(status().isBadRequest());
+        restGameMockMvc.perform(post("/api/games/{id}/events", game.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(
+                new GameEventDTO(null, GameEventType.ASSIST, localPlayer.getId(), Long.MAX_VALUE, null, null)))))
+            .andExpect(status().isBadRequest());
+        // A player scores for their own team only
+        restGameMockMvc.perform(post("/api/games/{id}/events", game.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(
+                new GameEventDTO(null, GameEventType.BASKET, localPlayer.getId(), visitor.getId(), 2, null)))))
+            .andExpect(status().isBadRequest());
+        restGameMockMvc.perform(post("/api/games/{id}/events", Long.MAX_VALUE)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Collections.singletonList(
+                new GameEventDTO(null, GameEventType.ASSIST, localPlayer.getId(), local.getId(), null, null)))))
+            .andExpect(status().isNotFound());
+        restGameMockMvc.perform(get("/api/games/{id}/events", game.getId()))
+            .andExpect(jsonPath("$.[*].seq").value(contains(1, 2, 3, 4)));
+
+        // Deleting the game takes its events off the stats
+        em.clear();
+        restGameMockMvc.perform(delete("/api/games/{id}", game.getId()))
+            .andExpect(status().isOk());
+        em.clear();
+        localStats = em.find(Player.class, localPlayer.getId());
+        assertThat(localStats.getNumBaskets()).isEqualTo(localPlayer.getNumBaskets());
+        assertThat(localStats.getNumRebounds()).isEqualTo(localPlayer.getNumRebounds());
+        visitorStats = em.find(Player.class, visitorPlayer.getId());
+        assertThat(visitorStats.getNumBaskets()).isEqualTo(visitorPlayer.getNumBaskets());
+        assertThat(visitorStats.getNumAssists()).isEqualTo(visitorPlayer.getNumAssists());
+    }
+
+    @Test
+    public void getGameLive() throws Exception {
+        // Initialize the database, outside of a transaction: the scores are pushed once their transaction commits
+        gameService.save(game);
+        try {
+            MvcResult live = restGameMockMvc.perform(get("/api/games/{id}/live", game.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            assertThat(live.getResponse().getContentType()).startsWith("text/event-stream");
+            awaitContent(live, "\"localScore\":" + DEFAULT_LOCAL_SCORE);
+
+            game.setLocalScore(UPDATED_LOCAL_SCORE);
+            Game updated = gameService.save(game);
+            awaitContent(live, "id:" + updated.getVersion() + "\nevent:" + GameLiveService.SCORE_EVENT +
+                "\ndata:{\"gameId\":" + game.getId() + ",\"localScore\":" + UPDATED_LOCAL_SCORE);
+
+            gameLiveService.heartbeat();
+            awaitContent(live, ":heartbeat");
+
+            // Each node accepts a limited number of viewers
+            int maxSubscribers = jHipsterProperties.getLive().getMaxSubscribers();
+            jHipsterProperties.getLive().setMaxSubscribers(gameLiveService.getSubscriberCount());
+            try {
+                restGameMockMvc.perform(get("/api/games/{id}/live", game.getId()))
+                    .andExpect(status().isServiceUnavailable());
+            } finally {
+                jHipsterProperties.getLive().setMaxSubscribers(maxSubscribers);
+            }
+            restGameMockMvc.perform(get("/api/games/{id}/live", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+        } finally {
+            gameService.delete(game.getId());
+        }
+    }
+
+    private static void awaitContent(MvcResult result, String content) throws Exception {
+        for (int i = 0; i < 50 && !result.getResponse().getContentAsString().contains(content); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(result.getResponse().getContentAsString()).contains(content);
+    }
+
+    @Test
+    @Transactional
+    public void getGameSchedule() throws Exception {
+        // Initialize the database
+        LocalDate day = LocalDate.ofEpochDay(1000L);
+        Game finishedGame = gameService.save(new Game().name("finished").startTime(day).finishTime(day).localScore(3).visitorScore(1));
+        Game playedGame = gameService.save(new Game().name("played").startTime(day.plusDays(1)));
+        gameService.save(new Game().name("later").startTime(day.plusDays(7)));
+
+        try {
+            // Get the games of the week
+            restGameMockMvc.perform(get("/api/games?from={from}&to={to}", day, day.plusDays(6)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.[*].id").value(contains(finishedGame.getId().intValue(), playedGame.getId().intValue())))
+                .andExpect(jsonPath("$.[0].startTime").value(day.toString()))
+                .andExpect(jsonPath("$.[0].localScore").value(3));
+
+            // Only the past day whose games have all finished is cached
+            assertThat(cacheManager.getCache(GameScheduleService.DAYS_CACHE).get(day)).isNotNull();
+            assertThat(cacheManager.getCache(GameScheduleService.DAYS_CACHE).get(day.plusDays(1))).isNull();
+            restGameMockMvc.perform(get("/api/games?from={from}&to={to}", day, day.plusDays(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].name").value(contains("finished", "played")));
+        } finally {
+            cacheManager.getCache(GameScheduleService.DAYS_CACHE).clear();
+        }
+
+        restGameMockMvc.perform(get("/api/games?from={from}&to={to}", day, day.minusDays(1)))
+            .andExpect(status().isBadRequest());
+        restGameMockMvc.perform(get("/api/games?from={from}&to={to}", day, day.plusDays(GameScheduleService.MAX_DAYS)))
+            .andExpect(status().isBadRequest());
+        // Neither ambiguous nor silently ignored
+        restGameMockMvc.perform(get("/api/games?from={from}&to={to}&after=", day, day.plusDays(6)))
+            .andExpect(status().isBadRequest());
+        restGameMockMvc.perform(get("/api/games?from={from}&to={to}&fields=name", day, day.plusDays(6)))
+            .andExpect(status().isBadRequest());
+    }
 }
@@ -2,9 +2,17 @@ package com.stucom.basketball.web.rest;
 
 import com.stucom.basketball.BasketballApp;
 
+import com.stucom.basketball.domain.FavouritePlayer;
 import com.stucom.basketball.domain.Player;
+import com.stucom.basketball.domain.Team;
+import com.stucom.basketball.domain.User;
+import com.stucom.basketball.repository.FavouritePlayerRepository;
 import com.stucom.basketball.repository.PlayerRepository;
+import com.stucom.basketball.repository.PlayerSimilarityJdbcRepository;
+import com.stucom.basketball.repository.UserRepository;
 import com.stucom.basketball.service.PlayerService;
+import com.stucom.basketball.service.PlayerSimilarityService;
+import com.stucom.basketball.service.dto.PlayerStatsDTO;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -12,22 +20,30 @@ import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -68,6 +84,18 @@ public class PlayerResourceIntTest {
     @Inject
     private PlayerService playerService;
 
+    @Inject
+    private PlayerSimilarityJdbcRepository playerSimilarityJdbcRepository;
+
+    @Inject
+    private FavouritePlayerRepository favouritePlayerRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -79,13 +107,22 @@ public class PlayerResourceIntTest {
 
     private MockMvc restPlayerMockMvc;
 
+    private PlayerSimilarityService playerSimilarityService;
+
     private Player player;
 
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
+        // A service of its own, so the co-occurrences of the test favourites do not outlive the test
+        playerSimilarityService = new PlayerSimilarityService();
+        ReflectionTestUtils.setField(playerSimilarityService, "playerSimilarityJdbcRepository", playerSimilarityJdbcRepository);
+        ReflectionTestUtils.setField(playerSimilarityService, "favouritePlayerRepository", favouritePlayerRepository);
+        ReflectionTestUtils.setField(playerSimilarityService, "playerRepository", playerRepository);
+        ReflectionTestUtils.setField(playerSimilarityService, "transactionManager", transactionManager);
         PlayerResource playerResource = new PlayerResource();
         ReflectionTestUtils.setField(playerResource, "playerService", playerService);
+        ReflectionTestUtils.setField(playerResource, "playerSimilarityService", playerSimilarityService);
         this.restPlayerMockMvc = MockMvcBuilders.standaloneSetup(playerResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -279,4 +316,167 @@ public class PlayerResourceIntTest {
         List<Player> playerList = playerRepository.findAll();
         assertThat(playerList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    public void getSimilarPlayers() throws Exception {
+        // Initialize the database: both users have the first two players as favourites, one of them the third too
+        Player first = playerService.save(createEntity(em));
+        Player second = playerService.save(createEntity(em));
+        Player third = playerService.save(createEntity(em));
+        User user = userRepository.findOneByLogin("user").get();
+        User admin = userRepository.findOneByLogin("admin").get();
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().user(user).player(first));
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().user(user).player(second));
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().user(user).player(third));
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().user(admin).player(first));
+        favouritePlayerRepository.saveAndFlush(new FavouritePlayer().user(admin).player(second));
+        playerSimilarityService.rebuild();
+
+        restPlayerMockMvc.perform(get("/api/players/{id}/similar", first.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].player.id").value(second.getId().intValue()))
+            .andExpect(jsonPath("$.[0].commonFavourites").value(2))
+            .andExpect(jsonPath("$.[1].player.id").value(third.getId().intValue()))
+            .andExpect(jsonPath("$.[1].commonFavourites").value(1));
+        restPlayerMockMvc.perform(get("/api/players/{id}/similar?size=1", third.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].player.id").value(first.getId().intValue()))
+            .andExpect(jsonPath("$.[1]").doesNotExist());
+        restPlayerMockMvc.perform(get("/api/players/{id}/similar", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getAllPlayersAfterCursor() throws Exception {
+        // Initialize the database: two players share a name, the id breaks the tie
+        Player b1 = playerService.save(createEntity(em).name("B"));
+        Player a = playerService.save(createEntity(em).name("A"));
+        Player b2 = playerService.save(createEntity(em).name("B"));
+        Player c = playerService.save(createEntity(em).name("C"));
+
+        MvcResult first = restPlayerMockMvc.perform(get("/api/players?after=&size=2&sort=name,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].id").value(contains(a.getId().intValue(), b1.getId().intValue())))
+            .andReturn();
+        String next = linkOf(first, "next");
+        assertThat(next).isNotNull();
+
+        MvcResult second = restPlayerMockMvc.perform(get(next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(b2.getId().intValue(), c.getId().intValue())))
+            .andReturn();
+        assertThat(linkOf(second, "next")).isNull();
+
+        restPlayerMockMvc.perform(get("/api/players?after=&size=3&sort=name,desc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(c.getId().intValue(), b2.getId().intValue(), b1.getId().intValue())));
+
+        // Only the indexed properties can be sorted on, and the cursor must be one of ours
+        restPlayerMockMvc.perform(get("/api/players?after=&sort=numBaskets,asc"))
+            .andExpect(status().isBadRequest());
+        restPlayerMockMvc.perform(get("/api/players?after=garbage"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getAllPlayersFields() throws Exception {
+        // Initialize the database: one player with a team, one without
+        Team team = TeamResourceIntTest.createEntity(em);
+        em.persist(team);
+        Player withTeam = playerService.save(createEntity(em).team(team));
+        Player withoutTeam = playerService.save(createEntity(em));
+
+        restPlayerMockMvc.perform(get("/api/players?fields=id,name,team.name&sort=id,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "2"))
+            .andExpect(jsonPath("$.[0].id").value(withTeam.getId().intValue()))
+            .andExpect(jsonPath("$.[0].name").value(DEFAULT_NAME))
+            .andExpect(jsonPath("$.[0].team.name").value(team.getName()))
+            .andExpect(jsonPath("$.[0].team.id").doesNotExist())
+            .andExpect(jsonPath("$.[0].surname").doesNotExist())
+            .andExpect(jsonPath("$.[1].id").value(withoutTeam.getId().intValue()))
+            .andExpect(jsonPath("$.[1].team").value(nullValue()));
+
+        restPlayerMockMvc.perform(get("/api/players?fields=surname&count=false"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].surname").value(hasItem(DEFAULT_SURNAME)))
+            .andExpect(jsonPath("$.[0].name").doesNotExist());
+
+        restPlayerMockMvc.perform(get("/api/players/{id}?fields=numBaskets", withTeam.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.numBaskets").value(DEFAULT_NUM_BASKETS))
+            .andExpect(jsonPath("$.id").doesNotExist());
+        restPlayerMockMvc.perform(get("/api/players/{id}?fields=name", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+
+        // Only the properties written in the JSON of the player, and of its team, can be requested
+        restPlayerMockMvc.perform(get("/api/players?fields=favouritePlayers"))
+            .andExpect(status().isBadRequest());
+        restPlayerMockMvc.perform(get("/api/players?fields=team.players"))
+            .andExpect(status().isBadRequest());
+        restPlayerMockMvc.perform(get("/api/players/{id}?fields=team.name.length", withTeam.getId()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void addToPlayerStats() throws Exception {
+        // Initialize the database
+        Player first = playerService.save(createEntity(em));
+        Player second = playerService.save(createEntity(em));
+        em.flush();
+        long version = first.getVersion();
+
+        // A missing delta adds nothing
+        restPlayerMockMvc.perform(patch("/api/players/{id}/stats", first.getId())
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(new PlayerStatsDTO(null, 2, null, -1))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.playerId").value(first.getId().intValue()))
+            .andExpect(jsonPath("$.numBaskets").value(DEFAULT_NUM_BASKETS + 2))
+            .andExpect(jsonPath("$.numAssists").value(DEFAULT_NUM_ASSISTS))
+            .andExpect(jsonPath("$.numRebounds").value(DEFAULT_NUM_REBOUNDS - 1));
+
+        // The deltas of the same player are summed, the totals follow the order of the batch
+        restPlayerMockMvc.perform(patch("/api/players/stats")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(
+                new PlayerStatsDTO(second.getId(), 1, 1, 1),
+                new PlayerStatsDTO(first.getId(), 1, 0, 0),
+                new PlayerStatsDTO(second.getId(), 3, 0, 0)))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].playerId").value(contains(second.getId().intValue(), first.getId().intValue(), second.getId().intValue())))
+            .andExpect(jsonPath("$.[0].numBaskets").value(DEFAULT_NUM_BASKETS + 4))
+            .andExpect(jsonPath("$.[0].numAssists").value(DEFAULT_NUM_ASSISTS + 1))
+            .andExpect(jsonPath("$.[1].numBaskets").value(DEFAULT_NUM_BASKETS + 3));
+
+        // A batch with an unknown player changes nothing
+        restPlayerMockMvc.perform(patch("/api/players/stats")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(
+                new PlayerStatsDTO(first.getId(), 1, 0, 0),
+                new PlayerStatsDTO(Long.MAX_VALUE, 1, 0, 0)))))
+            .andExpect(status().isBadRequest());
+        restPlayerMockMvc.perform(patch("/api/players/{id}/stats", Long.MAX_VALUE)
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(new PlayerStatsDTO(null, 1, 0, 0))))
+            .andExpect(status().isNotFound());
+
+        // Each update is a new version of the player
+        em.clear();
+        Player updated = playerRepository.findOne(first.getId());
+        assertThat(updated.getNumBaskets()).isEqualTo(DEFAULT_NUM_BASKETS + 3);
+        assertThat(updated.getNumRebounds()).isEqualTo(DEFAULT_NUM_REBOUNDS - 1);
+        assertThat(updated.getVersion()).isEqualTo(version + 2);
+    }
+
+    private static String linkOf(MvcResult result, String rel) {
+        Matcher matcher = Pattern.compile("<([^>]*)>; rel=\"" + rel + "\"").matcher(result.getResponse().getHeader(HttpHeaders.LINK));
+        return matcher.find() ? matcher.group(1) : null;
+    }
 }
@@ -2,15 +2,26 @@ package com.stucom.basketball.web.rest;
 
 import com.stucom.basketball.BasketballApp;
 
+import com.stucom.basketball.domain.Game;
+import com.stucom.basketball.domain.Player;
 import com.stucom.basketball.domain.Team;
 import com.stucom.basketball.repository.TeamRepository;
+import com.stucom.basketball.service.GameService;
+import com.stucom.basketball.service.HeadToHeadService;
+import com.stucom.basketball.service.PlayerFavouriteCountService;
+import com.stucom.basketball.service.PlayerService;
+import com.stucom.basketball.service.TeamRatingService;
+import com.stucom.basketball.service.TeamRosterService;
 import com.stucom.basketball.service.TeamService;
+import com.stucom.basketball.service.TeamStandingService;
+import com.stucom.basketball.service.dto.TeamStandingDTO;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -27,6 +38,7 @@ import java.time.ZoneId;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -55,6 +67,30 @@ public class TeamResourceIntTest {
     @Inject
     private TeamService teamService;
 
+    @Inject
+    private TeamStandingService teamStandingService;
+
+    @Inject
+    private TeamRatingService teamRatingService;
+
+    @Inject
+    private HeadToHeadService headToHeadService;
+
+    @Inject
+    private TeamRosterService teamRosterService;
+
+    @Inject
+    private GameService gameService;
+
+    @Inject
+    private PlayerService playerService;
+
+    @Inject
+    private PlayerFavouriteCountService playerFavouriteCountService;
+
+    @Inject
+    private CacheManager cacheManager;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -73,6 +109,10 @@ public class TeamResourceIntTest {
         MockitoAnnotations.initMocks(this);
         TeamResource teamResource = new TeamResource();
         ReflectionTestUtils.setField(teamResource, "teamService", teamService);
+        ReflectionTestUtils.setField(teamResource, "teamStandingService", teamStandingService);
+        ReflectionTestUtils.setField(teamResource, "teamRatingService", teamRatingService);
+        ReflectionTestUtils.setField(teamResource, "headToHeadService", headToHeadService);
+        ReflectionTestUtils.setField(teamResource, "teamRosterService", teamRosterService);
         this.restTeamMockMvc = MockMvcBuilders.standaloneSetup(teamResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -242,4 +282,158 @@ public class TeamResourceIntTest {
         List<Team> teamList = teamRepository.findAll();
         assertThat(teamList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    public void getStandings() throws Exception {
+        // Initialize the database
+        Team otherTeam = createEntity(em);
+        teamService.save(team);
+        teamService.save(otherTeam);
+        assertThat(findStanding(team).getPlayed()).isEqualTo(0);
+
+        Game firstGame = gameService.save(new Game().name("first").localTeam(team).visitorTeam(otherTeam)
+            .localScore(80).visitorScore(70).finishTime(LocalDate.ofEpochDay(1L)));
+        Game secondGame = gameService.save(new Game().name("second").localTeam(otherTeam).visitorTeam(team)
+            .localScore(90).visitorScore(85).finishTime(LocalDate.ofEpochDay(2L)));
+        assertStanding(team, 2, 1, 1, 165, 160, -1);
+        assertStanding(otherTeam, 2, 1, 1, 160, 165, 1);
+
+        // A correction of a finished game replaces its result
+        gameService.save(firstGame.localScore(60));
+        assertStanding(team, 2, 0, 2, 145, 160, -2);
+        assertStanding(otherTeam, 2, 2, 0, 160, 145, 2);
+
+        // A game being played does not count
+        gameService.save(new Game().name("third").localTeam(team).visitorTeam(otherTeam).localScore(100).visitorScore(0));
+        assertStanding(team, 2, 0, 2, 145, 160, -2);
+
+        gameService.delete(secondGame.getId());
+        assertStanding(team, 1, 0, 1, 60, 70, -1);
+        assertStanding(otherTeam, 1, 1, 0, 70, 60, 1);
+
+        // Get the standings
+        restTeamMockMvc.perform(get("/api/standings"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[?(@.team.id == " + team.getId() + ")].losses").value(hasItem(1)))
+            .andExpect(jsonPath("$.[?(@.team.id == " + team.getId() + ")].streak").value(hasItem(-1)))
+            .andExpect(jsonPath("$.[?(@.team.id == " + otherTeam.getId() + ")].wins").value(hasItem(1)));
+
+        // The verification finds nothing to fix
+        teamStandingService.verify();
+        assertStanding(team, 1, 0, 1, 60, 70, -1);
+    }
+
+    @Test
+    @Transactional
+    public void getTeamRatings() throws Exception {
+        // Initialize the database
+        Team otherTeam = createEntity(em);
+        teamService.save(team);
+        teamService.save(otherTeam);
+        gameService.save(new Game().name("first").localTeam(team).visitorTeam(otherTeam)
+            .localScore(80).visitorScore(70).finishTime(LocalDate.ofEpochDay(1L)));
+        // The test transaction never commits: rate the games it wrote
+        teamRatingService.rebuild();
+
+        // Get the ratings
+        restTeamMockMvc.perform(get("/api/teams/ratings"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[?(@.team.id == " + team.getId() + ")].rating").value(hasItem(1510.0)))
+            .andExpect(jsonPath("$.[?(@.team.id == " + otherTeam.getId() + ")].rating").value(hasItem(1490.0)));
+    }
+
+    @Test
+    @Transactional
+    public void getHeadToHead() throws Exception {
+        // Initialize the database
+        Team otherTeam = createEntity(em);
+        teamService.save(team);
+        teamService.save(otherTeam);
+        Game firstGame = gameService.save(new Game().name("first").localTeam(team).visitorTeam(otherTeam)
+            .localScore(80).visitorScore(75).finishTime(LocalDate.ofEpochDay(1L)));
+        gameService.save(new Game().name("second").localTeam(otherTeam).visitorTeam(team)
+            .localScore(90).visitorScore(85).finishTime(LocalDate.ofEpochDay(2L)));
+        gameService.save(new Game().name("third").localTeam(otherTeam).visitorTeam(team).localScore(10).visitorScore(0));
+        // A correction of a finished game replaces its result
+        gameService.save(firstGame.localScore(90).visitorScore(80));
+
+        // Get the record, from both sides
+        restTeamMockMvc.perform(get("/api/teams/{id}/vs/{opponentId}", team.getId(), otherTeam.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.games").value(2))
+            .andExpect(jsonPath("$.wins").value(1))
+            .andExpect(jsonPath("$.losses").value(1))
+            .andExpect(jsonPath("$.ties").value(0))
+            .andExpect(jsonPath("$.averageMargin").value(2.5));
+        restTeamMockMvc.perform(get("/api/teams/{id}/vs/{opponentId}", otherTeam.getId(), team.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.games").value(2))
+            .andExpect(jsonPath("$.averageMargin").value(-2.5));
+
+        gameService.delete(firstGame.getId());
+        // The verification finds nothing to fix
+        headToHeadService.verify();
+        restTeamMockMvc.perform(get("/api/teams/{id}/vs/{opponentId}", team.getId(), otherTeam.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.games").value(1))
+            .andExpect(jsonPath("$.wins").value(0))
+            .andExpect(jsonPath("$.averageMargin").value(-5.0));
+
+        restTeamMockMvc.perform(get("/api/teams/{id}/vs/{opponentId}", team.getId(), team.getId()))
+            .andExpect(status().isBadRequest());
+        restTeamMockMvc.perform(get("/api/teams/{id}/vs/{opponentId}", team.getId(), Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getTeamRoster() throws Exception {
+        // Initialize the database
+        teamService.save(team);
+        Player player = playerService.save(PlayerResourceIntTest.createEntity(em).team(team));
+        Player otherPlayer = playerService.save(PlayerResourceIntTest.createEntity(em).team(team));
+        playerService.save(PlayerResourceIntTest.createEntity(em));
+        playerFavouriteCountService.favouriteChanged(null, otherPlayer.getId());
+
+        try {
+            // Get the roster
+            restTeamMockMvc.perform(get("/api/teams/{id}/roster", team.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.team.id").value(team.getId().intValue()))
+                .andExpect(jsonPath("$.players.[*].player.id").value(contains(player.getId().intValue(), otherPlayer.getId().intValue())))
+                .andExpect(jsonPath("$.players.[*].numFavs").value(contains(0, 1)));
+
+            // The roster is cached per team
+            assertThat(cacheManager.getCache(TeamRosterService.ROSTERS_CACHE).get(team.getId())).isNotNull();
+        } finally {
+            cacheManager.getCache(TeamRosterService.ROSTERS_CACHE).clear();
+        }
+
+        restTeamMockMvc.perform(get("/api/teams/{id}/roster", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    private void assertStanding(Team team, int played, int wins, int losses, int pointsFor, int pointsAgainst, int streak) {
+        // The records are updated in bulk, without the entities in the persistence context
+        em.flush();
+        em.clear();
+        TeamStandingDTO standing = findStanding(team);
+        assertThat(standing.getPlayed()).isEqualTo(played);
+        assertThat(standing.getWins()).isEqualTo(wins);
+        assertThat(standing.getLosses()).isEqualTo(losses);
+        assertThat(standing.getPointsFor()).isEqualTo(pointsFor);
+        assertThat(standing.getPointsAgainst()).isEqualTo(pointsAgainst);
+        assertThat(standing.getStreak()).isEqualTo(streak);
+    }
+
+    private TeamStandingDTO findStanding(Team team) {
+        return teamStandingService.findAll().stream()
+            .filter(standing -> standing.getTeam().getId().equals(team.getId()))
+            .findFirst().get();
+    }
 }